@@ -0,0 +1,253 @@
+package org.interledger.cryptoconditions;
+
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes the base64url encoding without padding, as used for fingerprints in
+ * condition URIs and for binary values in JSON.
+ *
+ * Unlike {@link java.util.Base64} it works directly on ranges of arrays and character sequences,
+ * so a fingerprint can be decoded in place from a URI or JSON document and encoded straight into a
+ * {@link StringBuilder}, without an intermediate {@link String} or array. Decoding is strict: only
+ * the url-safe alphabet is accepted, padding is rejected and the unused bits of the last character
+ * must be zero, so every byte array has exactly one encoding.
+ */
+public final class Base64Url {
+
+  /**
+   * The length of the encoding of a SHA-256 fingerprint.
+   */
+  public static final int FINGERPRINT_ENCODED_LENGTH = 43;
+
+  private static final int FINGERPRINT_LENGTH = 32;
+
+  private static final char[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+  // The value of each ASCII character, or -1 for characters outside the alphabet
+  private static final byte[] VALUES = new byte[128];
+
+  static {
+    Arrays.fill(VALUES, (byte) -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      VALUES[ALPHABET[i]] = (byte) i;
+    }
+  }
+
+  private Base64Url() {
+  }
+
+  /**
+   * Get the length of the encoding of a number of bytes.
+   *
+   * @param length the number of bytes
+   * @return the number of characters
+   */
+  public static int encodedLength(int length) {
+    return (length / 3) * 4 + ((length % 3) * 4 + 2) / 3;
+  }
+
+  /**
+   * Get the number of bytes encoded by a number of characters.
+   *
+   * @param length the number of characters
+   * @return the number of bytes
+   * @throws IllegalArgumentException if no encoding has that length
+   */
+  public static int decodedLength(int length) {
+    if (length % 4 == 1) {
+      throw new IllegalArgumentException("Invalid base64url length " + length + ".");
+    }
+    return (length / 4) * 3 + ((length % 4) * 3) / 4;
+  }
+
+  /**
+   * Encode bytes as a string.
+   *
+   * @param bytes the bytes to encode
+   * @return the encoding
+   */
+  public static String encode(byte[] bytes) {
+    char[] encoded = new char[encodedLength(bytes.length)];
+    encode(bytes, 0, bytes.length, encoded, 0);
+    return new String(encoded);
+  }
+
+  /**
+   * Encode bytes and append the encoding to a {@link StringBuilder}.
+   *
+   * @param bytes the bytes to encode
+   * @param out the builder to append to
+   * @return the builder
+   */
+  public static StringBuilder encode(byte[] bytes, StringBuilder out) {
+    int start = out.length();
+    out.setLength(start + encodedLength(bytes.length));
+    int length = bytes.length;
+    int i = 0;
+    int j = start;
+    for (int full = length - length % 3; i < full; i += 3) {
+      int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+      out.setCharAt(j++, ALPHABET[bits >>> 18]);
+      out.setCharAt(j++, ALPHABET[(bits >>> 12) & 0x3f]);
+      out.setCharAt(j++, ALPHABET[(bits >>> 6) & 0x3f]);
+      out.setCharAt(j++, ALPHABET[bits & 0x3f]);
+    }
+    if (i < length) {
+      int bits = (bytes[i] & 0xff) << 16 | (i + 1 < length ? (bytes[i + 1] & 0xff) << 8 : 0);
+      out.setCharAt(j++, ALPHABET[bits >>> 18]);
+      out.setCharAt(j++, ALPHABET[(bits >>> 12) & 0x3f]);
+      if (i + 1 < length) {
+        out.setCharAt(j, ALPHABET[(bits >>> 6) & 0x3f]);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Encode a range of bytes into a character array.
+   *
+   * @param src the array holding the bytes to encode
+   * @param offset the offset of the bytes in the array
+   * @param length the number of bytes to encode
+   * @param dst the array to write the encoding to, which must have room for
+   *        {@link #encodedLength(int)} characters
+   * @param dstOffset the offset to write the encoding at
+   * @return the number of characters written
+   */
+  public static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+    int i = offset;
+    int j = dstOffset;
+    int end = offset + length;
+    for (int full = end - length % 3; i < full; i += 3) {
+      int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+      dst[j++] = ALPHABET[bits >>> 18];
+      dst[j++] = ALPHABET[(bits >>> 12) & 0x3f];
+      dst[j++] = ALPHABET[(bits >>> 6) & 0x3f];
+      dst[j++] = ALPHABET[bits & 0x3f];
+    }
+    if (i < end) {
+      int bits = (src[i] & 0xff) << 16 | (i + 1 < end ? (src[i + 1] & 0xff) << 8 : 0);
+      dst[j++] = ALPHABET[bits >>> 18];
+      dst[j++] = ALPHABET[(bits >>> 12) & 0x3f];
+      if (i + 1 < end) {
+        dst[j++] = ALPHABET[(bits >>> 6) & 0x3f];
+      }
+    }
+    return j - dstOffset;
+  }
+
+  /**
+   * Decode a string.
+   *
+   * @param encoded the encoding
+   * @return the decoded bytes
+   * @throws IllegalArgumentException if the string is not a canonical base64url encoding
+   */
+  public static byte[] decode(CharSequence encoded) {
+    return decode(encoded, 0, encoded.length());
+  }
+
+  /**
+   * Decode a range of a character sequence, such as a {@link String} or a
+   * {@link java.nio.CharBuffer} wrapping an array.
+   *
+   * @param src the sequence holding the encoding
+   * @param start the index of the first character of the encoding
+   * @param end the index after the last character of the encoding
+   * @return the decoded bytes
+   * @throws IllegalArgumentException if the range is not a canonical base64url encoding
+   */
+  public static byte[] decode(CharSequence src, int start, int end) {
+    if (end - start == FINGERPRINT_ENCODED_LENGTH) {
+      return decodeFingerprint(src, start);
+    }
+    byte[] decoded = new byte[decodedLength(end - start)];
+    decode(src, start, end, decoded, 0);
+    return decoded;
+  }
+
+  /**
+   * Decode a range of a character sequence into a byte array.
+   *
+   * @param src the sequence holding the encoding
+   * @param start the index of the first character of the encoding
+   * @param end the index after the last character of the encoding
+   * @param dst the array to write the bytes to, which must have room for
+   *        {@link #decodedLength(int)} bytes
+   * @param dstOffset the offset to write the bytes at
+   * @return the number of bytes written
+   * @throws IllegalArgumentException if the range is not a canonical base64url encoding
+   */
+  public static int decode(CharSequence src, int start, int end, byte[] dst, int dstOffset) {
+    int length = decodedLength(end - start);
+    int i = start;
+    int j = dstOffset;
+    for (int full = end - (end - start) % 4; i < full; i += 4) {
+      int bits = value(src, i) << 18 | value(src, i + 1) << 12 | value(src, i + 2) << 6
+          | value(src, i + 3);
+      dst[j++] = (byte) (bits >>> 16);
+      dst[j++] = (byte) (bits >>> 8);
+      dst[j++] = (byte) bits;
+    }
+    decodeTail(src, i, end, dst, j);
+    return length;
+  }
+
+  /**
+   * Decode the 43 character encoding of a SHA-256 fingerprint.
+   *
+   * @param src the sequence holding the encoding
+   * @param start the index of the first character of the encoding
+   * @return the 32 byte fingerprint
+   * @throws IllegalArgumentException if the range is not a canonical base64url encoding
+   */
+  public static byte[] decodeFingerprint(CharSequence src, int start) {
+    if (src.length() - start < FINGERPRINT_ENCODED_LENGTH) {
+      throw new IllegalArgumentException("Truncated fingerprint.");
+    }
+    byte[] fingerprint = new byte[FINGERPRINT_LENGTH];
+    int i = start;
+    // 10 full groups of 4 characters, then 3 characters for the last 2 bytes
+    for (int j = 0; j < 30; j += 3, i += 4) {
+      int bits = value(src, i) << 18 | value(src, i + 1) << 12 | value(src, i + 2) << 6
+          | value(src, i + 3);
+      fingerprint[j] = (byte) (bits >>> 16);
+      fingerprint[j + 1] = (byte) (bits >>> 8);
+      fingerprint[j + 2] = (byte) bits;
+    }
+    decodeTail(src, i, i + 3, fingerprint, 30);
+    return fingerprint;
+  }
+
+  /**
+   * Decode the 2 or 3 characters after the last full group, whose unused bits must be zero.
+   */
+  private static void decodeTail(CharSequence src, int i, int end, byte[] dst, int j) {
+    int remaining = end - i;
+    if (remaining == 0) {
+      return;
+    }
+    int bits = value(src, i) << 18 | value(src, i + 1) << 12
+        | (remaining == 3 ? value(src, i + 2) << 6 : 0);
+    if ((bits & (remaining == 3 ? 0xff : 0xffff)) != 0) {
+      throw new IllegalArgumentException("Non-canonical base64url encoding at index "
+          + (end - 1) + ".");
+    }
+    dst[j] = (byte) (bits >>> 16);
+    if (remaining == 3) {
+      dst[j + 1] = (byte) (bits >>> 8);
+    }
+  }
+
+  private static int value(CharSequence src, int index) {
+    char c = src.charAt(index);
+    int value = c < 128 ? VALUES[c] : -1;
+    if (value < 0) {
+      throw new IllegalArgumentException("Invalid base64url character '" + c + "' at index "
+          + index + ".");
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,569 @@
+package org.interledger.cryptoconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import org.interledger.cryptoconditions.crypto.Digests;
+
+/**
+ * A message to verify a fulfillment against, made up of any number of prefixes followed by the
+ * original message.
+ *
+ * PREFIX-SHA-256 fulfillments verify their subfulfillment against the prefix followed by the
+ * message they were given. Rather than copying both into a new array at every level of nesting a
+ * {@link CompositeMessage} only keeps references to each segment, which are fed one after the other
+ * into a {@link MessageDigest} or {@link Signature} by the fulfillments that consume the message.
+ *
+ * The original message may be a byte array, a {@link ByteBuffer} (such as a memory-mapped region
+ * of a file), or a stream or channel that can only be read once. A streamed message is never held
+ * in memory: signatures verified against it are initialized and given their prefixes as the
+ * fulfillment tree is walked, and then the stream is read once, in chunks, into all of them when
+ * {@link #complete()} is called. Fulfillments run their verification through
+ * {@link #verify(BooleanSupplier)}, which calls {@link #complete()} when the outermost verification
+ * returns, so {@link Fulfillment#verify(Condition, CompositeMessage)} never returns before the
+ * signatures over a streamed message have been checked.
+ *
+ * The segments are not copied so they must not be modified while a verification is in progress.
+ *
+ */
+public final class CompositeMessage {
+
+  private static final byte[][] NO_PREFIXES = new byte[0][];
+  private static final int CHUNK_SIZE = 8192;
+
+  private final byte[][] prefixes;
+  private final long prefixesLength;
+  private final byte[] message;
+  private final ByteBuffer buffer;
+  private final Stream stream;
+
+  // Memoized so that every leaf verifying this exact message shares one pass over it
+  private List<CompositeMessage> prefixed;
+  private volatile byte[] sha256;
+  private PendingDigest pendingSha256;
+
+  private CompositeMessage(byte[][] prefixes, long prefixesLength, byte[] message,
+      ByteBuffer buffer, Stream stream) {
+    this.prefixes = prefixes;
+    this.prefixesLength = prefixesLength;
+    this.message = message;
+    this.buffer = buffer;
+    this.stream = stream;
+  }
+
+  /**
+   * Create a composite message with no prefixes.
+   *
+   * @param message the original message
+   * @return a composite message over the original message
+   */
+  public static CompositeMessage of(byte[] message) {
+    if (message == null) {
+      throw new IllegalArgumentException("Message must not be null.");
+    }
+    return new CompositeMessage(NO_PREFIXES, 0, message, null, null);
+  }
+
+  /**
+   * Create a composite message over the remaining bytes of a buffer, such as a memory-mapped
+   * region of a file.
+   *
+   * The position of the given buffer is not changed.
+   *
+   * @param message the original message
+   * @return a composite message over the original message
+   */
+  public static CompositeMessage of(ByteBuffer message) {
+    if (message == null) {
+      throw new IllegalArgumentException("Message must not be null.");
+    }
+    return new CompositeMessage(NO_PREFIXES, 0, null, message.slice(), null);
+  }
+
+  /**
+   * Create a composite message over the contents of a channel, which will be read once when
+   * {@link #complete()} is called.
+   *
+   * @param message the original message
+   * @return a composite message over the original message
+   */
+  public static CompositeMessage of(ReadableByteChannel message) {
+    if (message == null) {
+      throw new IllegalArgumentException("Message must not be null.");
+    }
+    return new CompositeMessage(NO_PREFIXES, 0, null, null, new Stream(message));
+  }
+
+  /**
+   * Create a composite message over the contents of a stream, which will be read once when
+   * {@link #complete()} is called.
+   *
+   * @param message the original message
+   * @return a composite message over the original message
+   */
+  public static CompositeMessage of(InputStream message) {
+    if (message == null) {
+      throw new IllegalArgumentException("Message must not be null.");
+    }
+    return of(Channels.newChannel(message));
+  }
+
+  /**
+   * Get a message consisting of the given prefix followed by this message.
+   *
+   * Asking for the same prefix more than once, e.g. from several subfulfillments of a threshold,
+   * returns the same message so that its digest is only computed once.
+   *
+   * @param prefix the prefix to prepend
+   * @return the prefixed message
+   */
+  public CompositeMessage withPrefix(byte[] prefix) {
+    synchronized (this) {
+      if (prefixed == null) {
+        prefixed = new ArrayList<>(1);
+      }
+      for (CompositeMessage child : prefixed) {
+        if (Arrays.equals(child.prefixes[0], prefix)) {
+          return child;
+        }
+      }
+
+      byte[][] segments = new byte[prefixes.length + 1][];
+      segments[0] = prefix;
+      System.arraycopy(prefixes, 0, segments, 1, prefixes.length);
+      CompositeMessage child = new CompositeMessage(segments, prefixesLength + prefix.length,
+          message, buffer, stream);
+      prefixed.add(child);
+      return child;
+    }
+  }
+
+  /**
+   * Get the total length of the message, including all prefixes.
+   *
+   * @return the length of the message in bytes or -1 if the message is streamed.
+   */
+  public long length() {
+    if (stream != null) {
+      return -1;
+    }
+    return prefixesLength + (message != null ? message.length : buffer.remaining());
+  }
+
+  /**
+   * Check that the total length of the message, including all prefixes, does not exceed the
+   * given maximum.
+   *
+   * The length of a streamed message is only known once it has been read, so the check is done by
+   * {@link #complete()}.
+   *
+   * @param maxLength the maximum length of the message
+   * @throws IllegalArgumentException if the message is longer than the maximum
+   */
+  public void checkLength(long maxLength) {
+    if (stream != null) {
+      stream.limit(maxLength - prefixesLength, maxLength);
+    } else if (length() > maxLength) {
+      throw new IllegalArgumentException(
+          "Message length exceeds maximum message length of " + maxLength + ".");
+    }
+  }
+
+  /**
+   * Feed the entire message into a digest.
+   *
+   * @param digest the digest to update
+   * @throws IllegalStateException if the message is streamed
+   */
+  public void update(MessageDigest digest) {
+    checkNotStreamed();
+    for (byte[] prefix : prefixes) {
+      digest.update(prefix);
+    }
+    if (message != null) {
+      digest.update(message);
+    } else {
+      digest.update(buffer.duplicate());
+    }
+  }
+
+  /**
+   * Feed the entire message into a signature that has been initialized for verification.
+   *
+   * @param signature the signature to update
+   * @throws SignatureException if the signature is not initialized
+   * @throws IllegalStateException if the message is streamed
+   */
+  public void update(Signature signature) throws SignatureException {
+    checkNotStreamed();
+    for (byte[] prefix : prefixes) {
+      signature.update(prefix);
+    }
+    if (message != null) {
+      signature.update(message);
+    } else {
+      signature.update(buffer.duplicate());
+    }
+  }
+
+  /**
+   * Verify a signature over this message.
+   *
+   * If the message is streamed the signature is only given the prefixes, the result is then
+   * deferred until the stream has been read by {@link #complete()} and true is returned.
+   *
+   * @param verifier a signature that has been initialized for verification
+   * @param signature the signature bytes to verify
+   * @return the result of verifying the signature, or true if it has been deferred
+   * @throws SignatureException if the signature is not initialized
+   */
+  public boolean verify(Signature verifier, byte[] signature) throws SignatureException {
+    if (stream == null) {
+      update(verifier);
+      return verifier.verify(signature);
+    }
+
+    for (byte[] prefix : prefixes) {
+      verifier.update(prefix);
+    }
+    stream.addPending(new PendingSignature(verifier, signature));
+    return true;
+  }
+
+  /**
+   * Apply a check to the SHA-256 digest of the message, such as an RSA-PSS verification.
+   *
+   * The digest is computed once and shared by every check against this message, so e.g. the RSA
+   * subfulfillments of a threshold only hash the message once between them. If the message is
+   * streamed the checks are deferred until the stream has been read by {@link #complete()}.
+   *
+   * @param check the check to apply to the digest, which it must not modify
+   * @return the result of the check, or true if it has been deferred
+   */
+  public boolean verifySha256(Predicate<byte[]> check) {
+    if (stream == null) {
+      byte[] digest = sha256;
+      if (digest == null) {
+        MessageDigest sha256Digest = Digests.sha256();
+        update(sha256Digest);
+        digest = sha256Digest.digest();
+        sha256 = digest;
+      }
+      return check.test(digest);
+    }
+
+    synchronized (this) {
+      if (pendingSha256 == null) {
+        MessageDigest sha256Digest = Digests.newSha256();
+        for (byte[] prefix : prefixes) {
+          sha256Digest.update(prefix);
+        }
+        pendingSha256 = new PendingDigest(sha256Digest);
+        stream.addPending(pendingSha256);
+      }
+      pendingSha256.add(check);
+    }
+    return true;
+  }
+
+  /**
+   * Verify a signature scheme that signs a digest of the message, such as Ed25519 which signs
+   * SHA-512(R || A || M). The digest is given the message and then its result is passed to the
+   * check.
+   *
+   * If the message is streamed the digest is copied, given the prefixes, and the check deferred
+   * until the stream has been read by {@link #complete()}, so a per-thread digest may be passed in.
+   *
+   * @param digest a digest that has already been given anything that precedes the message
+   * @param check the check to apply to the final digest
+   * @return the result of the check, or true if it has been deferred
+   */
+  public boolean verify(MessageDigest digest, Predicate<byte[]> check) {
+    if (stream == null) {
+      update(digest);
+      return check.test(digest.digest());
+    }
+
+    MessageDigest copy;
+    try {
+      copy = (MessageDigest) digest.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Digest can't be copied for a streamed message.", e);
+    }
+    for (byte[] prefix : prefixes) {
+      copy.update(prefix);
+    }
+    PendingDigest pending = new PendingDigest(copy);
+    pending.add(check);
+    stream.addPending(pending);
+    return true;
+  }
+
+  /**
+   * Run the verification of a fulfillment against this message, as the implementations of
+   * {@link Fulfillment#verify(Condition, CompositeMessage)} do.
+   *
+   * Verifications against a streamed message nest, as each fulfillment verifies its
+   * subfulfillments against the same message or a prefixed one. When the outermost of them
+   * returns true the stream is read by {@link #complete()}, and the result includes the
+   * signatures that were deferred until then. If it returns false the stream is not read.
+   *
+   * @param verification the verification to run
+   * @return the result of the verification, including any deferred signatures
+   * @throws UncheckedIOException if the stream can't be read
+   */
+  public boolean verify(BooleanSupplier verification) {
+    if (stream == null) {
+      return verification.getAsBoolean();
+    }
+
+    boolean valid;
+    boolean outermost;
+    stream.enter();
+    try {
+      valid = verification.getAsBoolean();
+    } finally {
+      outermost = stream.exit();
+    }
+    if (!outermost) {
+      return valid;
+    }
+    if (!valid) {
+      stream.skip();
+      return false;
+    }
+
+    try {
+      return complete();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Complete the verification of a streamed message by reading the stream, in fixed size chunks,
+   * into every signature that was deferred while verifying against it.
+   *
+   * Does nothing for a message that is not streamed. Calling it again returns the same result
+   * without reading the stream again.
+   *
+   * @return true if all deferred signatures are valid
+   * @throws IOException if the stream can't be read
+   * @throws IllegalArgumentException if the message exceeds the maximum length of a prefix
+   */
+  public boolean complete() throws IOException {
+    if (stream == null) {
+      return true;
+    }
+    return stream.complete();
+  }
+
+  /**
+   * Copy the entire message into a single array.
+   *
+   * @return the message bytes
+   * @throws IllegalStateException if the message is streamed
+   */
+  public byte[] toByteArray() {
+    checkNotStreamed();
+    long length = length();
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Message is too large to copy into an array.");
+    }
+    byte[] bytes = new byte[(int) length];
+    int offset = 0;
+    for (byte[] prefix : prefixes) {
+      System.arraycopy(prefix, 0, bytes, offset, prefix.length);
+      offset += prefix.length;
+    }
+    if (message != null) {
+      System.arraycopy(message, 0, bytes, offset, message.length);
+    } else {
+      buffer.duplicate().get(bytes, offset, bytes.length - offset);
+    }
+    return bytes;
+  }
+
+  private void checkNotStreamed() {
+    if (stream != null) {
+      throw new IllegalStateException("A streamed message can only be consumed once.");
+    }
+  }
+
+  /**
+   * A verification waiting for the contents of a streamed message.
+   */
+  private interface Pending {
+
+    void update(byte[] bytes, int offset, int length) throws SignatureException;
+
+    boolean verify() throws SignatureException;
+
+  }
+
+  private static final class PendingSignature implements Pending {
+
+    private final Signature verifier;
+    private final byte[] signature;
+
+    private PendingSignature(Signature verifier, byte[] signature) {
+      this.verifier = verifier;
+      this.signature = signature;
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) throws SignatureException {
+      verifier.update(bytes, offset, length);
+    }
+
+    @Override
+    public boolean verify() throws SignatureException {
+      return verifier.verify(signature);
+    }
+
+  }
+
+  private static final class PendingDigest implements Pending {
+
+    private final MessageDigest digest;
+    private final List<Predicate<byte[]>> checks = new ArrayList<>(1);
+
+    private PendingDigest(MessageDigest digest) {
+      this.digest = digest;
+    }
+
+    private void add(Predicate<byte[]> check) {
+      checks.add(check);
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+      digest.update(bytes, offset, length);
+    }
+
+    @Override
+    public boolean verify() {
+      byte[] result = digest.digest();
+      boolean valid = true;
+      for (Predicate<byte[]> check : checks) {
+        valid &= check.test(result);
+      }
+      return valid;
+    }
+
+  }
+
+  /**
+   * The state shared by a streamed message and all of its prefixed messages.
+   */
+  private static final class Stream {
+
+    private final ReadableByteChannel channel;
+    private final List<Pending> pending = new ArrayList<>();
+    private long limit = Long.MAX_VALUE;
+    private long limitMaxLength;
+    private int depth;
+    private boolean completed;
+    private boolean valid;
+
+    private Stream(ReadableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    private void limit(long limit, long maxLength) {
+      if (limit < this.limit) {
+        this.limit = limit;
+        this.limitMaxLength = maxLength;
+      }
+    }
+
+    private synchronized void enter() {
+      depth++;
+    }
+
+    /**
+     * Leave a verification, returning true if it was the outermost one.
+     */
+    private synchronized boolean exit() {
+      return --depth == 0;
+    }
+
+    /**
+     * Complete without reading the stream, as the verification has already failed.
+     */
+    private void skip() {
+      if (!completed) {
+        completed = true;
+        valid = false;
+      }
+    }
+
+    private void addPending(Pending verification) {
+      if (completed) {
+        throw new IllegalStateException("A streamed message can only be consumed once.");
+      }
+      pending.add(verification);
+    }
+
+    private boolean complete() throws IOException {
+      if (completed) {
+        return valid;
+      }
+      completed = true;
+
+      // Even an empty stream exceeds a maximum length shorter than the prefixes
+      if (limit < 0) {
+        throw new IllegalArgumentException(
+            "Message length exceeds maximum message length of " + limitMaxLength + ".");
+      }
+
+      ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+      long read = 0;
+      try {
+        int n;
+        while ((n = channel.read(chunk)) >= 0) {
+          read += n;
+          if (read > limit) {
+            throw new IllegalArgumentException(
+                "Message length exceeds maximum message length of " + limitMaxLength + ".");
+          }
+          if (!chunk.hasRemaining()) {
+            updateAll(chunk);
+          }
+        }
+        updateAll(chunk);
+
+        boolean valid = true;
+        for (Pending verification : pending) {
+          valid &= verification.verify();
+        }
+        this.valid = valid;
+        return valid;
+
+      } catch (SignatureException e) {
+        return false;
+      }
+    }
+
+    private void updateAll(ByteBuffer chunk) throws SignatureException {
+      for (Pending verification : pending) {
+        verification.update(chunk.array(), 0, chunk.position());
+      }
+      chunk.clear();
+    }
+
+  }
+
+}
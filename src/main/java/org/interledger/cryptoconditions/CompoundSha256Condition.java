@@ -4,7 +4,7 @@ import java.util.EnumSet;
 
 public abstract class CompoundSha256Condition extends Sha256Condition implements CompoundCondition {
 
-  private EnumSet<ConditionType> subtypes;
+  private final EnumSet<ConditionType> subtypes;
   
   protected CompoundSha256Condition(long cost, EnumSet<ConditionType> subtypes) {
     super(cost);
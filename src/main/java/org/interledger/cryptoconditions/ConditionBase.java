@@ -6,9 +6,9 @@ import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.util.Arrays;
-import java.util.Base64;
 
 import org.interledger.cryptoconditions.der.DEROutputStream;
+import org.interledger.cryptoconditions.der.DecodedEncoding;
 import org.interledger.cryptoconditions.der.DERTags;
 
 /**
@@ -24,9 +24,15 @@ import org.interledger.cryptoconditions.der.DERTags;
  */
 public abstract class ConditionBase implements Condition {
 
-  private long cost;
-  private URI uri;
-  private byte[] encoded;
+  private final long cost;
+
+  // Derived values are computed on first use and published through volatile fields. Two threads
+  // may both compute one, which is harmless as the results are equal.
+  private volatile URI uri;
+  private volatile byte[] encoded;
+
+  // Zero until computed, like String.hashCode(), an int needs no volatile to be published safely
+  private int hashCode;
   
   /**
    * Default internal constructor for all conditions.
@@ -55,6 +61,7 @@ public abstract class ConditionBase implements Condition {
   @Override
   public byte[] getEncoded() {
     
+    byte[] encoded = this.encoded;
     if(encoded == null) {
       try {
         // Build Fingerprint and Cost SEQUENCE
@@ -76,7 +83,8 @@ public abstract class ConditionBase implements Condition {
         out.writeEncoded(
             DERTags.CONSTRUCTED.getTag() + DERTags.TAGGED.getTag() + getType().getTypeCode(), buffer);
         out.close();
-        return baos.toByteArray();
+        encoded = baos.toByteArray();
+        this.encoded = encoded;
       } catch (IOException e) {
         throw new UncheckedIOException("DER Encoding Error.", e);
       }
@@ -88,16 +96,32 @@ public abstract class ConditionBase implements Condition {
     return returnVal;
   }
 
+  /**
+   * Keep an encoding found by a decoder as the encoding of this condition, so that it is not
+   * encoded again. Has no effect if the encoding is already known.
+   *
+   * Decoders only hand over the canonical encoding the condition was decoded from, that is exactly
+   * the bytes {@link #getEncoded()} would return, and do so before the condition is shared.
+   *
+   * @param encoding the encoding the condition was decoded from
+   */
+  public void retainEncoding(DecodedEncoding encoding) {
+    if (encoded == null) {
+      encoded = encoding.toByteArray();
+    }
+  }
+
   @Override
   public URI getUri() {
     //FIXME: these strings should be constants somewhere, maybe use the ones in 
     //CryptoConditionUri (or move those to here?)
     
+    URI uri = this.uri;
     if(uri == null) {
       
       StringBuilder sb = new StringBuilder();
-      sb.append("ni:///").append("sha-256;")
-          .append(Base64.getUrlEncoder().withoutPadding().encodeToString(getFingerprint()))
+      sb.append("ni:///").append("sha-256;");
+      Base64Url.encode(getFingerprint(), sb)
           .append("?").append("fpt=").append(getType().toString().toLowerCase()).append("&cost=")
           .append(getCost());
 
@@ -110,29 +134,52 @@ public abstract class ConditionBase implements Condition {
       }
 
       uri = URI.create(sb.toString());
+      this.uri = uri;
     }
     
     return uri;
     
   }
 
+  /**
+   * Get the fingerprint of this condition without copying it.
+   * 
+   * Sub-classes that hold their fingerprint should override this to return the internal array,
+   * which callers must not modify.
+   * 
+   * @return the fingerprint
+   */
+  byte[] getFingerprintInternal() {
+    return getFingerprint();
+  }
+
   /**
    * Overrides the default {@link java.lang.Object#hashCode()} to
    * generate the hashCode from the type and fingerprint.
+   * 
+   * The fingerprint is a digest so its leading bytes are already uniformly distributed. The hash
+   * is computed from them once and cached.
    */
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    int typeCode = getType().getTypeCode();
-    result = prime * result + (int) (typeCode ^ (typeCode >>> 32));
-    result = prime * result + Arrays.hashCode(getEncoded());
+    int result = hashCode;
+    if (result == 0) {
+      byte[] fingerprint = getFingerprintInternal();
+      int leading = 0;
+      for (int i = 0; i < Math.min(4, fingerprint.length); i++) {
+        leading = (leading << 8) | (fingerprint[i] & 0xff);
+      }
+      result = 31 * getType().getTypeCode() + leading;
+      hashCode = result;
+    }
     return result;
   }
 
   /**
    * Overrides the default {@link java.lang.Object#equals(Object)} to
-   * compare the type and fingerprint.
+   * compare the type, cost and fingerprint.
+   * 
+   * Fingerprints of other {@link ConditionBase} instances are compared without being copied.
    */
   @Override
   public boolean equals(Object obj) {
@@ -148,7 +195,13 @@ public abstract class ConditionBase implements Condition {
       return false;
     if (getCost() != other.getCost())
       return false;
-    if (!Arrays.equals(getFingerprint(), other.getFingerprint()))
+    if (other instanceof ConditionBase) {
+      ConditionBase base = (ConditionBase) other;
+      if (hashCode != 0 && base.hashCode != 0 && hashCode != base.hashCode)
+        return false;
+      return Arrays.equals(getFingerprintInternal(), base.getFingerprintInternal());
+    }
+    if (!Arrays.equals(getFingerprintInternal(), other.getFingerprint()))
       return false;
     
     return true;
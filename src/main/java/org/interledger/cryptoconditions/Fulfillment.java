@@ -1,13 +1,116 @@
 package org.interledger.cryptoconditions;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
 public interface Fulfillment {
 
   ConditionType getType();
 
   byte[] getEncoded();
 
+  /**
+   * Write the DER encoding of this fulfillment to a stream.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the stream can't be written
+   */
+  default void writeTo(OutputStream out) throws IOException {
+    out.write(getEncoded());
+  }
+
   Condition getCondition();
 
-  boolean verify(Condition condition, byte[] message);
+  /**
+   * Verify this fulfillment against a condition and message.
+   *
+   * Equivalent to {@code verify(condition, CompositeMessage.of(message))}. Implementations must
+   * override this method or {@link #verify(Condition, CompositeMessage)}, as each of them is
+   * implemented in terms of the other by default.
+   *
+   * @param condition the condition to verify against
+   * @param message the message to verify against
+   * @return true if this fulfillment fulfills the condition for the message
+   */
+  default boolean verify(Condition condition, byte[] message) {
+    return verify(condition, CompositeMessage.of(message));
+  }
+
+  /**
+   * Verify this fulfillment against a condition and a message that may be made up of several
+   * segments.
+   *
+   * Implementations run their verification through
+   * {@link CompositeMessage#verify(java.util.function.BooleanSupplier)}, so that the signatures over
+   * a streamed message have been checked by the time the outermost call returns.
+   *
+   * By default the segments are copied into one array which is passed to
+   * {@link #verify(Condition, byte[])}, so implementations written before composite messages
+   * existed keep working for messages that are not streamed.
+   *
+   * @param condition the condition to verify against
+   * @param message the message to verify against
+   * @return true if this fulfillment fulfills the condition for the message
+   * @throws IllegalStateException if the message is streamed and this method is not overridden
+   */
+  default boolean verify(Condition condition, CompositeMessage message) {
+    return verify(condition, message.toByteArray());
+  }
+
+  /**
+   * Verify this fulfillment against a condition and the remaining bytes of a buffer, such as a
+   * memory-mapped region of a file.
+   *
+   * @param condition the condition to verify against
+   * @param message the message to verify against
+   * @return true if this fulfillment fulfills the condition for the message
+   */
+  default boolean verify(Condition condition, ByteBuffer message) {
+    return verify(condition, CompositeMessage.of(message));
+  }
+
+  /**
+   * Verify this fulfillment against a condition and a message read from a stream.
+   *
+   * The stream is read once, in fixed size chunks, so the memory used does not depend on the size
+   * of the message. The stream is not read at all if the fulfillment does not match the condition.
+   *
+   * @param condition the condition to verify against
+   * @param message the message to verify against
+   * @return true if this fulfillment fulfills the condition for the message
+   * @throws IOException if the stream can't be read
+   */
+  default boolean verify(Condition condition, InputStream message) throws IOException {
+    CompositeMessage compositeMessage = CompositeMessage.of(message);
+    try {
+      return verify(condition, compositeMessage) && compositeMessage.complete();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Verify this fulfillment against a condition and a message read from a channel.
+   *
+   * The channel is read once, in fixed size chunks, so the memory used does not depend on the size
+   * of the message. The channel is not read at all if the fulfillment does not match the condition.
+   *
+   * @param condition the condition to verify against
+   * @param message the message to verify against
+   * @return true if this fulfillment fulfills the condition for the message
+   * @throws IOException if the channel can't be read
+   */
+  default boolean verify(Condition condition, ReadableByteChannel message) throws IOException {
+    CompositeMessage compositeMessage = CompositeMessage.of(message);
+    try {
+      return verify(condition, compositeMessage) && compositeMessage.complete();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
 
 }
@@ -0,0 +1,72 @@
+package org.interledger.cryptoconditions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.interledger.cryptoconditions.der.DecodedEncoding;
+
+/**
+ * The FulfillmentBase class provides shared logic for fulfillments.
+ *
+ * It provides concrete implementations of {@link #getEncoded()} and
+ * {@link #writeTo(OutputStream)}, which encode the fulfillment once and keep the encoding. A
+ * fulfillment read by {@link org.interledger.cryptoconditions.der.CryptoConditionReader} keeps a
+ * copy of the bytes it was read from instead, when they are the canonical encoding, so a
+ * fulfillment that is read and forwarded is never encoded at all.
+ */
+public abstract class FulfillmentBase implements Fulfillment {
+
+  // Computed on first use, or retained by a decoder, and published through a volatile field
+  private volatile byte[] encoded;
+
+  /**
+   * Sub-classes must provide the DER encoding of the fulfillment.
+   *
+   * @return the encoded fulfillment
+   */
+  protected abstract byte[] encode();
+
+  /**
+   * Encodes the fulfillment and caches the encoding on first call, unless it was retained by a
+   * decoder.
+   *
+   * Returns a copy of the encoding.
+   */
+  @Override
+  public byte[] getEncoded() {
+    return getEncoding().clone();
+  }
+
+  /**
+   * Writes the encoding of this fulfillment without copying it.
+   */
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(getEncoding());
+  }
+
+  /**
+   * Keep an encoding found by a decoder as the encoding of this fulfillment, so that it is not
+   * encoded again. Has no effect if the encoding is already known.
+   *
+   * Decoders only hand over the canonical encoding the fulfillment was decoded from, that is
+   * exactly the bytes {@link #encode()} would return, and do so before the fulfillment is shared.
+   *
+   * @param encoding the encoding the fulfillment was decoded from
+   */
+  public void retainEncoding(DecodedEncoding encoding) {
+    if (encoded == null) {
+      encoded = encoding.toByteArray();
+    }
+  }
+
+  private byte[] getEncoding() {
+    byte[] encoded = this.encoded;
+    if (encoded == null) {
+      encoded = encode();
+      this.encoded = encoded;
+    }
+    return encoded;
+  }
+
+}
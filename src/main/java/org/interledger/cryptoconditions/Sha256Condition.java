@@ -1,20 +1,19 @@
 package org.interledger.cryptoconditions;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import org.interledger.cryptoconditions.crypto.Digests;
 
 /**
  * Abstract base class for the *-SHA-256 condition types.
  * 
  * Provides concrete implementation of generation of 
- * SHA256 fingerprint via a shared static digest.
+ * SHA256 fingerprint via a per-thread digest.
  *  
  * @author adrianhopebailie
  *
  */
 public abstract class Sha256Condition extends ConditionBase {
 
-  private byte[] fingerprint;
+  private volatile byte[] fingerprint;
 
   protected Sha256Condition(long cost) {
     super(cost);
@@ -22,11 +21,11 @@ public abstract class Sha256Condition extends ConditionBase {
 
   protected Sha256Condition(byte[] fingerprint, long cost) {
     super(cost);
-    this.fingerprint = fingerprint;
     
     if(fingerprint.length != 32) {
       throw new IllegalArgumentException("Fingerprint must be 32 bytes.");
     }
+    this.fingerprint = fingerprint.clone();
   }
 
   /**
@@ -44,9 +43,7 @@ public abstract class Sha256Condition extends ConditionBase {
    */
   @Override
   public byte[] getFingerprint() {
-    if (fingerprint == null) {
-      fingerprint = getDigest(getFingerprintContents());
-    }
+    byte[] fingerprint = getFingerprintInternal();
     
     byte[] returnVal = new byte[fingerprint.length];
     System.arraycopy(fingerprint, 0, returnVal, 0, fingerprint.length);
@@ -54,18 +51,52 @@ public abstract class Sha256Condition extends ConditionBase {
     return returnVal;
   }
 
-  private static MessageDigest _DIGEST;
+  @Override
+  byte[] getFingerprintInternal() {
+    byte[] fingerprint = this.fingerprint;
+    if (fingerprint == null) {
+      fingerprint = getDigest(getFingerprintContents());
+      this.fingerprint = fingerprint;
+    }
+    return fingerprint;
+  }
 
-  private static byte[] getDigest(byte[] input) {
-    if (_DIGEST == null) {
-      try {
-        _DIGEST = MessageDigest.getInstance("SHA-256");
-      } catch (NoSuchAlgorithmException e) {
-        throw new RuntimeException(e);
-      }
+  /**
+   * Compares the given SHA-256 digest with the fingerprint of this condition in constant time.
+   * 
+   * Unlike {@link #getFingerprint()} the internal fingerprint is not copied.
+   * 
+   * @param digest a 32 byte SHA-256 digest
+   * @return true if the digest is equal to the fingerprint of this condition
+   */
+  public boolean isFingerprint(byte[] digest) {
+    return digest.length == 32 && isFingerprint(digest, 0);
+  }
+
+  /**
+   * Compares the 32 byte SHA-256 digest at the given offset in a buffer with the fingerprint of
+   * this condition in constant time.
+   * 
+   * @param buffer a buffer holding the digest
+   * @param offset the offset of the digest in the buffer
+   * @return true if the digest is equal to the fingerprint of this condition
+   * @throws IndexOutOfBoundsException if the buffer does not hold 32 bytes at the offset
+   */
+  public boolean isFingerprint(byte[] buffer, int offset) {
+    if (offset < 0 || buffer.length - offset < 32) {
+      throw new IndexOutOfBoundsException("No 32 byte digest at offset " + offset + ".");
     }
+    byte[] fingerprint = getFingerprintInternal();
 
-    return _DIGEST.digest(input);
+    int diff = 0;
+    for (int i = 0; i < fingerprint.length; i++) {
+      diff |= fingerprint[i] ^ buffer[offset + i];
+    }
+    return diff == 0;
+  }
+
+  private static byte[] getDigest(byte[] input) {
+    return Digests.sha256().digest(input);
   }
 
 }
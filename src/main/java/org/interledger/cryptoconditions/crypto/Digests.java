@@ -0,0 +1,63 @@
+package org.interledger.cryptoconditions.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Provides per-thread {@link MessageDigest} instances so that hot paths can reuse a digest without
+ * sharing it between threads.
+ *
+ * The returned digests are always reset and must not be retained or passed to another thread.
+ */
+public final class Digests {
+
+  private static final ThreadLocal<MessageDigest> SHA_256 =
+      ThreadLocal.withInitial(() -> newDigest("SHA-256"));
+
+  private static final ThreadLocal<MessageDigest> SHA_512 =
+      ThreadLocal.withInitial(() -> newDigest("SHA-512"));
+
+  private Digests() {
+  }
+
+  /**
+   * Get the SHA-256 digest of the current thread.
+   *
+   * @return a reset SHA-256 digest
+   */
+  public static MessageDigest sha256() {
+    MessageDigest digest = SHA_256.get();
+    digest.reset();
+    return digest;
+  }
+
+  /**
+   * Get the SHA-512 digest of the current thread.
+   *
+   * @return a reset SHA-512 digest
+   */
+  public static MessageDigest sha512() {
+    MessageDigest digest = SHA_512.get();
+    digest.reset();
+    return digest;
+  }
+
+  /**
+   * Create a new SHA-256 digest, for use where the digest must outlive the current call, such as
+   * when it is updated as a stream is read.
+   *
+   * @return a new SHA-256 digest
+   */
+  public static MessageDigest newSha256() {
+    return newDigest("SHA-256");
+  }
+
+  private static MessageDigest newDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+}
@@ -0,0 +1,277 @@
+package org.interledger.cryptoconditions.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
+import net.i2p.crypto.eddsa.spec.EdDSAParameterSpec;
+import net.i2p.crypto.eddsa.spec.EdDSAPublicKeySpec;
+
+/**
+ * A bounded, thread-safe cache of decoded Ed25519 public keys and their ED25519-SHA-256 condition
+ * fingerprints, keyed by the raw 32 byte public key.
+ *
+ * Decoding a public key requires a point decompression and fingerprinting it requires a DER
+ * encoding and a hash. As most traffic is usually signed by a small set of keys both are done once
+ * per key and shared by the reader, conditions and fulfillments through {@link #getDefault()}. The
+ * multiples of the key used by {@link Ed25519Verifier} are also kept once they are first needed.
+ *
+ * Lookups of cached keys take no lock. When the cache is full a key that has not been used
+ * recently is evicted to make room for a new one: a clock hand sweeps the cached keys in the order
+ * they were added, sparing and unmarking each key that was used since the hand last passed it, so
+ * that keys in steady use stay while keys seen once are evicted first. Adding keys is serialized,
+ * so the cache never holds more than its maximum size.
+ */
+public final class Ed25519PublicKeyCache {
+
+  /**
+   * The maximum number of keys held by the default cache.
+   */
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private static final int KEY_LENGTH = 32;
+
+  private static final EdDSAParameterSpec ED25519 =
+      EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.CURVE_ED25519_SHA512);
+
+  private static final Ed25519PublicKeyCache DEFAULT = new Ed25519PublicKeyCache(DEFAULT_MAX_SIZE);
+
+  private final ConcurrentHashMap<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  // The cached keys in the order of the clock, and its hand, guarded by the list
+  private final List<ByteBuffer> clock = new ArrayList<>();
+  private int hand;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Create a new cache.
+   *
+   * @param maxSize the maximum number of keys to hold.
+   */
+  public Ed25519PublicKeyCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Maximum size must be greater than 0.");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get the cache shared by the library.
+   *
+   * @return the default cache
+   */
+  public static Ed25519PublicKeyCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Get the entry for a raw public key, decoding the key if it is not in the cache.
+   *
+   * @param publicKey the raw 32 byte public key
+   * @return the cached entry
+   */
+  public Entry get(byte[] publicKey) {
+    if (publicKey.length != KEY_LENGTH) {
+      throw new IllegalArgumentException("Ed25519 public key must be 32 bytes.");
+    }
+
+    Entry entry = entries.get(ByteBuffer.wrap(publicKey));
+    if (entry != null) {
+      hits.increment();
+      entry.markUsed();
+      return entry;
+    }
+
+    misses.increment();
+    byte[] key = publicKey.clone();
+    return put(key, new EdDSAPublicKey(new EdDSAPublicKeySpec(key, ED25519)));
+  }
+
+  /**
+   * Get the entry for a decoded public key, adding the key if it is not in the cache.
+   *
+   * @param publicKey the public key
+   * @return the cached entry
+   */
+  public Entry get(EdDSAPublicKey publicKey) {
+    byte[] key = publicKey.getAbyte();
+
+    Entry entry = entries.get(ByteBuffer.wrap(key));
+    if (entry != null) {
+      hits.increment();
+      entry.markUsed();
+      return entry;
+    }
+
+    misses.increment();
+    return put(key.clone(), publicKey);
+  }
+
+  private Entry put(byte[] key, EdDSAPublicKey publicKey) {
+    // Fingerprint outside the lock, so that only the bookkeeping is serialized
+    Entry entry = new Entry(publicKey, fingerprint(key));
+    ByteBuffer wrapped = ByteBuffer.wrap(key);
+
+    synchronized (clock) {
+      Entry existing = entries.get(wrapped);
+      if (existing != null) {
+        return existing;
+      }
+
+      if (clock.size() < maxSize) {
+        clock.add(wrapped);
+      } else {
+        // Terminates within two turns, as every key passed over is unmarked
+        while (entries.get(clock.get(hand)).unmarkUsed()) {
+          hand = (hand + 1) % maxSize;
+        }
+        entries.remove(clock.get(hand));
+        clock.set(hand, wrapped);
+        hand = (hand + 1) % maxSize;
+      }
+      entries.put(wrapped, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Get the number of keys in the cache.
+   *
+   * @return the number of cached keys
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of lookups that found the key in the cache.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of lookups that had to add the key to the cache.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Get the proportion of lookups that found the key in the cache.
+   *
+   * @return the hit rate between 0 and 1, or 0 if there have been no lookups
+   */
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  /**
+   * Remove all keys from the cache and reset the statistics.
+   */
+  public void clear() {
+    synchronized (clock) {
+      entries.clear();
+      clock.clear();
+      hand = 0;
+    }
+    hits.reset();
+    misses.reset();
+  }
+
+  /**
+   * SHA-256 of the DER encoded fingerprint contents, SEQUENCE { [0] publicKey }.
+   */
+  private static byte[] fingerprint(byte[] key) {
+    byte[] contents = new byte[4 + KEY_LENGTH];
+    contents[0] = 0x30;
+    contents[1] = 2 + KEY_LENGTH;
+    contents[2] = (byte) 0x80;
+    contents[3] = KEY_LENGTH;
+    System.arraycopy(key, 0, contents, 4, KEY_LENGTH);
+    return Digests.sha256().digest(contents);
+  }
+
+  /**
+   * A decoded public key and its condition fingerprint.
+   */
+  public static final class Entry {
+
+    private final EdDSAPublicKey publicKey;
+    private final byte[] fingerprint;
+    private volatile Ed25519Verifier.PublicKey verifierKey;
+    private volatile boolean verifierKeyInvalid;
+
+    // Set when the entry is used and cleared by the clock hand passing it
+    private volatile boolean used;
+
+    private Entry(EdDSAPublicKey publicKey, byte[] fingerprint) {
+      this.publicKey = publicKey;
+      this.fingerprint = fingerprint;
+    }
+
+    private void markUsed() {
+      // Only written when it changes, so that hits on a hot key don't contend on the field
+      if (!used) {
+        used = true;
+      }
+    }
+
+    /**
+     * Clear the used mark, returning whether it was set.
+     */
+    private boolean unmarkUsed() {
+      if (used) {
+        used = false;
+        return true;
+      }
+      return false;
+    }
+
+    public EdDSAPublicKey getPublicKey() {
+      return publicKey;
+    }
+
+    /**
+     * Get the key decoded for {@link Ed25519Verifier}, which is decoded on first use.
+     *
+     * @return the decoded key, or null if the key is not a valid point encoding
+     */
+    public Ed25519Verifier.PublicKey getVerifierKey() {
+      Ed25519Verifier.PublicKey key = verifierKey;
+      if (key == null && !verifierKeyInvalid) {
+        // Concurrent first uses may both decode the key, which is harmless
+        key = Ed25519Verifier.decodePublicKey(publicKey.getAbyte());
+        if (key == null) {
+          verifierKeyInvalid = true;
+        }
+        verifierKey = key;
+      }
+      return key;
+    }
+
+    /**
+     * Get a copy of the ED25519-SHA-256 condition fingerprint for the key.
+     *
+     * @return the fingerprint
+     */
+    public byte[] getFingerprint() {
+      return fingerprint.clone();
+    }
+
+  }
+
+}
@@ -0,0 +1,564 @@
+package org.interledger.cryptoconditions.crypto;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+
+/**
+ * A pure Java Ed25519 signature verifier (RFC 8032).
+ *
+ * A signature (R, S) over a message M is verified by computing k = SHA-512(R || A || M) and
+ * checking that [S]B - [k]A encodes to R. Both scalars are split into 128 bit halves so the check
+ * becomes [S0]B + [S1]B' - [k0]A - [k1]A' with B' = [2^128]B and A' = [2^128]A, and the four
+ * multiplications are done together in a single pass of 128 doublings (Straus' method). Each half
+ * is recoded into signed sliding windows so only one addition is needed every few bits.
+ *
+ * The odd multiples of B and B' are computed once into tables of affine points. The odd multiples
+ * of -A and -A' are computed when a key is decoded into a {@link PublicKey}, which costs about as
+ * much as the doublings it saves, so keys should be decoded once and reused, e.g. through
+ * {@link Ed25519PublicKeyCache.Entry#getVerifierKey()}.
+ *
+ * Verification does not run in constant time, which is fine as all of its inputs are public.
+ */
+public final class Ed25519Verifier {
+
+  /**
+   * The length of an encoded public key in bytes.
+   */
+  public static final int PUBLIC_KEY_LENGTH = 32;
+
+  /**
+   * The length of a signature in bytes.
+   */
+  public static final int SIGNATURE_LENGTH = 64;
+
+  private static final BigInteger P =
+      BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19));
+
+  private static final BigInteger L = BigInteger.ONE.shiftLeft(252)
+      .add(new BigInteger("27742317777372353535851937790883648493"));
+
+  private static final byte[] L_BYTES = toLittleEndian(L);
+
+  private static final long[] D = fromBigInteger(BigInteger.valueOf(-121665)
+      .multiply(BigInteger.valueOf(121666).modInverse(P)).mod(P));
+
+  private static final long[] D2 = fromBigInteger(fromField(D).shiftLeft(1).mod(P));
+
+  private static final long[] SQRT_M1 =
+      fromBigInteger(BigInteger.valueOf(2).modPow(P.subtract(BigInteger.ONE).shiftRight(2), P));
+
+  // The window widths used for S (base point) and k (public key)
+  private static final int BASE_WINDOW = 8;
+  private static final int KEY_WINDOW = 5;
+
+  // Each scalar is split into two halves of this many bits
+  private static final int HALF_BITS = 128;
+
+  // Odd multiples B, 3B, 5B, ... 127B and the same for B' = [2^128]B, in affine form
+  private static final Cached[] BASE_TABLE;
+  private static final Cached[] BASE_HIGH_TABLE;
+
+  static {
+    byte[] encoded = new byte[32];
+    encoded[0] = 0x58;
+    for (int i = 1; i < 32; i++) {
+      encoded[i] = 0x66;
+    }
+    Point base = decode(encoded, 0);
+    BASE_TABLE = oddMultiples(base, 1 << (BASE_WINDOW - 2));
+    BASE_HIGH_TABLE = oddMultiples(shift(base), 1 << (BASE_WINDOW - 2));
+    for (int i = 0; i < BASE_TABLE.length; i++) {
+      BASE_TABLE[i].normalize();
+      BASE_HIGH_TABLE[i].normalize();
+    }
+  }
+
+  private Ed25519Verifier() {
+  }
+
+  /**
+   * Decode a public key and precompute the multiples of it used for verification.
+   *
+   * @param publicKey the 32 byte encoded public key
+   * @return the decoded key, or null if the bytes are not a valid point encoding
+   */
+  public static PublicKey decodePublicKey(byte[] publicKey) {
+    if (publicKey.length != PUBLIC_KEY_LENGTH) {
+      throw new IllegalArgumentException("Ed25519 public key must be 32 bytes.");
+    }
+    Point point = decode(publicKey, 0);
+    if (point == null) {
+      return null;
+    }
+    point.negate();
+    return new PublicKey(publicKey.clone(), oddMultiples(point, 1 << (KEY_WINDOW - 2)),
+        oddMultiples(shift(point), 1 << (KEY_WINDOW - 2)));
+  }
+
+  /**
+   * Verify a signature over a message.
+   *
+   * @param publicKey the 32 byte encoded public key
+   * @param message the signed message
+   * @param signature the 64 byte signature
+   * @return true if the signature is valid
+   */
+  public static boolean verify(byte[] publicKey, byte[] message, byte[] signature) {
+    PublicKey key = decodePublicKey(publicKey);
+    if (key == null || signature.length != SIGNATURE_LENGTH) {
+      return false;
+    }
+    MessageDigest digest = Digests.sha512();
+    digest.update(signature, 0, 32);
+    digest.update(publicKey);
+    digest.update(message);
+    return verifyDigest(key, signature, digest.digest());
+  }
+
+  /**
+   * Verify a signature given the SHA-512 digest of R || A || M, which allows the message to be
+   * hashed incrementally.
+   *
+   * @param publicKey the decoded public key
+   * @param signature the 64 byte signature (R || S)
+   * @param digest the 64 byte SHA-512 digest of R, the encoded public key and the message
+   * @return true if the signature is valid
+   */
+  public static boolean verifyDigest(PublicKey publicKey, byte[] signature, byte[] digest) {
+    if (signature.length != SIGNATURE_LENGTH || digest.length != 64) {
+      return false;
+    }
+
+    if (!isCanonicalScalar(signature, 32)) {
+      return false;
+    }
+    byte[] k = toLittleEndian(fromLittleEndian(digest, 0, 64).mod(L));
+
+    byte[] s0 = slidingWindow(signature, 32, BASE_WINDOW);
+    byte[] s1 = slidingWindow(signature, 48, BASE_WINDOW);
+    byte[] k0 = slidingWindow(k, 0, KEY_WINDOW);
+    byte[] k1 = slidingWindow(k, 16, KEY_WINDOW);
+
+    Point r = new Point();
+    r.setIdentity();
+    int i = HALF_BITS;
+    while (i >= 0 && s0[i] == 0 && s1[i] == 0 && k0[i] == 0 && k1[i] == 0) {
+      i--;
+    }
+    for (; i >= 0; i--) {
+      // Only the additions need T, so it is skipped when doubling twice in a row
+      int additions = Integer.bitCount((s0[i] != 0 ? 1 : 0) | (s1[i] != 0 ? 2 : 0)
+          | (k0[i] != 0 ? 4 : 0) | (k1[i] != 0 ? 8 : 0));
+      r.twice(additions > 0);
+      additions -= r.add(publicKey.table, k0[i], additions > 1) ? 1 : 0;
+      additions -= r.add(publicKey.highTable, k1[i], additions > 1) ? 1 : 0;
+      additions -= r.add(BASE_TABLE, s0[i], additions > 1) ? 1 : 0;
+      r.add(BASE_HIGH_TABLE, s1[i], additions > 1);
+    }
+
+    byte[] encoded = r.encode();
+    int diff = 0;
+    for (int j = 0; j < 32; j++) {
+      diff |= encoded[j] ^ signature[j];
+    }
+    return diff == 0;
+  }
+
+  /**
+   * Decode a point (RFC 8032, section 5.1.3), returning null if the encoding is invalid.
+   */
+  private static Point decode(byte[] encoded, int offset) {
+    // The y coordinate must be canonical
+    BigInteger y = fromLittleEndian(encoded, offset, 32).clearBit(255);
+    if (y.compareTo(P) >= 0) {
+      return null;
+    }
+    boolean sign = (encoded[offset + 31] & 0x80) != 0;
+
+    Point point = new Point();
+    Field25519.fromBytes(point.y, encoded, offset);
+    Field25519.one(point.z);
+
+    // x^2 = (y^2 - 1) / (d y^2 + 1)
+    long[] u = Field25519.create();
+    long[] v = Field25519.create();
+    long[] v3 = Field25519.create();
+    long[] check = Field25519.create();
+    long[] x = point.x;
+
+    Field25519.sqr(u, point.y);
+    Field25519.mul(v, u, D);
+    Field25519.sub(u, u, point.z);
+    Field25519.add(v, v, point.z);
+
+    // x = u v^3 (u v^7)^((p - 5) / 8)
+    Field25519.sqr(v3, v);
+    Field25519.mul(v3, v3, v);
+    Field25519.sqr(x, v3);
+    Field25519.mul(x, x, v);
+    Field25519.mul(x, x, u);
+    Field25519.pow22523(x, x);
+    Field25519.mul(x, x, v3);
+    Field25519.mul(x, x, u);
+
+    Field25519.sqr(check, x);
+    Field25519.mul(check, check, v);
+    if (!Field25519.equal(check, u)) {
+      Field25519.neg(u, u);
+      if (!Field25519.equal(check, u)) {
+        return null;
+      }
+      Field25519.mul(x, x, SQRT_M1);
+    }
+
+    if (Field25519.isNegative(x) != sign) {
+      if (Field25519.isZero(x)) {
+        return null;
+      }
+      Field25519.neg(x, x);
+    }
+
+    Field25519.mul(point.t, x, point.y);
+    return point;
+  }
+
+  /**
+   * Compute P, 3P, 5P, ... (2n - 1)P.
+   */
+  private static Cached[] oddMultiples(Point p, int n) {
+    Cached[] table = new Cached[n];
+    Point twice = p.copy();
+    twice.twice(true);
+    Cached twiceCached = new Cached(twice);
+
+    Point multiple = p.copy();
+    table[0] = new Cached(multiple);
+    for (int i = 1; i < n; i++) {
+      multiple.add(twiceCached, true);
+      table[i] = new Cached(multiple);
+    }
+    return table;
+  }
+
+  /**
+   * Compute [2^128]P.
+   */
+  private static Point shift(Point p) {
+    Point shifted = p.copy();
+    for (int i = 0; i < HALF_BITS; i++) {
+      shifted.twice(true);
+    }
+    return shifted;
+  }
+
+  /**
+   * Recode 128 bits of a little-endian scalar into 129 signed digits, little-endian, each either 0
+   * or odd with magnitude below 2^(w-1), by sliding a window of w bits over it.
+   */
+  private static byte[] slidingWindow(byte[] scalar, int offset, int width) {
+    int length = HALF_BITS + 1;
+    byte[] r = new byte[length];
+    for (int i = 0; i < HALF_BITS; i++) {
+      r[i] = (byte) (1 & (scalar[offset + (i >> 3)] >> (i & 7)));
+    }
+
+    int max = (1 << (width - 1)) - 1;
+    for (int i = 0; i < length; i++) {
+      if (r[i] == 0) {
+        continue;
+      }
+      for (int b = 1; b <= width && i + b < length; b++) {
+        if (r[i + b] == 0) {
+          continue;
+        }
+        int shifted = r[i + b] << b;
+        if (r[i] + shifted <= max) {
+          r[i] += shifted;
+          r[i + b] = 0;
+        } else if (r[i] - shifted >= -max) {
+          r[i] -= shifted;
+          // Propagate the borrowed bit up to the next zero digit
+          for (int k = i + b; k < length; k++) {
+            if (r[k] == 0) {
+              r[k] = 1;
+              break;
+            }
+            r[k] = 0;
+          }
+        } else {
+          break;
+        }
+      }
+    }
+    return r;
+  }
+
+  /**
+   * Whether a 32 byte little-endian scalar is below the group order L.
+   */
+  private static boolean isCanonicalScalar(byte[] scalar, int offset) {
+    for (int i = 31; i >= 0; i--) {
+      int s = scalar[offset + i] & 0xff;
+      int l = L_BYTES[i] & 0xff;
+      if (s != l) {
+        return s < l;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] toLittleEndian(BigInteger value) {
+    byte[] bigEndian = value.toByteArray();
+    byte[] littleEndian = new byte[32];
+    for (int i = 0; i < 32 && i < bigEndian.length; i++) {
+      littleEndian[i] = bigEndian[bigEndian.length - 1 - i];
+    }
+    return littleEndian;
+  }
+
+  private static BigInteger fromLittleEndian(byte[] bytes, int offset, int length) {
+    byte[] bigEndian = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bigEndian[i] = bytes[offset + length - 1 - i];
+    }
+    return new BigInteger(1, bigEndian);
+  }
+
+  private static long[] fromBigInteger(BigInteger value) {
+    long[] h = Field25519.create();
+    Field25519.fromBytes(h, toLittleEndian(value), 0);
+    return h;
+  }
+
+  private static BigInteger fromField(long[] f) {
+    byte[] bytes = new byte[32];
+    Field25519.toBytes(bytes, 0, f);
+    return fromLittleEndian(bytes, 0, 32);
+  }
+
+  /**
+   * A decoded Ed25519 public key A, held as the odd multiples of -A and -[2^128]A used for
+   * verification.
+   *
+   * Instances are immutable and may be shared between threads.
+   */
+  public static final class PublicKey {
+
+    private final byte[] encoded;
+    private final Cached[] table;
+    private final Cached[] highTable;
+
+    private PublicKey(byte[] encoded, Cached[] table, Cached[] highTable) {
+      this.encoded = encoded;
+      this.table = table;
+      this.highTable = highTable;
+    }
+
+    /**
+     * Get a copy of the encoded public key.
+     *
+     * @return the 32 byte encoded key
+     */
+    public byte[] getEncoded() {
+      return encoded.clone();
+    }
+
+  }
+
+  /**
+   * A point in extended coordinates (X : Y : Z : T) with x = X/Z, y = Y/Z and xy = T/Z.
+   */
+  private static final class Point {
+
+    private final long[] x = Field25519.create();
+    private final long[] y = Field25519.create();
+    private final long[] z = Field25519.create();
+    private final long[] t = Field25519.create();
+
+    // Scratch space for the addition and doubling formulas
+    private final long[] a = Field25519.create();
+    private final long[] b = Field25519.create();
+    private final long[] c = Field25519.create();
+    private final long[] d = Field25519.create();
+
+    private void setIdentity() {
+      Field25519.zero(x);
+      Field25519.one(y);
+      Field25519.one(z);
+      Field25519.zero(t);
+    }
+
+    private Point copy() {
+      Point copy = new Point();
+      Field25519.copy(copy.x, x);
+      Field25519.copy(copy.y, y);
+      Field25519.copy(copy.z, z);
+      Field25519.copy(copy.t, t);
+      return copy;
+    }
+
+    private void negate() {
+      Field25519.neg(x, x);
+      Field25519.neg(t, t);
+    }
+
+    /**
+     * Double this point (dbl-2008-hwcd with a = -1), which does not use T.
+     */
+    private void twice(boolean computeT) {
+      Field25519.sqr(a, x);
+      Field25519.sqr(b, y);
+      Field25519.sqr(c, z);
+      Field25519.add(c, c, c);
+
+      // E = (X + Y)^2 - A - B
+      Field25519.add(d, x, y);
+      Field25519.sqr(d, d);
+      Field25519.sub(d, d, a);
+      Field25519.sub(d, d, b);
+
+      // G = B - A, H = -(A + B), F = G - C, with T free to use as it is not an input
+      Field25519.add(t, a, b);
+      Field25519.sub(b, b, a);
+      Field25519.neg(a, t);
+      Field25519.sub(c, b, c);
+
+      finish(d, c, b, a, computeT);
+    }
+
+    /**
+     * Add the multiple of a table for a signed digit, doing nothing for a 0 digit.
+     *
+     * @return true if a point was added
+     */
+    private boolean add(Cached[] table, int digit, boolean computeT) {
+      if (digit > 0) {
+        add(table[digit >> 1], computeT);
+      } else if (digit < 0) {
+        subtract(table[-digit >> 1], computeT);
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Add a cached point (add-2008-hwcd-3 with a = -1).
+     */
+    private void add(Cached q, boolean computeT) {
+      Field25519.sub(a, y, x);
+      Field25519.mul(a, a, q.yMinusX);
+      Field25519.add(b, y, x);
+      Field25519.mul(b, b, q.yPlusX);
+      Field25519.mul(c, t, q.t2d);
+      combine(q, false, computeT);
+    }
+
+    private void subtract(Cached q, boolean computeT) {
+      Field25519.sub(a, y, x);
+      Field25519.mul(a, a, q.yPlusX);
+      Field25519.add(b, y, x);
+      Field25519.mul(b, b, q.yMinusX);
+      Field25519.mul(c, t, q.t2d);
+      combine(q, true, computeT);
+    }
+
+    /**
+     * Given A, B and C of the addition formula, compute D and the result.
+     */
+    private void combine(Cached q, boolean negate, boolean computeT) {
+      if (q.affine) {
+        Field25519.add(d, z, z);
+      } else {
+        Field25519.mul(d, z, q.z2);
+      }
+
+      // E = B - A, H = B + A
+      long[] e = x;
+      long[] h = y;
+      Field25519.sub(e, b, a);
+      Field25519.add(h, b, a);
+
+      // F = D - C, G = D + C, swapped when subtracting as -Q has -T
+      long[] f = a;
+      long[] g = b;
+      if (negate) {
+        Field25519.add(f, d, c);
+        Field25519.sub(g, d, c);
+      } else {
+        Field25519.sub(f, d, c);
+        Field25519.add(g, d, c);
+      }
+
+      Field25519.copy(c, e);
+      Field25519.copy(d, h);
+      finish(c, f, g, d, computeT);
+    }
+
+    /**
+     * X = E F, Y = G H, T = E H, Z = F G.
+     */
+    private void finish(long[] e, long[] f, long[] g, long[] h, boolean computeT) {
+      Field25519.mul(x, e, f);
+      Field25519.mul(y, g, h);
+      if (computeT) {
+        Field25519.mul(t, e, h);
+      }
+      Field25519.mul(z, f, g);
+    }
+
+    private byte[] encode() {
+      long[] zInverse = Field25519.create();
+      long[] affineX = Field25519.create();
+      long[] affineY = Field25519.create();
+      Field25519.invert(zInverse, z);
+      Field25519.mul(affineX, x, zInverse);
+      Field25519.mul(affineY, y, zInverse);
+
+      byte[] encoded = new byte[32];
+      Field25519.toBytes(encoded, 0, affineY);
+      if (Field25519.isNegative(affineX)) {
+        encoded[31] |= (byte) 0x80;
+      }
+      return encoded;
+    }
+
+  }
+
+  /**
+   * A point prepared for addition: (Y + X, Y - X, 2Z, 2dT), or with Z = 1 once normalized.
+   */
+  private static final class Cached {
+
+    private final long[] yPlusX = Field25519.create();
+    private final long[] yMinusX = Field25519.create();
+    private final long[] z2 = Field25519.create();
+    private final long[] t2d = Field25519.create();
+    private boolean affine;
+
+    private Cached(Point p) {
+      Field25519.add(yPlusX, p.y, p.x);
+      Field25519.sub(yMinusX, p.y, p.x);
+      Field25519.add(z2, p.z, p.z);
+      Field25519.mul(t2d, p.t, D2);
+    }
+
+    /**
+     * Scale to Z = 1, saving a multiplication in every addition.
+     */
+    private void normalize() {
+      long[] zInverse = Field25519.create();
+      // z2 = 2Z, so 2 / z2 = 1 / Z
+      Field25519.invert(zInverse, z2);
+      Field25519.add(zInverse, zInverse, zInverse);
+      Field25519.mul(yPlusX, yPlusX, zInverse);
+      Field25519.mul(yMinusX, yMinusX, zInverse);
+      Field25519.mul(t2d, t2d, zInverse);
+      Field25519.one(z2);
+      Field25519.add(z2, z2, z2);
+      affine = true;
+    }
+
+  }
+
+}
@@ -0,0 +1,435 @@
+package org.interledger.cryptoconditions.crypto;
+
+/**
+ * Arithmetic in GF(2^255 - 19), the field underlying Ed25519.
+ *
+ * Elements are held in ten signed limbs of alternately 26 and 25 bits (radix 2^25.5), so the
+ * products of two limbs and their sums fit comfortably in a long. Every operation leaves its result
+ * carried back into that range, so the output of any operation can be fed into any other.
+ *
+ * Operations write their result into the first argument, which may be the same array as any of the
+ * inputs. None of them run in constant time, they are only meant for verification where all inputs
+ * are public.
+ */
+final class Field25519 {
+
+  static final int LIMBS = 10;
+
+  // 2p, limb by limb, added before subtracting so limbs stay non-negative
+  private static final long TWO_P_0 = 2 * ((1L << 26) - 19);
+  private static final long TWO_P_EVEN = 2 * ((1L << 26) - 1);
+  private static final long TWO_P_ODD = 2 * ((1L << 25) - 1);
+
+  private Field25519() {
+  }
+
+  static long[] create() {
+    return new long[LIMBS];
+  }
+
+  static void copy(long[] h, long[] f) {
+    System.arraycopy(f, 0, h, 0, LIMBS);
+  }
+
+  static void zero(long[] h) {
+    for (int i = 0; i < LIMBS; i++) {
+      h[i] = 0;
+    }
+  }
+
+  static void one(long[] h) {
+    zero(h);
+    h[0] = 1;
+  }
+
+  /**
+   * Decode a 255 bit little-endian value, ignoring the top bit of the last byte.
+   */
+  static void fromBytes(long[] h, byte[] s, int offset) {
+    long acc = 0;
+    int bits = 0;
+    int p = offset;
+    for (int i = 0; i < LIMBS; i++) {
+      int width = width(i);
+      while (bits < width) {
+        acc |= (long) (s[p++] & 0xff) << bits;
+        bits += 8;
+      }
+      h[i] = acc & ((1L << width) - 1);
+      acc >>>= width;
+      bits -= width;
+    }
+    h[9] &= (1L << 25) - 1;
+  }
+
+  /**
+   * Encode the fully reduced value as 32 little-endian bytes.
+   */
+  static void toBytes(byte[] s, int offset, long[] f) {
+    long[] h = f.clone();
+
+    // q = 1 if h >= p, computed from h + 19 >= 2^255
+    long q = (19 * h[9] + (1L << 24)) >> 25;
+    for (int i = 0; i < LIMBS; i++) {
+      q = (h[i] + q) >> width(i);
+    }
+
+    h[0] += 19 * q;
+    for (int i = 0; i < LIMBS - 1; i++) {
+      long c = h[i] >> width(i);
+      h[i + 1] += c;
+      h[i] -= c << width(i);
+    }
+    h[9] &= (1L << 25) - 1;
+
+    long acc = 0;
+    int bits = 0;
+    int p = offset;
+    for (int i = 0; i < LIMBS; i++) {
+      acc |= h[i] << bits;
+      bits += width(i);
+      while (bits >= 8) {
+        s[p++] = (byte) acc;
+        acc >>>= 8;
+        bits -= 8;
+      }
+    }
+    s[p] = (byte) acc;
+  }
+
+  static boolean isZero(long[] f) {
+    byte[] s = new byte[32];
+    toBytes(s, 0, f);
+    int diff = 0;
+    for (byte b : s) {
+      diff |= b;
+    }
+    return diff == 0;
+  }
+
+  /**
+   * Whether the fully reduced value is odd, which is the sign used by the Ed25519 point encoding.
+   */
+  static boolean isNegative(long[] f) {
+    byte[] s = new byte[32];
+    toBytes(s, 0, f);
+    return (s[0] & 1) != 0;
+  }
+
+  static boolean equal(long[] f, long[] g) {
+    long[] h = create();
+    sub(h, f, g);
+    return isZero(h);
+  }
+
+  static void add(long[] h, long[] f, long[] g) {
+    for (int i = 0; i < LIMBS; i++) {
+      h[i] = f[i] + g[i];
+    }
+    carry(h);
+  }
+
+  static void sub(long[] h, long[] f, long[] g) {
+    h[0] = f[0] - g[0] + TWO_P_0;
+    for (int i = 1; i < LIMBS; i++) {
+      h[i] = f[i] - g[i] + ((i & 1) == 0 ? TWO_P_EVEN : TWO_P_ODD);
+    }
+    carry(h);
+  }
+
+  static void neg(long[] h, long[] f) {
+    h[0] = TWO_P_0 - f[0];
+    for (int i = 1; i < LIMBS; i++) {
+      h[i] = ((i & 1) == 0 ? TWO_P_EVEN : TWO_P_ODD) - f[i];
+    }
+    carry(h);
+  }
+
+  /**
+   * Multiply two elements, reducing the product with 2^255 = 19 and doubling the products of two
+   * odd limbs, which are each offset by half a bit.
+   */
+  static void mul(long[] h, long[] f, long[] g) {
+    long f0 = f[0], f1 = f[1], f2 = f[2], f3 = f[3], f4 = f[4];
+    long f5 = f[5], f6 = f[6], f7 = f[7], f8 = f[8], f9 = f[9];
+    long g0 = g[0], g1 = g[1], g2 = g[2], g3 = g[3], g4 = g[4];
+    long g5 = g[5], g6 = g[6], g7 = g[7], g8 = g[8], g9 = g[9];
+    long f1x2 = 2 * f1, f3x2 = 2 * f3, f5x2 = 2 * f5, f7x2 = 2 * f7, f9x2 = 2 * f9;
+    long g1x19 = 19 * g1, g2x19 = 19 * g2, g3x19 = 19 * g3, g4x19 = 19 * g4;
+    long g5x19 = 19 * g5, g6x19 = 19 * g6, g7x19 = 19 * g7, g8x19 = 19 * g8;
+    long g9x19 = 19 * g9;
+
+    long h0 = f0 * g0 + f1x2 * g9x19 + f2 * g8x19 + f3x2 * g7x19
+        + f4 * g6x19 + f5x2 * g5x19 + f6 * g4x19 + f7x2 * g3x19
+        + f8 * g2x19 + f9x2 * g1x19;
+    long h1 = f0 * g1 + f1 * g0 + f2 * g9x19 + f3 * g8x19
+        + f4 * g7x19 + f5 * g6x19 + f6 * g5x19 + f7 * g4x19
+        + f8 * g3x19 + f9 * g2x19;
+    long h2 = f0 * g2 + f1x2 * g1 + f2 * g0 + f3x2 * g9x19
+        + f4 * g8x19 + f5x2 * g7x19 + f6 * g6x19 + f7x2 * g5x19
+        + f8 * g4x19 + f9x2 * g3x19;
+    long h3 = f0 * g3 + f1 * g2 + f2 * g1 + f3 * g0
+        + f4 * g9x19 + f5 * g8x19 + f6 * g7x19 + f7 * g6x19
+        + f8 * g5x19 + f9 * g4x19;
+    long h4 = f0 * g4 + f1x2 * g3 + f2 * g2 + f3x2 * g1
+        + f4 * g0 + f5x2 * g9x19 + f6 * g8x19 + f7x2 * g7x19
+        + f8 * g6x19 + f9x2 * g5x19;
+    long h5 = f0 * g5 + f1 * g4 + f2 * g3 + f3 * g2
+        + f4 * g1 + f5 * g0 + f6 * g9x19 + f7 * g8x19
+        + f8 * g7x19 + f9 * g6x19;
+    long h6 = f0 * g6 + f1x2 * g5 + f2 * g4 + f3x2 * g3
+        + f4 * g2 + f5x2 * g1 + f6 * g0 + f7x2 * g9x19
+        + f8 * g8x19 + f9x2 * g7x19;
+    long h7 = f0 * g7 + f1 * g6 + f2 * g5 + f3 * g4
+        + f4 * g3 + f5 * g2 + f6 * g1 + f7 * g0
+        + f8 * g9x19 + f9 * g8x19;
+    long h8 = f0 * g8 + f1x2 * g7 + f2 * g6 + f3x2 * g5
+        + f4 * g4 + f5x2 * g3 + f6 * g2 + f7x2 * g1
+        + f8 * g0 + f9x2 * g9x19;
+    long h9 = f0 * g9 + f1 * g8 + f2 * g7 + f3 * g6
+        + f4 * g5 + f5 * g4 + f6 * g3 + f7 * g2
+        + f8 * g1 + f9 * g0;
+
+    long c;
+    c = h0 >> 26;
+    h1 += c;
+    h0 -= c << 26;
+    c = h1 >> 25;
+    h2 += c;
+    h1 -= c << 25;
+    c = h2 >> 26;
+    h3 += c;
+    h2 -= c << 26;
+    c = h3 >> 25;
+    h4 += c;
+    h3 -= c << 25;
+    c = h4 >> 26;
+    h5 += c;
+    h4 -= c << 26;
+    c = h5 >> 25;
+    h6 += c;
+    h5 -= c << 25;
+    c = h6 >> 26;
+    h7 += c;
+    h6 -= c << 26;
+    c = h7 >> 25;
+    h8 += c;
+    h7 -= c << 25;
+    c = h8 >> 26;
+    h9 += c;
+    h8 -= c << 26;
+    c = h9 >> 25;
+    h9 -= c << 25;
+    h0 += 19 * c;
+    c = h0 >> 26;
+    h1 += c;
+    h0 -= c << 26;
+
+    h[0] = h0;
+    h[1] = h1;
+    h[2] = h2;
+    h[3] = h3;
+    h[4] = h4;
+    h[5] = h5;
+    h[6] = h6;
+    h[7] = h7;
+    h[8] = h8;
+    h[9] = h9;
+  }
+
+  /**
+   * Square an element, which needs just over half the multiplications of {@link #mul}.
+   */
+  static void sqr(long[] h, long[] f) {
+    long f0 = f[0], f1 = f[1], f2 = f[2], f3 = f[3], f4 = f[4];
+    long f5 = f[5], f6 = f[6], f7 = f[7], f8 = f[8], f9 = f[9];
+
+    long h0 = f0 * f0 + 76 * f1 * f9 + 38 * f2 * f8 + 76 * f3 * f7
+        + 38 * f4 * f6 + 38 * f5 * f5;
+    long h1 = 2 * f0 * f1 + 38 * f2 * f9 + 38 * f3 * f8 + 38 * f4 * f7
+        + 38 * f5 * f6;
+    long h2 = 2 * f0 * f2 + 2 * f1 * f1 + 76 * f3 * f9 + 38 * f4 * f8
+        + 76 * f5 * f7 + 19 * f6 * f6;
+    long h3 = 2 * f0 * f3 + 2 * f1 * f2 + 38 * f4 * f9 + 38 * f5 * f8
+        + 38 * f6 * f7;
+    long h4 = 2 * f0 * f4 + 4 * f1 * f3 + f2 * f2 + 76 * f5 * f9
+        + 38 * f6 * f8 + 38 * f7 * f7;
+    long h5 = 2 * f0 * f5 + 2 * f1 * f4 + 2 * f2 * f3 + 38 * f6 * f9
+        + 38 * f7 * f8;
+    long h6 = 2 * f0 * f6 + 4 * f1 * f5 + 2 * f2 * f4 + 2 * f3 * f3
+        + 76 * f7 * f9 + 19 * f8 * f8;
+    long h7 = 2 * f0 * f7 + 2 * f1 * f6 + 2 * f2 * f5 + 2 * f3 * f4
+        + 38 * f8 * f9;
+    long h8 = 2 * f0 * f8 + 4 * f1 * f7 + 2 * f2 * f6 + 4 * f3 * f5
+        + f4 * f4 + 38 * f9 * f9;
+    long h9 = 2 * f0 * f9 + 2 * f1 * f8 + 2 * f2 * f7 + 2 * f3 * f6
+        + 2 * f4 * f5;
+
+    long c;
+    c = h0 >> 26;
+    h1 += c;
+    h0 -= c << 26;
+    c = h1 >> 25;
+    h2 += c;
+    h1 -= c << 25;
+    c = h2 >> 26;
+    h3 += c;
+    h2 -= c << 26;
+    c = h3 >> 25;
+    h4 += c;
+    h3 -= c << 25;
+    c = h4 >> 26;
+    h5 += c;
+    h4 -= c << 26;
+    c = h5 >> 25;
+    h6 += c;
+    h5 -= c << 25;
+    c = h6 >> 26;
+    h7 += c;
+    h6 -= c << 26;
+    c = h7 >> 25;
+    h8 += c;
+    h7 -= c << 25;
+    c = h8 >> 26;
+    h9 += c;
+    h8 -= c << 26;
+    c = h9 >> 25;
+    h9 -= c << 25;
+    h0 += 19 * c;
+    c = h0 >> 26;
+    h1 += c;
+    h0 -= c << 26;
+
+    h[0] = h0;
+    h[1] = h1;
+    h[2] = h2;
+    h[3] = h3;
+    h[4] = h4;
+    h[5] = h5;
+    h[6] = h6;
+    h[7] = h7;
+    h[8] = h8;
+    h[9] = h9;
+  }
+
+  /**
+   * Square n times.
+   */
+  static void sqr(long[] h, long[] f, int n) {
+    sqr(h, f);
+    for (int i = 1; i < n; i++) {
+      sqr(h, h);
+    }
+  }
+
+  /**
+   * Compute z^(p - 2), the inverse of z.
+   */
+  static void invert(long[] h, long[] z) {
+    long[] t0 = create();
+    long[] t1 = create();
+    long[] t2 = create();
+    long[] t3 = create();
+
+    sqr(t0, z);
+    sqr(t1, t0, 2);
+    mul(t1, z, t1);
+    mul(t0, t0, t1);
+    sqr(t2, t0);
+    mul(t1, t1, t2);
+    sqr(t2, t1, 5);
+    mul(t1, t2, t1);
+    sqr(t2, t1, 10);
+    mul(t2, t2, t1);
+    sqr(t3, t2, 20);
+    mul(t2, t3, t2);
+    sqr(t2, t2, 10);
+    mul(t1, t2, t1);
+    sqr(t2, t1, 50);
+    mul(t2, t2, t1);
+    sqr(t3, t2, 100);
+    mul(t2, t3, t2);
+    sqr(t2, t2, 50);
+    mul(t1, t2, t1);
+    sqr(t1, t1, 5);
+    mul(h, t1, t0);
+  }
+
+  /**
+   * Compute z^((p - 5) / 8), used to take square roots.
+   */
+  static void pow22523(long[] h, long[] z) {
+    long[] t0 = create();
+    long[] t1 = create();
+    long[] t2 = create();
+
+    sqr(t0, z);
+    sqr(t1, t0, 2);
+    mul(t1, z, t1);
+    mul(t0, t0, t1);
+    sqr(t0, t0);
+    mul(t0, t1, t0);
+    sqr(t1, t0, 5);
+    mul(t0, t1, t0);
+    sqr(t1, t0, 10);
+    mul(t1, t1, t0);
+    sqr(t2, t1, 20);
+    mul(t1, t2, t1);
+    sqr(t1, t1, 10);
+    mul(t0, t1, t0);
+    sqr(t1, t0, 50);
+    mul(t1, t1, t0);
+    sqr(t2, t1, 100);
+    mul(t1, t2, t1);
+    sqr(t1, t1, 50);
+    mul(t0, t1, t0);
+    sqr(t0, t0, 2);
+    mul(h, t0, z);
+  }
+
+  /**
+   * Carry every limb into the next, folding the carry out of the top limb back into the bottom one
+   * as 2^255 = 19.
+   */
+  private static void carry(long[] h) {
+    long c;
+    c = h[0] >> 26;
+    h[1] += c;
+    h[0] -= c << 26;
+    c = h[1] >> 25;
+    h[2] += c;
+    h[1] -= c << 25;
+    c = h[2] >> 26;
+    h[3] += c;
+    h[2] -= c << 26;
+    c = h[3] >> 25;
+    h[4] += c;
+    h[3] -= c << 25;
+    c = h[4] >> 26;
+    h[5] += c;
+    h[4] -= c << 26;
+    c = h[5] >> 25;
+    h[6] += c;
+    h[5] -= c << 25;
+    c = h[6] >> 26;
+    h[7] += c;
+    h[6] -= c << 26;
+    c = h[7] >> 25;
+    h[8] += c;
+    h[7] -= c << 25;
+    c = h[8] >> 26;
+    h[9] += c;
+    h[8] -= c << 26;
+    c = h[9] >> 25;
+    h[9] -= c << 25;
+    h[0] += 19 * c;
+    c = h[0] >> 26;
+    h[1] += c;
+    h[0] -= c << 26;
+  }
+
+  private static int width(int limb) {
+    return (limb & 1) == 0 ? 26 : 25;
+  }
+
+}
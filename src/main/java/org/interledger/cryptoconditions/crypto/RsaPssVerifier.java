@@ -0,0 +1,205 @@
+package org.interledger.cryptoconditions.crypto;
+
+import java.math.BigInteger;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Verifies RSASSA-PSS signatures (RFC 8017, section 8.1.2) as used by RSA-SHA-256 conditions: a
+ * public exponent of 65537, SHA-256 as both the message digest and the MGF1 digest, and a 32 byte
+ * salt.
+ *
+ * The public operation s^65537 mod n is left to {@link BigInteger#modPow}, which does its 16
+ * squarings and one multiplication in Montgomery form using intrinsics that are much faster than
+ * any Montgomery arithmetic written in Java. Everything around it is done directly rather than
+ * through a JCA {@link java.security.Signature}: there is no provider lookup or key conversion, and
+ * the encoded message is unmasked and checked in place in a per-thread buffer.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public final class RsaPssVerifier {
+
+  /**
+   * The public exponent, 65537.
+   */
+  public static final BigInteger PUBLIC_EXPONENT = BigInteger.valueOf(65537);
+
+  /**
+   * The length of the salt in bytes.
+   */
+  public static final int SALT_LENGTH = 32;
+
+  private static final int HASH_LENGTH = 32;
+
+  // Follows the encoded message in the buffer: a digest block, the MGF1 counter and 8 zero bytes
+  private static final int SCRATCH_LENGTH = HASH_LENGTH + 4 + 8;
+
+  private static final ThreadLocal<byte[]> BUFFER =
+      ThreadLocal.withInitial(() -> new byte[512 + SCRATCH_LENGTH]);
+
+  private final BigInteger modulus;
+  private final int length;
+  private final int encodedBits;
+  private final int encodedLength;
+
+  /**
+   * Create a verifier for the given modulus, with the public exponent 65537.
+   *
+   * @param modulus the modulus of the public key
+   */
+  public RsaPssVerifier(BigInteger modulus) {
+    this(modulus, PUBLIC_EXPONENT);
+  }
+
+  /**
+   * Create a verifier for the given public key.
+   *
+   * @param publicKey the public key
+   * @throws IllegalArgumentException if the public exponent of the key is not 65537
+   */
+  public RsaPssVerifier(RSAPublicKey publicKey) {
+    this(publicKey.getModulus(), publicKey.getPublicExponent());
+  }
+
+  private RsaPssVerifier(BigInteger modulus, BigInteger publicExponent) {
+    if (!PUBLIC_EXPONENT.equals(publicExponent)) {
+      throw new IllegalArgumentException("RSA public exponent must be 65537.");
+    }
+    if (modulus.signum() <= 0 || !modulus.testBit(0)) {
+      throw new IllegalArgumentException("RSA modulus must be positive and odd.");
+    }
+    this.modulus = modulus;
+    this.length = (modulus.bitLength() + 7) / 8;
+    this.encodedBits = modulus.bitLength() - 1;
+    this.encodedLength = (encodedBits + 7) / 8;
+  }
+
+  public BigInteger getModulus() {
+    return modulus;
+  }
+
+  /**
+   * Verify a signature over a message.
+   *
+   * @param message the signed message
+   * @param signature the signature
+   * @return true if the signature is valid
+   */
+  public boolean verify(byte[] message, byte[] signature) {
+    return verifyDigest(Digests.sha256().digest(message), signature);
+  }
+
+  /**
+   * Verify a signature given the SHA-256 digest of the message.
+   *
+   * @param messageHash the 32 byte SHA-256 digest of the signed message
+   * @param signature the signature
+   * @return true if the signature is valid
+   */
+  public boolean verifyDigest(byte[] messageHash, byte[] signature) {
+    if (messageHash.length != HASH_LENGTH || signature.length != length) {
+      return false;
+    }
+
+    BigInteger s = new BigInteger(1, signature);
+    if (s.compareTo(modulus) >= 0) {
+      return false;
+    }
+    byte[] m = s.modPow(PUBLIC_EXPONENT, modulus).toByteArray();
+
+    // EM = I2OSP(m, emLen), m may have a leading sign byte
+    int start = 0;
+    while (start < m.length && m[start] == 0) {
+      start++;
+    }
+    if (m.length - start > encodedLength) {
+      return false;
+    }
+
+    byte[] em = buffer(encodedLength + SCRATCH_LENGTH);
+    int pad = encodedLength - (m.length - start);
+    for (int i = 0; i < pad; i++) {
+      em[i] = 0;
+    }
+    System.arraycopy(m, start, em, pad, m.length - start);
+
+    return decode(em, messageHash);
+  }
+
+  /**
+   * EMSA-PSS-VERIFY (RFC 8017, section 9.1.2), unmasking the encoded message in place.
+   */
+  private boolean decode(byte[] em, byte[] messageHash) {
+    int block = encodedLength;
+    int counter = block + HASH_LENGTH;
+    int zeros = counter + 4;
+
+    if (encodedLength < HASH_LENGTH + SALT_LENGTH + 2 || em[encodedLength - 1] != (byte) 0xbc) {
+      return false;
+    }
+
+    int dbLength = encodedLength - HASH_LENGTH - 1;
+    int topMask = 0xff >>> (8 * encodedLength - encodedBits);
+    if ((em[0] & 0xff & ~topMask) != 0) {
+      return false;
+    }
+
+    MessageDigest digest = Digests.sha256();
+    try {
+      // DB = maskedDB XOR MGF1(H, dbLength), with H at em[dbLength]
+      for (int offset = 0, i = 0; offset < dbLength; offset += HASH_LENGTH, i++) {
+        em[counter] = (byte) (i >>> 24);
+        em[counter + 1] = (byte) (i >>> 16);
+        em[counter + 2] = (byte) (i >>> 8);
+        em[counter + 3] = (byte) i;
+        digest.update(em, dbLength, HASH_LENGTH);
+        digest.update(em, counter, 4);
+        digest.digest(em, block, HASH_LENGTH);
+        int n = Math.min(HASH_LENGTH, dbLength - offset);
+        for (int j = 0; j < n; j++) {
+          em[offset + j] ^= em[block + j];
+        }
+      }
+      em[0] &= topMask;
+
+      // DB = PS || 0x01 || salt
+      int saltStart = dbLength - SALT_LENGTH;
+      for (int i = 0; i < saltStart - 1; i++) {
+        if (em[i] != 0) {
+          return false;
+        }
+      }
+      if (em[saltStart - 1] != 1) {
+        return false;
+      }
+
+      // H' = SHA-256(0x00 * 8 || mHash || salt)
+      for (int i = 0; i < 8; i++) {
+        em[zeros + i] = 0;
+      }
+      digest.update(em, zeros, 8);
+      digest.update(messageHash);
+      digest.update(em, saltStart, SALT_LENGTH);
+      digest.digest(em, block, HASH_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+
+    int diff = 0;
+    for (int i = 0; i < HASH_LENGTH; i++) {
+      diff |= em[block + i] ^ em[dbLength + i];
+    }
+    return diff == 0;
+  }
+
+  private static byte[] buffer(int length) {
+    byte[] buffer = BUFFER.get();
+    if (buffer.length < length) {
+      buffer = new byte[length];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+}
@@ -1,62 +1,32 @@
 package org.interledger.cryptoconditions.der;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.PublicKey;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.RSAPublicKeySpec;
-import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
 import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.types.ConditionCost;
 import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
-import org.interledger.cryptoconditions.types.Ed25519Sha256Fulfillment;
 import org.interledger.cryptoconditions.types.PrefixSha256Condition;
-import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
 import org.interledger.cryptoconditions.types.PreimageSha256Condition;
-import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
 import org.interledger.cryptoconditions.types.RsaSha256Condition;
-import org.interledger.cryptoconditions.types.RsaSha256Fulfillment;
 import org.interledger.cryptoconditions.types.ThresholdSha256Condition;
-import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
-
-import net.i2p.crypto.eddsa.EdDSAPublicKey;
-import net.i2p.crypto.eddsa.spec.EdDSANamedCurveTable;
-import net.i2p.crypto.eddsa.spec.EdDSAPublicKeySpec;
 
 public class CryptoConditionReader {
 
+  private static final ThreadLocal<FulfillmentDecoder> DECODER =
+      ThreadLocal.withInitial(FulfillmentDecoder::new);
+
   public static Condition readCondition(byte[] buffer) throws DEREncodingException {
     return readCondition(buffer, 0, buffer.length);
   }
 
   public static Condition readCondition(byte[] buffer, int offset, int length)
       throws DEREncodingException {
-
-    ByteArrayInputStream bais = new ByteArrayInputStream(buffer, offset, length);
-    DERInputStream in = new DERInputStream(bais);
-
-    try {
-      Condition c = readCondition(in);
-      return c;
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    } finally {
-      try {
-        in.close();
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
-    }
+    return DECODER.get().readCondition(buffer, offset, length);
   }
 
   public static Condition readCondition(DERInputStream in)
@@ -104,23 +74,50 @@ public class CryptoConditionReader {
     return readFulfillment(buffer, 0, buffer.length);
   }
 
+  /**
+   * Decode a fulfillment from a byte array.
+   *
+   * Nested fulfillments are decoded with an explicit stack rather than by recursion. The nesting
+   * of PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments is limited to
+   * {@link CryptoConditionValidator#DEFAULT_MAX_DEPTH}, so that deriving the condition of the
+   * fulfillment and verifying it, which recurse through the tree, can't overflow the thread stack.
+   *
+   * @param buffer the buffer to read from
+   * @param offset the offset of the fulfillment
+   * @param length the number of bytes that may be read
+   * @return the decoded fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded or nested too deeply
+   */
   public static Fulfillment readFulfillment(byte[] buffer, int offset, int length)
       throws DEREncodingException {
+    return readFulfillment(buffer, offset, length, CryptoConditionValidator.DEFAULT_MAX_DEPTH);
+  }
 
-    ByteArrayInputStream bais = new ByteArrayInputStream(buffer, offset, length);
-    DERInputStream in = new DERInputStream(bais);
-
-    try {
-      return readFulfillment(in);
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    } finally {
-      try {
-        in.close();
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
-    }
+  /**
+   * Decode a fulfillment from a byte array, with a different limit on its nesting.
+   *
+   * @param buffer the buffer to read from
+   * @param offset the offset of the fulfillment
+   * @param length the number of bytes that may be read
+   * @param maxDepth the maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments
+   * @return the decoded fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded or nested too deeply
+   */
+  public static Fulfillment readFulfillment(byte[] buffer, int offset, int length, int maxDepth)
+      throws DEREncodingException {
+    return DECODER.get().readFulfillment(buffer, offset, length, maxDepth);
+  }
+
+  /**
+   * Compute the type, cost and subtypes of the condition of an encoded fulfillment, without
+   * decoding the fulfillment, hashing anything or creating any keys.
+   *
+   * @param buffer the encoded fulfillment
+   * @return the cost of its condition
+   * @throws DEREncodingException if the fulfillment is not correctly encoded
+   */
+  public static ConditionCost readFulfillmentCost(byte[] buffer) throws DEREncodingException {
+    return DECODER.get().readFulfillmentCost(buffer, 0, buffer.length);
   }
 
   public static Fulfillment readFulfillment(DERInputStream in)
@@ -128,7 +125,19 @@ public class CryptoConditionReader {
     return readFulfillment(in, new AtomicInteger());
   }
 
-  // TODO No length checks
+  /**
+   * Read a fulfillment from a stream.
+   *
+   * The tag and length are read from the stream, followed by the contents of the fulfillment, which
+   * are then decoded iteratively, with the same limit on nesting, as
+   * {@link #readFulfillment(byte[], int, int)} does.
+   *
+   * @param in the stream to read from
+   * @param bytesRead incremented by the number of bytes read
+   * @return the decoded fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded or nested too deeply
+   * @throws IOException if the stream can't be read
+   */
   public static Fulfillment readFulfillment(DERInputStream in, AtomicInteger bytesRead)
       throws DEREncodingException, IOException {
 
@@ -136,113 +145,11 @@ public class CryptoConditionReader {
     ConditionType type = ConditionType.valueOf(tag);
     int length = in.readLength(bytesRead);
 
-    if(length == 0) {
-      throw new DEREncodingException("Encountered an empty fulfillment.");      
+    if (length == 0) {
+      throw new DEREncodingException("Encountered an empty fulfillment.");
     }
 
-    AtomicInteger innerBytesRead = new AtomicInteger();
-    switch (type) {
-      case PREIMAGE_SHA256:
-
-        byte[] preimage =
-            in.readTaggedObject(0, length - innerBytesRead.get(), innerBytesRead).getValue();
-
-        bytesRead.addAndGet(innerBytesRead.get());
-
-        return new PreimageSha256Fulfillment(preimage);
-
-      case PREFIX_SHA256:
-
-        byte[] prefix = in.readTaggedObject(0, length - innerBytesRead.get(), innerBytesRead).getValue();
-        long maxMessageLength = new BigInteger(
-            in.readTaggedObject(1, length - innerBytesRead.get(), innerBytesRead).getValue()).longValue();
-
-        tag = in.readTag(2, innerBytesRead, DERTags.CONSTRUCTED, DERTags.TAGGED);
-        length = in.readLength(innerBytesRead);
-
-        Fulfillment subfulfillment = readFulfillment(in, innerBytesRead);
-
-        bytesRead.addAndGet(innerBytesRead.get());
-
-        return new PrefixSha256Fulfillment(prefix, maxMessageLength, subfulfillment);
-
-      case THRESHOLD_SHA256:
-
-        List<Fulfillment> subfulfillments = new ArrayList<>();
-
-        tag = in.readTag(innerBytesRead, DERTags.CONSTRUCTED, DERTags.TAGGED);
-        length = in.readLength(innerBytesRead);
-
-        // It is legal (per the encoding rules) for a THRESHOLD fulfillment to have only
-        // sub-conditions even though it will never validate so we need to check if we've
-        // skipped tag number 0
-        if (tag == 0) {
-
-          AtomicInteger subfulfillmentsBytesRead = new AtomicInteger();
-          while (subfulfillmentsBytesRead.get() < length) {
-            subfulfillments.add(readFulfillment(in, subfulfillmentsBytesRead));
-          }
-          innerBytesRead.addAndGet(subfulfillmentsBytesRead.get());
-          
-          tag = in.readTag(1, innerBytesRead, DERTags.CONSTRUCTED, DERTags.TAGGED);
-          length = in.readLength(innerBytesRead);
-
-        } else if (tag != 1) {
-          throw new DEREncodingException("Expected tag: 1, got: " + tag);
-        }
-
-        List<Condition> subconditions = new ArrayList<>();
-
-        AtomicInteger subconditionsBytesRead = new AtomicInteger();
-        while (subconditionsBytesRead.get() < length) {
-          subconditions.add(readCondition(in, subconditionsBytesRead));
-        }
-        innerBytesRead.addAndGet(subconditionsBytesRead.get());
-
-        bytesRead.addAndGet(innerBytesRead.get());
-
-        return new ThresholdSha256Fulfillment(
-            subconditions.toArray(new Condition[subconditions.size()]),
-            subfulfillments.toArray(new Fulfillment[subfulfillments.size()]));
-
-      case RSA_SHA256:
-
-        BigInteger modulus = new BigInteger(
-            in.readTaggedObject(0, length - innerBytesRead.get(), innerBytesRead).getValue());
-        byte[] rsaSignature =
-            in.readTaggedObject(1, length - innerBytesRead.get(), innerBytesRead).getValue();
-
-        bytesRead.addAndGet(innerBytesRead.get());
-        
-        RSAPublicKeySpec rsaSpec = new RSAPublicKeySpec(modulus, RsaSha256Fulfillment.PUBLIC_EXPONENT);
-
-        try {
-          KeyFactory rsaKeyFactory = KeyFactory.getInstance("RSA");
-          PublicKey publicKey = rsaKeyFactory.generatePublic(rsaSpec);
-
-          return new RsaSha256Fulfillment((RSAPublicKey) publicKey, rsaSignature);
-
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-          throw new RuntimeException("Error creating RSA key.", e);
-        }
-        
-
-      case ED25519_SHA256:
-        byte[] ed25519key =
-            in.readTaggedObject(0, length - innerBytesRead.get(), innerBytesRead).getValue();
-        byte[] ed25519Signature =
-            in.readTaggedObject(1, length - innerBytesRead.get(), innerBytesRead).getValue();
-
-        bytesRead.addAndGet(innerBytesRead.get());
-
-        EdDSAPublicKeySpec ed25519spec = new EdDSAPublicKeySpec(ed25519key,
-            EdDSANamedCurveTable.getByName(EdDSANamedCurveTable.CURVE_ED25519_SHA512));
-        EdDSAPublicKey ed25519PublicKey = new EdDSAPublicKey(ed25519spec);
-
-        return new Ed25519Sha256Fulfillment(ed25519PublicKey, ed25519Signature);
-    }
-
-    throw new DEREncodingException("Unrecogized tag: " + tag);
-
+    return DECODER.get().readFulfillment(type, in.readValue(length, bytesRead),
+        CryptoConditionValidator.DEFAULT_MAX_DEPTH);
   }
 }
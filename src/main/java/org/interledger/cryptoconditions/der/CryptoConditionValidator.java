@@ -0,0 +1,397 @@
+package org.interledger.cryptoconditions.der;
+
+import java.nio.ByteBuffer;
+
+import org.interledger.cryptoconditions.ConditionType;
+
+/**
+ * Checks that DER encoded conditions and fulfillments are well formed without decoding them.
+ *
+ * The encoding is scanned once, checking for every object that it has the tag its position in the
+ * ASN.1 definition of its type requires and a canonical length that is consistent with the objects
+ * around it, and that fingerprints, keys and signatures have the lengths their types require.
+ * Nesting of PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments is limited, to
+ * {@link #DEFAULT_MAX_DEPTH} unless another limit is given.
+ *
+ * Nothing is allocated while scanning, so encodings that will be rejected anyway can be dropped
+ * cheaply, before {@link CryptoConditionReader} creates any objects or keys. An encoding that is
+ * found to be well formed may still be rejected when it is decoded, e.g. for an Ed25519 key that
+ * is not a point on the curve.
+ */
+public final class CryptoConditionValidator {
+
+  /**
+   * The default limit on the number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments.
+   */
+  public static final int DEFAULT_MAX_DEPTH = 64;
+
+  private static final int TAGGED = DERTags.TAGGED.getTag();
+  private static final int CONSTRUCTED_TAGGED = DERTags.CONSTRUCTED.getTag() + TAGGED;
+
+  private static final int FINGERPRINT_LENGTH = 32;
+  private static final int ED25519_PUBLIC_KEY_LENGTH = 32;
+  private static final int ED25519_SIGNATURE_LENGTH = 64;
+  private static final int RSA_MIN_MODULUS_LENGTH = 128;
+  private static final int RSA_MAX_MODULUS_LENGTH = 512;
+
+  private static final ThreadLocal<Scanner> SCANNER = ThreadLocal.withInitial(Scanner::new);
+
+  private CryptoConditionValidator() {
+  }
+
+  /**
+   * Check that a byte array holds exactly one well formed condition.
+   *
+   * @param encoded the DER encoded condition
+   * @return true if the condition is well formed
+   */
+  public static boolean isValidCondition(byte[] encoded) {
+    Scanner scanner = SCANNER.get().reset(encoded, null, 0);
+    try {
+      return scanner.condition(encoded.length) && scanner.position == encoded.length;
+    } finally {
+      scanner.release();
+    }
+  }
+
+  /**
+   * Check that the remaining bytes of a buffer are exactly one well formed condition. The position
+   * of the buffer is not changed.
+   *
+   * @param encoded the DER encoded condition
+   * @return true if the condition is well formed
+   */
+  public static boolean isValidCondition(ByteBuffer encoded) {
+    Scanner scanner = SCANNER.get().reset(encoded);
+    int limit = encoded.remaining();
+    try {
+      return scanner.condition(limit) && scanner.position == limit;
+    } finally {
+      scanner.release();
+    }
+  }
+
+  /**
+   * Check that a byte array holds exactly one well formed fulfillment, nested no deeper than
+   * {@link #DEFAULT_MAX_DEPTH}.
+   *
+   * @param encoded the DER encoded fulfillment
+   * @return true if the fulfillment is well formed
+   */
+  public static boolean isValidFulfillment(byte[] encoded) {
+    return isValidFulfillment(encoded, DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Check that a byte array holds exactly one well formed fulfillment.
+   *
+   * @param encoded the DER encoded fulfillment
+   * @param maxDepth the maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments
+   * @return true if the fulfillment is well formed
+   */
+  public static boolean isValidFulfillment(byte[] encoded, int maxDepth) {
+    Scanner scanner = SCANNER.get().reset(encoded, null, 0);
+    try {
+      return scanner.fulfillment(encoded.length, maxDepth);
+    } finally {
+      scanner.release();
+    }
+  }
+
+  /**
+   * Check that the remaining bytes of a buffer are exactly one well formed fulfillment, nested no
+   * deeper than {@link #DEFAULT_MAX_DEPTH}. The position of the buffer is not changed.
+   *
+   * @param encoded the DER encoded fulfillment
+   * @return true if the fulfillment is well formed
+   */
+  public static boolean isValidFulfillment(ByteBuffer encoded) {
+    return isValidFulfillment(encoded, DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Check that the remaining bytes of a buffer are exactly one well formed fulfillment. The
+   * position of the buffer is not changed.
+   *
+   * @param encoded the DER encoded fulfillment
+   * @param maxDepth the maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments
+   * @return true if the fulfillment is well formed
+   */
+  public static boolean isValidFulfillment(ByteBuffer encoded, int maxDepth) {
+    Scanner scanner = SCANNER.get().reset(encoded);
+    try {
+      return scanner.fulfillment(encoded.remaining(), maxDepth);
+    } finally {
+      scanner.release();
+    }
+  }
+
+  /**
+   * Scans an encoding held in either an array or a buffer, reading bytes at absolute indexes.
+   */
+  private static final class Scanner {
+
+    private static final int PREFIX_FRAME = -1;
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int offset;
+    private int position;
+
+    // Two entries per open fulfillment: PREFIX_FRAME and its end, or the end of the
+    // subfulfillments of a threshold and the end of the threshold
+    private int[] stack = new int[16];
+
+    private Scanner reset(byte[] array, ByteBuffer buffer, int offset) {
+      this.array = array;
+      this.buffer = buffer;
+      this.offset = offset;
+      this.position = 0;
+      return this;
+    }
+
+    private Scanner reset(ByteBuffer buffer) {
+      if (buffer.hasArray()) {
+        return reset(buffer.array(), null, buffer.arrayOffset() + buffer.position());
+      }
+      return reset(null, buffer, buffer.position());
+    }
+
+    private void release() {
+      array = null;
+      buffer = null;
+    }
+
+    private int get(int index) {
+      return (array != null ? array[offset + index] : buffer.get(offset + index)) & 0xff;
+    }
+
+    private boolean fulfillment(int limit, int maxDepth) {
+      int total = limit;
+      int sp = 0;
+
+      for (;;) {
+        // Check one fulfillment, or just the start of a compound one
+        if (position >= limit) {
+          return false;
+        }
+        int type = get(position) - CONSTRUCTED_TAGGED;
+        int end = enter(CONSTRUCTED_TAGGED + type, limit);
+        if (end <= position) {
+          return false;
+        }
+
+        switch (type) {
+          case 0: // PREIMAGE-SHA-256
+            if (skip(TAGGED, end) < 0) {
+              return false;
+            }
+            break;
+
+          case 1: // PREFIX-SHA-256
+            if (skip(TAGGED, end) < 0 || !unsignedInteger(TAGGED + 1, end)
+                || enter(CONSTRUCTED_TAGGED + 2, end) != end || sp / 2 >= maxDepth) {
+              return false;
+            }
+            sp = push(sp, PREFIX_FRAME, end);
+            limit = end;
+            continue;
+
+          case 2: // THRESHOLD-SHA-256
+            if (position < end && get(position) == CONSTRUCTED_TAGGED) {
+              int subfulfillmentsEnd = enter(CONSTRUCTED_TAGGED, end);
+              if (subfulfillmentsEnd < 0 || sp / 2 >= maxDepth) {
+                return false;
+              }
+              if (position < subfulfillmentsEnd) {
+                sp = push(sp, subfulfillmentsEnd, end);
+                limit = subfulfillmentsEnd;
+                continue;
+              }
+            }
+            if (!subconditions(end)) {
+              return false;
+            }
+            break;
+
+          case 3: // RSA-SHA-256
+            int modulusEnd = enter(TAGGED, end);
+            int modulusLength = modulusEnd - position;
+            if (modulusEnd < 0 || modulusLength < RSA_MIN_MODULUS_LENGTH
+                || modulusLength > RSA_MAX_MODULUS_LENGTH || get(position) == 0) {
+              return false;
+            }
+            position = modulusEnd;
+            if (skip(TAGGED + 1, end) != modulusLength) {
+              return false;
+            }
+            break;
+
+          case 4: // ED25519-SHA-256
+            if (skip(TAGGED, end) != ED25519_PUBLIC_KEY_LENGTH
+                || skip(TAGGED + 1, end) != ED25519_SIGNATURE_LENGTH) {
+              return false;
+            }
+            break;
+
+          default:
+            return false;
+        }
+
+        if (position != end) {
+          return false;
+        }
+
+        // Close every fulfillment that ends here, until a threshold has more subfulfillments
+        for (;;) {
+          if (sp == 0) {
+            return position == total;
+          }
+          int first = stack[sp - 2];
+          int second = stack[sp - 1];
+          if (first == PREFIX_FRAME) {
+            if (position != second) {
+              return false;
+            }
+          } else if (position < first) {
+            limit = first;
+            break;
+          } else if (!subconditions(second)) {
+            return false;
+          }
+          sp -= 2;
+        }
+      }
+    }
+
+    /**
+     * Check the subconditions of a threshold, which must be the last thing in it.
+     */
+    private boolean subconditions(int end) {
+      if (enter(CONSTRUCTED_TAGGED + 1, end) != end) {
+        return false;
+      }
+      while (position < end) {
+        if (!condition(end)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean condition(int limit) {
+      if (position >= limit) {
+        return false;
+      }
+      int type = get(position) - CONSTRUCTED_TAGGED;
+      if (type < 0 || type > ConditionType.ED25519_SHA256.getTypeCode()) {
+        return false;
+      }
+      int end = enter(CONSTRUCTED_TAGGED + type, limit);
+      if (end < 0 || skip(TAGGED, end) != FINGERPRINT_LENGTH || !unsignedInteger(TAGGED + 1, end)) {
+        return false;
+      }
+      if ((type == ConditionType.PREFIX_SHA256.getTypeCode()
+          || type == ConditionType.THRESHOLD_SHA256.getTypeCode()) && !bitString(TAGGED + 2, end)) {
+        return false;
+      }
+      return position == end;
+    }
+
+    /**
+     * Check a minimally encoded, non-negative integer that fits in a long.
+     */
+    private boolean unsignedInteger(int tag, int limit) {
+      int end = enter(tag, limit);
+      int length = end - position;
+      if (end < 0 || length < 1 || length > 8) {
+        return false;
+      }
+      int first = get(position);
+      if (first >= 0x80 || (length > 1 && first == 0 && get(position + 1) < 0x80)) {
+        return false;
+      }
+      position = end;
+      return true;
+    }
+
+    /**
+     * Check a bit string, whose unused bits must be zero.
+     */
+    private boolean bitString(int tag, int limit) {
+      int end = enter(tag, limit);
+      int length = end - position;
+      if (end < 0 || length < 1) {
+        return false;
+      }
+      int unusedBits = get(position);
+      if (unusedBits > 7 || (length == 1 && unusedBits != 0)
+          || (get(end - 1) & ((1 << unusedBits) - 1)) != 0) {
+        return false;
+      }
+      position = end;
+      return true;
+    }
+
+    /**
+     * Skip a primitive object.
+     *
+     * @return the length of its value, or -1 if it is not well formed
+     */
+    private int skip(int tag, int limit) {
+      int end = enter(tag, limit);
+      if (end < 0) {
+        return -1;
+      }
+      int length = end - position;
+      position = end;
+      return length;
+    }
+
+    /**
+     * Read the tag and length of an object, leaving the position at the start of its value.
+     *
+     * @return the end of its value, or -1 if the tag is not the one expected or the length is not
+     *         canonical or runs past the limit
+     */
+    private int enter(int tag, int limit) {
+      if (limit - position < 2 || get(position) != tag) {
+        return -1;
+      }
+      int length = get(position + 1);
+      position += 2;
+
+      if (length > 127) {
+        int lengthOfLength = length & 0x7f;
+        if (lengthOfLength == 0 || lengthOfLength > 4 || limit - position < lengthOfLength
+            || get(position) == 0) {
+          return -1;
+        }
+        length = 0;
+        for (int i = 0; i < lengthOfLength; i++) {
+          length = (length << 8) | get(position++);
+        }
+        if (length < 128) {
+          return -1;
+        }
+      }
+
+      if (length < 0 || length > limit - position) {
+        return -1;
+      }
+      return position + length;
+    }
+
+    private int push(int sp, int first, int second) {
+      if (sp + 2 > stack.length) {
+        int[] grown = new int[stack.length * 2];
+        System.arraycopy(stack, 0, grown, 0, sp);
+        stack = grown;
+      }
+      stack[sp] = first;
+      stack[sp + 1] = second;
+      return sp + 2;
+    }
+  }
+
+}
@@ -34,6 +34,46 @@ public class DEROutputStream extends FilterOutputStream {
     }
   }
 
+  /**
+   * Get the length of the tag and length written before contents of the given length.
+   *
+   * @param length the length of the contents
+   * @return the length of the header in bytes
+   */
+  public static int headerLength(int length) {
+    int size = 2;
+    if (length > 127) {
+      for (int val = length; val != 0; val >>>= 8) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Write a tag and length into a buffer, as {@link #writeEncoded(int, byte[])} writes them before
+   * the contents.
+   *
+   * @param buffer the buffer to write to
+   * @param offset the offset to write the header at
+   * @param tag the tag
+   * @param length the length of the contents
+   * @return the offset after the header
+   */
+  public static int writeHeader(byte[] buffer, int offset, int tag, int length) {
+    buffer[offset++] = (byte) tag;
+    if (length > 127) {
+      int size = headerLength(length) - 2;
+      buffer[offset++] = (byte) (size | 0x80);
+      for (int i = (size - 1) * 8; i >= 0; i -= 8) {
+        buffer[offset++] = (byte) (length >> i);
+      }
+    } else {
+      buffer[offset++] = (byte) length;
+    }
+    return offset;
+  }
+
   public void writeEncoded(int tag, byte[] bytes) throws IOException {
     write(tag);
     writeLength(bytes.length);
@@ -0,0 +1,33 @@
+package org.interledger.cryptoconditions.der;
+
+import java.util.Arrays;
+
+/**
+ * The canonical encoding of a fulfillment or condition, as found by the decoder behind
+ * {@link CryptoConditionReader} in its input, for the decoded object to keep.
+ *
+ * Only the decoder can create one, and it hands each one straight to the object that was decoded
+ * from it, so an object can never be given an encoding other than the one it was read from.
+ */
+public final class DecodedEncoding {
+
+  private final byte[] buffer;
+  private final int offset;
+  private final int length;
+
+  DecodedEncoding(byte[] buffer, int offset, int length) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Get a copy of the encoding.
+   *
+   * @return the encoding
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOfRange(buffer, offset, offset + length);
+  }
+
+}
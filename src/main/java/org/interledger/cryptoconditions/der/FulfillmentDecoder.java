@@ -0,0 +1,653 @@
+package org.interledger.cryptoconditions.der;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionBase;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
+import org.interledger.cryptoconditions.UnsignedBigInteger;
+import org.interledger.cryptoconditions.types.ConditionCost;
+import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
+import org.interledger.cryptoconditions.types.Ed25519Sha256Fulfillment;
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.RsaSha256Condition;
+import org.interledger.cryptoconditions.types.RsaSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Condition;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+
+/**
+ * Decodes DER encoded fulfillments and conditions directly from a byte array.
+ *
+ * Fulfillments are decoded without recursion: every PREFIX-SHA-256 and THRESHOLD-SHA-256 being
+ * decoded has a frame on an explicit stack, which is given each subfulfillment as it is completed.
+ * Decoding therefore takes constant thread stack space, and the frames are kept between calls so
+ * that decoding allocates little besides the decoded objects. The nesting is still limited, as
+ * deriving the condition of a fulfillment and verifying it recurse through the tree.
+ *
+ * While decoding, every length, integer and BIT STRING is checked to be in the one form the
+ * encoders write. If the whole input is canonical, every fulfillment and condition decoded from it
+ * retains a copy of its range of the input, so that getting its encoding does not encode it
+ * again. Input that is valid but not canonical is decoded as before and encoded on demand.
+ *
+ * A decoder is not thread safe, {@link CryptoConditionReader} keeps one per thread.
+ */
+final class FulfillmentDecoder {
+
+  private static final int TAGGED = DERTags.TAGGED.getTag();
+  private static final int CONSTRUCTED_TAGGED = DERTags.CONSTRUCTED.getTag() + TAGGED;
+
+  private byte[] buffer;
+  private int position;
+  private int limit;
+
+  private Frame[] frames = new Frame[8];
+  private int depth;
+  private int maxDepth;
+
+  // Whether the input read so far is the canonical encoding of what was decoded from it
+  private boolean canonical;
+
+  // Everything decoded, with the start and end offsets of its encoding
+  private final List<Object> decoded = new ArrayList<>();
+  private int[] spans = new int[32];
+
+  /**
+   * Decode a fulfillment, including its tag and length.
+   *
+   * @param buffer the buffer to read from
+   * @param offset the offset of the fulfillment
+   * @param length the number of bytes that may be read
+   * @param maxDepth the maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments
+   * @return the decoded fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded or nested too deeply
+   */
+  Fulfillment readFulfillment(byte[] buffer, int offset, int length, int maxDepth)
+      throws DEREncodingException {
+    reset(buffer, offset, length, maxDepth);
+    try {
+      ConditionType type = ConditionType.valueOf(readConstructedTag(limit));
+      Fulfillment fulfillment = decode(type, offset, readFulfillmentEnd(limit));
+      retain();
+      return fulfillment;
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Decode the contents of a fulfillment whose tag and length have already been read.
+   *
+   * @param type the type of the fulfillment
+   * @param contents the contents of the fulfillment
+   * @param maxDepth the maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments
+   * @return the decoded fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded or nested too deeply
+   */
+  Fulfillment readFulfillment(ConditionType type, byte[] contents, int maxDepth)
+      throws DEREncodingException {
+    if (contents.length == 0) {
+      throw new DEREncodingException("Encountered an empty fulfillment.");
+    }
+    reset(contents, 0, contents.length, maxDepth);
+    try {
+      // The tag and length are not in the contents, so only what is nested in them is retained
+      Fulfillment fulfillment = decode(type, -1, limit);
+      retain();
+      return fulfillment;
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Compute the cost of the condition of a fulfillment, including its tag and length, without
+   * decoding it.
+   *
+   * @param buffer the buffer to read from
+   * @param offset the offset of the fulfillment
+   * @param length the number of bytes that may be read
+   * @return the type, cost and subtypes of the condition of the fulfillment
+   * @throws DEREncodingException if the fulfillment is not correctly encoded
+   */
+  ConditionCost readFulfillmentCost(byte[] buffer, int offset, int length)
+      throws DEREncodingException {
+    reset(buffer, offset, length, CryptoConditionValidator.DEFAULT_MAX_DEPTH);
+    try {
+      ConditionType type = ConditionType.valueOf(readConstructedTag(limit));
+      return cost(type, readFulfillmentEnd(limit));
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Decode a condition, including its tag and length.
+   *
+   * @param buffer the buffer to read from
+   * @param offset the offset of the condition
+   * @param length the number of bytes that may be read
+   * @return the decoded condition
+   * @throws DEREncodingException if the condition is not correctly encoded
+   */
+  Condition readCondition(byte[] buffer, int offset, int length) throws DEREncodingException {
+    reset(buffer, offset, length, CryptoConditionValidator.DEFAULT_MAX_DEPTH);
+    try {
+      Condition condition = readCondition(limit);
+      retain();
+      return condition;
+    } finally {
+      release();
+    }
+  }
+
+  private Fulfillment decode(ConditionType type, int start, int end)
+      throws DEREncodingException {
+    for (;;) {
+      Fulfillment result;
+      Frame frame;
+
+      // Descend until a fulfillment is complete, pushing a frame for every compound fulfillment
+      switch (type) {
+        case PREIMAGE_SHA256:
+          result = new PreimageSha256Fulfillment(readTaggedValue(0, end));
+          record(result, start, end);
+          break;
+
+        case RSA_SHA256:
+          result = readRsaFulfillment(end);
+          record(result, start, end);
+          break;
+
+        case ED25519_SHA256:
+          byte[] publicKey = readTaggedValue(0, end);
+          byte[] signature = readTaggedValue(1, end);
+          Ed25519Sha256Fulfillment ed25519 = new Ed25519Sha256Fulfillment(publicKey, signature);
+          checkCanonical(Arrays.equals(ed25519.getPublicKey().getAbyte(), publicKey));
+          result = ed25519;
+          record(result, start, end);
+          break;
+
+        case PREFIX_SHA256:
+          frame = push(type, start, end);
+          frame.prefix = readTaggedValue(0, end);
+          frame.maxMessageLength = readInteger(1, end);
+          readConstructedTag(2, end);
+          frame.childLimit = readEnd(end);
+          start = position;
+          type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+          end = readFulfillmentEnd(frame.childLimit);
+          continue;
+
+        case THRESHOLD_SHA256:
+          frame = push(type, start, end);
+          int tag = readConstructedTag(end);
+
+          // It is legal (per the encoding rules) for a THRESHOLD fulfillment to have only
+          // sub-conditions even though it will never validate
+          if (tag == 0) {
+            frame.childLimit = readEnd(end);
+            if (position < frame.childLimit) {
+              start = position;
+              type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+              end = readFulfillmentEnd(frame.childLimit);
+              continue;
+            }
+          } else if (tag != 1) {
+            throw new DEREncodingException("Expected tag: 1, got: " + Integer.toHexString(tag));
+          } else {
+            // The encoders always write the subfulfillments, even if there are none
+            checkCanonical(false);
+          }
+          result = readThreshold(frame, tag == 1);
+          record(result, frame.start, frame.end);
+          pop();
+          break;
+
+        default:
+          throw new DEREncodingException("Unrecogized type: " + type);
+      }
+
+      // Ascend, completing every frame that has all of its subfulfillments
+      for (;;) {
+        if (depth == 0) {
+          return result;
+        }
+        frame = frames[depth - 1];
+        if (frame.type == ConditionType.PREFIX_SHA256) {
+          result = new PrefixSha256Fulfillment(frame.prefix, frame.maxMessageLength, result);
+        } else {
+          frame.subfulfillments.add(result);
+          if (position < frame.childLimit) {
+            break;
+          }
+          result = readThreshold(frame, false);
+        }
+        record(result, frame.start, frame.end);
+        pop();
+      }
+
+      // Descend into the next subfulfillment of the threshold at the top of the stack
+      start = position;
+      type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+      end = readFulfillmentEnd(frame.childLimit);
+    }
+  }
+
+  /**
+   * Walk a fulfillment like {@link #decode(ConditionType, int)}, but only compute costs. Values are
+   * skipped rather than copied and no keys are created.
+   */
+  private ConditionCost cost(ConditionType type, int end) throws DEREncodingException {
+    for (;;) {
+      ConditionCost result;
+      Frame frame;
+
+      switch (type) {
+        case PREIMAGE_SHA256:
+          result = ConditionCost.preimage(skipTaggedValue(0, end));
+          break;
+
+        case RSA_SHA256:
+          result = ConditionCost.rsa(skipTaggedValue(0, end));
+          skipTaggedValue(1, end);
+          break;
+
+        case ED25519_SHA256:
+          skipTaggedValue(0, end);
+          skipTaggedValue(1, end);
+          result = ConditionCost.ed25519();
+          break;
+
+        case PREFIX_SHA256:
+          frame = push(type, position, end);
+          frame.prefixLength = skipTaggedValue(0, end);
+          frame.maxMessageLength = new BigInteger(readTaggedValue(1, end)).longValue();
+          readConstructedTag(2, end);
+          frame.childLimit = readEnd(end);
+          type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+          end = readFulfillmentEnd(frame.childLimit);
+          continue;
+
+        case THRESHOLD_SHA256:
+          frame = push(type, position, end);
+          int tag = readConstructedTag(end);
+          if (tag == 0) {
+            frame.childLimit = readEnd(end);
+            if (position < frame.childLimit) {
+              type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+              end = readFulfillmentEnd(frame.childLimit);
+              continue;
+            }
+          } else if (tag != 1) {
+            throw new DEREncodingException("Expected tag: 1, got: " + Integer.toHexString(tag));
+          }
+          result = thresholdCost(frame, tag == 1);
+          pop();
+          break;
+
+        default:
+          throw new DEREncodingException("Unrecogized type: " + type);
+      }
+
+      for (;;) {
+        if (depth == 0) {
+          return result;
+        }
+        frame = frames[depth - 1];
+        if (frame.type == ConditionType.PREFIX_SHA256) {
+          result = ConditionCost.prefix(frame.prefixLength, frame.maxMessageLength, result);
+        } else {
+          frame.costs.add(result);
+          if (position < frame.childLimit) {
+            break;
+          }
+          result = thresholdCost(frame, false);
+        }
+        pop();
+      }
+
+      type = ConditionType.valueOf(readConstructedTag(frame.childLimit));
+      end = readFulfillmentEnd(frame.childLimit);
+    }
+  }
+
+  /**
+   * Read the costs of the subconditions of a threshold, after all of its subfulfillments.
+   */
+  private ConditionCost thresholdCost(Frame frame, boolean tagRead) throws DEREncodingException {
+    if (!tagRead) {
+      readConstructedTag(1, frame.end);
+    }
+    int conditionsEnd = readEnd(frame.end);
+
+    int threshold = frame.costs.size();
+    while (position < conditionsEnd) {
+      int tag = readConstructedTag(conditionsEnd);
+      ConditionType type = ConditionType.valueOf(tag);
+      int end = readEnd(conditionsEnd);
+
+      skipTaggedValue(0, end);
+      long cost = new BigInteger(readTaggedValue(1, end)).longValue();
+      EnumSet<ConditionType> subtypes = EnumSet.noneOf(ConditionType.class);
+      if (type == ConditionType.PREFIX_SHA256 || type == ConditionType.THRESHOLD_SHA256) {
+        subtypes = ConditionType.getEnumOfTypesFromBitString(readTaggedValue(2, end));
+      }
+      frame.costs.add(ConditionCost.of(type, cost, subtypes));
+    }
+
+    return ConditionCost.threshold(threshold, frame.costs);
+  }
+
+  private Fulfillment readRsaFulfillment(int end) throws DEREncodingException {
+    byte[] modulusBytes = readTaggedValue(0, end);
+    checkCanonical(modulusBytes.length > 0 && modulusBytes[0] != 0);
+    BigInteger modulus = UnsignedBigInteger.fromUnsignedByteArray(modulusBytes);
+    byte[] signature = readTaggedValue(1, end);
+
+    RSAPublicKeySpec rsaSpec = new RSAPublicKeySpec(modulus, RsaSha256Fulfillment.PUBLIC_EXPONENT);
+    try {
+      KeyFactory rsaKeyFactory = KeyFactory.getInstance("RSA");
+      RSAPublicKey publicKey = (RSAPublicKey) rsaKeyFactory.generatePublic(rsaSpec);
+      return new RsaSha256Fulfillment(publicKey, signature);
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      throw new RuntimeException("Error creating RSA key.", e);
+    }
+  }
+
+  /**
+   * Read the subconditions of a threshold, after all of its subfulfillments.
+   */
+  private Fulfillment readThreshold(Frame frame, boolean tagRead) throws DEREncodingException {
+    if (!tagRead) {
+      readConstructedTag(1, frame.end);
+    }
+    int conditionsEnd = readEnd(frame.end);
+
+    List<Condition> subconditions = new ArrayList<>();
+    while (position < conditionsEnd) {
+      subconditions.add(readCondition(conditionsEnd));
+    }
+
+    List<Fulfillment> subfulfillments = frame.subfulfillments;
+    return new ThresholdSha256Fulfillment(
+        subconditions.toArray(new Condition[subconditions.size()]),
+        subfulfillments.toArray(new Fulfillment[subfulfillments.size()]));
+  }
+
+  private Condition readCondition(int limit) throws DEREncodingException {
+    int start = position;
+    int tag = readConstructedTag(limit);
+    ConditionType type = ConditionType.valueOf(tag);
+    int end = readEnd(limit);
+
+    byte[] fingerprint = readTaggedValue(0, end);
+    long cost = readInteger(1, end);
+    EnumSet<ConditionType> subtypes = null;
+    if (type == ConditionType.PREFIX_SHA256 || type == ConditionType.THRESHOLD_SHA256) {
+      byte[] bitString = readTaggedValue(2, end);
+      subtypes = ConditionType.getEnumOfTypesFromBitString(bitString);
+      checkCanonical(Arrays.equals(bitString, ConditionType.getEnumOfTypesAsBitString(subtypes)));
+    }
+
+    Condition condition;
+    switch (type) {
+      case PREIMAGE_SHA256:
+        condition = new PreimageSha256Condition(fingerprint, cost);
+        break;
+      case PREFIX_SHA256:
+        condition = new PrefixSha256Condition(fingerprint, cost, subtypes);
+        break;
+      case THRESHOLD_SHA256:
+        condition = new ThresholdSha256Condition(fingerprint, cost, subtypes);
+        break;
+      case RSA_SHA256:
+        condition = new RsaSha256Condition(fingerprint, cost);
+        break;
+      case ED25519_SHA256:
+        condition = new Ed25519Sha256Condition(fingerprint, cost);
+        break;
+      default:
+        throw new DEREncodingException("Unrecogized tag: " + tag);
+    }
+    record(condition, start, end);
+    return condition;
+  }
+
+  /**
+   * Read a tagged INTEGER, as the encoders write with {@link BigInteger#toByteArray()}.
+   */
+  private long readInteger(int expectedTagNumber, int limit) throws DEREncodingException {
+    byte[] value = readTaggedValue(expectedTagNumber, limit);
+    checkCanonical(value.length > 0 && value.length <= 8 && (value.length == 1
+        || (value[0] != 0 || value[1] < 0) && (value[0] != -1 || value[1] >= 0)));
+    return new BigInteger(value).longValue();
+  }
+
+  private void checkCanonical(boolean check) {
+    canonical &= check;
+  }
+
+  /**
+   * Record a decoded fulfillment or condition and the range of its encoding, which must end where
+   * the decoder is, with nothing after its last value.
+   */
+  private void record(Object object, int start, int end) {
+    checkCanonical(position == end);
+    if (start < 0) {
+      return;
+    }
+    int index = decoded.size();
+    if (2 * index + 2 > spans.length) {
+      spans = Arrays.copyOf(spans, spans.length * 2);
+    }
+    spans[2 * index] = start;
+    spans[2 * index + 1] = end;
+    decoded.add(object);
+  }
+
+  /**
+   * Have everything decoded retain a copy of its encoding, if the whole input was canonical.
+   */
+  private void retain() {
+    if (!canonical) {
+      return;
+    }
+    for (int i = 0; i < decoded.size(); i++) {
+      Object object = decoded.get(i);
+      int offset = spans[2 * i];
+      DecodedEncoding encoding = new DecodedEncoding(buffer, offset, spans[2 * i + 1] - offset);
+      if (object instanceof FulfillmentBase) {
+        ((FulfillmentBase) object).retainEncoding(encoding);
+      } else if (object instanceof ConditionBase) {
+        ((ConditionBase) object).retainEncoding(encoding);
+      }
+    }
+  }
+
+  /**
+   * Read a length and return the offset at which the value that follows it ends.
+   */
+  private int readEnd(int limit) throws DEREncodingException {
+    int length = readLength(limit);
+    return position + length;
+  }
+
+  private int readFulfillmentEnd(int limit) throws DEREncodingException {
+    int end = readEnd(limit);
+    if (end == position) {
+      throw new DEREncodingException("Encountered an empty fulfillment.");
+    }
+    return end;
+  }
+
+  private int readConstructedTag(int limit) throws DEREncodingException {
+    int tag = readTag(limit) - CONSTRUCTED_TAGGED;
+    if (tag < 0) {
+      throw new DEREncodingException("Some flags are missing resulting in a tag value of < 0.");
+    }
+    return tag;
+  }
+
+  private void readConstructedTag(int expectedTag, int limit) throws DEREncodingException {
+    int tag = readConstructedTag(limit);
+    if (tag != expectedTag) {
+      throw new DEREncodingException("Expected tag: " + Integer.toHexString(expectedTag)
+          + ", got: " + Integer.toHexString(tag));
+    }
+  }
+
+  private int readTag(int limit) throws DEREncodingException {
+    if (position >= limit) {
+      throw new DEREncodingException("Expected tag, got end of stream.");
+    }
+    return buffer[position++] & 0xff;
+  }
+
+  /**
+   * Read a length, checking that the value that follows it ends within the limit.
+   */
+  private int readLength(int limit) throws DEREncodingException {
+    if (position >= limit) {
+      throw new DEREncodingException("End of stream found reading length.");
+    }
+    int length = buffer[position++] & 0xff;
+
+    if (length > 127) {
+      int lengthOfLength = length & 0x7f;
+      if (lengthOfLength > 4) {
+        throw new DEREncodingException("DER length more than 4 bytes: " + lengthOfLength);
+      }
+      length = 0;
+      for (int i = 0; i < lengthOfLength; i++) {
+        if (position >= limit) {
+          throw new DEREncodingException("End of stream found reading length.");
+        }
+        length = (length << 8) + (buffer[position++] & 0xff);
+      }
+      if (length < 0) {
+        throw new DEREncodingException("Negative length found: " + length);
+      }
+
+      // The encoders only use the long form when they must, with no leading zero bytes
+      checkCanonical(length > 127 && (length >>> (8 * (lengthOfLength - 1))) != 0);
+    }
+
+    if (length > limit - position) {
+      throw new DEREncodingException("Object length [" + length + "] is larger than allowed.");
+    }
+    return length;
+  }
+
+  private byte[] readTaggedValue(int expectedTagNumber, int limit) throws DEREncodingException {
+    int tag = readTag(limit);
+    if (tag != TAGGED + expectedTagNumber) {
+      throw new DEREncodingException("Expected tag: "
+          + Integer.toHexString(TAGGED + expectedTagNumber) + " but got: "
+          + Integer.toHexString(tag));
+    }
+    int length = readLength(limit);
+    byte[] value = new byte[length];
+    System.arraycopy(buffer, position, value, 0, length);
+    position += length;
+    return value;
+  }
+
+  /**
+   * Skip a tagged value.
+   *
+   * @return the length of the value
+   */
+  private int skipTaggedValue(int expectedTagNumber, int limit) throws DEREncodingException {
+    int tag = readTag(limit);
+    if (tag != TAGGED + expectedTagNumber) {
+      throw new DEREncodingException("Expected tag: "
+          + Integer.toHexString(TAGGED + expectedTagNumber) + " but got: "
+          + Integer.toHexString(tag));
+    }
+    int length = readLength(limit);
+    position += length;
+    return length;
+  }
+
+  private Frame push(ConditionType type, int start, int end) throws DEREncodingException {
+    if (depth >= maxDepth) {
+      throw new DEREncodingException(
+          "Fulfillment is nested more than " + maxDepth + " levels deep.");
+    }
+    if (depth == frames.length) {
+      Frame[] grown = new Frame[depth * 2];
+      System.arraycopy(frames, 0, grown, 0, depth);
+      frames = grown;
+    }
+    Frame frame = frames[depth];
+    if (frame == null) {
+      frame = new Frame();
+      frames[depth] = frame;
+    }
+    depth++;
+    frame.type = type;
+    frame.start = start;
+    frame.end = end;
+    return frame;
+  }
+
+  private void pop() {
+    frames[--depth].clear();
+  }
+
+  private void reset(byte[] buffer, int offset, int length, int maxDepth) {
+    if (offset < 0 || length < 0 || offset + length > buffer.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    this.maxDepth = maxDepth;
+    this.buffer = buffer;
+    this.position = offset;
+    this.limit = offset + length;
+    this.canonical = true;
+  }
+
+  private void release() {
+    while (depth > 0) {
+      pop();
+    }
+    buffer = null;
+    decoded.clear();
+  }
+
+  /**
+   * A compound fulfillment whose subfulfillments are being decoded.
+   */
+  private static final class Frame {
+
+    private final List<Fulfillment> subfulfillments = new ArrayList<>();
+    private final List<ConditionCost> costs = new ArrayList<>();
+    private ConditionType type;
+    private int start;
+    private int end;
+    private int childLimit;
+    private byte[] prefix;
+    private int prefixLength;
+    private long maxMessageLength;
+
+    private void clear() {
+      subfulfillments.clear();
+      costs.clear();
+      prefix = null;
+    }
+  }
+
+}
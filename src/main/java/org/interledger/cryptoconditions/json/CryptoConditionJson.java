@@ -0,0 +1,544 @@
+package org.interledger.cryptoconditions.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.interledger.cryptoconditions.Base64Url;
+import org.interledger.cryptoconditions.CompoundCondition;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.UnsignedBigInteger;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.der.CryptoConditionValidator;
+import org.interledger.cryptoconditions.der.DEREncodingException;
+import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
+import org.interledger.cryptoconditions.types.Ed25519Sha256Fulfillment;
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.RsaSha256Condition;
+import org.interledger.cryptoconditions.types.RsaSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Condition;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+import org.interledger.cryptoconditions.uri.CryptoConditionUri;
+import org.interledger.cryptoconditions.uri.URIEncodingException;
+
+/**
+ * Converts conditions and fulfillments to and from JSON.
+ *
+ * A condition is written as its URI, as its DER encoding in base64url, or as an object with its
+ * type, fingerprint, cost and subtypes. A fulfillment is written as its DER encoding in base64url
+ * or as an object in the form used by the crypto-conditions test vectors, e.g.
+ * {@code {"type":"preimage-sha-256","preimage":"..."}}. The subconditions of a threshold that are
+ * not fulfilled are written as URIs in an extra "subconditions" member. When reading, the form of
+ * each value is recognized from the value itself, and a threshold with more subfulfillments than
+ * its threshold keeps the smallest of them and only the conditions of the others.
+ *
+ * Everything is written and read token by token through {@link JsonWriter} and
+ * {@link JsonReader}, so conditions and fulfillments may be embedded in larger documents.
+ */
+public final class CryptoConditionJson {
+
+  /**
+   * The form in which a condition or fulfillment is written.
+   */
+  public enum Form {
+    /** The URI of a condition, as a string. Fulfillments have no URI form. */
+    URI,
+    /** The DER encoding, as a base64url string. */
+    BINARY,
+    /** An object with a member for each field. */
+    STRUCTURED
+  }
+
+  /**
+   * The maximum number of nested PREFIX-SHA-256 and THRESHOLD-SHA-256 fulfillments that are read.
+   */
+  public static final int MAX_DEPTH = CryptoConditionValidator.DEFAULT_MAX_DEPTH;
+
+  private CryptoConditionJson() {
+  }
+
+  /**
+   * Convert a condition to JSON.
+   *
+   * @param condition the condition to convert
+   * @param form the form to write it in
+   * @return the JSON value
+   */
+  public static String toJson(Condition condition, Form form) {
+    StringBuilder json = new StringBuilder();
+    try {
+      writeCondition(condition, form, new JsonWriter(json));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return json.toString();
+  }
+
+  /**
+   * Convert a fulfillment to JSON.
+   *
+   * @param fulfillment the fulfillment to convert
+   * @param form the form to write it in, {@link Form#BINARY} or {@link Form#STRUCTURED}
+   * @return the JSON value
+   */
+  public static String toJson(Fulfillment fulfillment, Form form) {
+    StringBuilder json = new StringBuilder();
+    try {
+      writeFulfillment(fulfillment, form, new JsonWriter(json));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return json.toString();
+  }
+
+  /**
+   * Write a condition as the next value of a JSON document.
+   *
+   * @param condition the condition to write
+   * @param form the form to write it in
+   * @param out the writer to write to
+   * @throws IOException if the output can't be written to
+   */
+  public static void writeCondition(Condition condition, Form form, JsonWriter out)
+      throws IOException {
+    switch (form) {
+      case URI:
+        out.value(condition.getUri().toString());
+        break;
+      case BINARY:
+        out.value(condition.getEncoded());
+        break;
+      default:
+        out.beginObject();
+        out.name("type").value(typeName(condition.getType()));
+        out.name("fingerprint").value(condition.getFingerprint());
+        out.name("cost").value(condition.getCost());
+        if (condition instanceof CompoundCondition) {
+          out.name("subtypes").beginArray();
+          for (ConditionType subtype : ((CompoundCondition) condition).getSubtypes()) {
+            out.value(typeName(subtype));
+          }
+          out.endArray();
+        }
+        out.endObject();
+    }
+  }
+
+  /**
+   * Write a fulfillment as the next value of a JSON document.
+   *
+   * @param fulfillment the fulfillment to write
+   * @param form the form to write it in, {@link Form#BINARY} or {@link Form#STRUCTURED}
+   * @param out the writer to write to
+   * @throws IOException if the output can't be written to
+   */
+  public static void writeFulfillment(Fulfillment fulfillment, Form form, JsonWriter out)
+      throws IOException {
+    switch (form) {
+      case URI:
+        throw new IllegalArgumentException("Fulfillments can't be written as a URI.");
+      case BINARY:
+        out.value(fulfillment.getEncoded());
+        break;
+      default:
+        writeStructured(fulfillment, out);
+    }
+  }
+
+  /**
+   * Read a condition from a JSON value in any of the forms.
+   *
+   * @param json the JSON value
+   * @return the condition
+   * @throws JsonEncodingException if the JSON is not a valid condition
+   */
+  public static Condition readCondition(CharSequence json) throws JsonEncodingException {
+    JsonReader in = new JsonReader(json);
+    Condition condition = readCondition(in);
+    in.endDocument();
+    return condition;
+  }
+
+  /**
+   * Read a condition in any of the forms as the next value of a JSON document.
+   *
+   * @param in the reader to read from
+   * @return the condition
+   * @throws JsonEncodingException if the value is not a valid condition
+   */
+  public static Condition readCondition(JsonReader in) throws JsonEncodingException {
+    if (in.peek() == '{') {
+      return readStructuredCondition(in);
+    }
+
+    String value = in.nextString();
+    try {
+      if (value.startsWith("ni:")) {
+        return CryptoConditionUri.parse(URI.create(value));
+      }
+      return CryptoConditionReader.readCondition(base64url(value, in));
+    } catch (URIEncodingException | DEREncodingException | IllegalArgumentException e) {
+      throw new JsonEncodingException("Invalid condition: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Read a fulfillment from a JSON value in either of the forms.
+   *
+   * @param json the JSON value
+   * @return the fulfillment
+   * @throws JsonEncodingException if the JSON is not a valid fulfillment
+   */
+  public static Fulfillment readFulfillment(CharSequence json) throws JsonEncodingException {
+    JsonReader in = new JsonReader(json);
+    Fulfillment fulfillment = readFulfillment(in);
+    in.endDocument();
+    return fulfillment;
+  }
+
+  /**
+   * Read a fulfillment in either of the forms as the next value of a JSON document.
+   *
+   * @param in the reader to read from
+   * @return the fulfillment
+   * @throws JsonEncodingException if the value is not a valid fulfillment
+   */
+  public static Fulfillment readFulfillment(JsonReader in) throws JsonEncodingException {
+    if (in.peek() == '{') {
+      return readStructuredFulfillment(in, 0);
+    }
+
+    String value = in.nextString();
+    try {
+      return CryptoConditionReader.readFulfillment(base64url(value, in));
+    } catch (DEREncodingException | IllegalArgumentException e) {
+      throw new JsonEncodingException("Invalid fulfillment: " + e.getMessage(), e);
+    }
+  }
+
+  private static void writeStructured(Fulfillment fulfillment, JsonWriter out)
+      throws IOException {
+    out.beginObject();
+    out.name("type").value(typeName(fulfillment.getType()));
+
+    switch (fulfillment.getType()) {
+      case PREIMAGE_SHA256:
+        out.name("preimage").value(((PreimageSha256Fulfillment) fulfillment).getPreimage());
+        break;
+
+      case PREFIX_SHA256:
+        PrefixSha256Fulfillment prefix = (PrefixSha256Fulfillment) fulfillment;
+        out.name("prefix").value(prefix.getPrefix());
+        out.name("maxMessageLength").value(prefix.getMaxMessageLenght());
+        out.name("subfulfillment");
+        writeStructured(prefix.getSubfulfillment(), out);
+        break;
+
+      case THRESHOLD_SHA256:
+        ThresholdSha256Fulfillment threshold = (ThresholdSha256Fulfillment) fulfillment;
+        out.name("threshold").value(threshold.getThreshold());
+        out.name("subfulfillments").beginArray();
+        for (Fulfillment subfulfillment : threshold.getSubfulfillments()) {
+          writeStructured(subfulfillment, out);
+        }
+        out.endArray();
+        Condition[] subconditions = threshold.getSubconditions();
+        if (subconditions.length > 0) {
+          out.name("subconditions").beginArray();
+          for (Condition subcondition : subconditions) {
+            writeCondition(subcondition, Form.URI, out);
+          }
+          out.endArray();
+        }
+        break;
+
+      case RSA_SHA256:
+        RsaSha256Fulfillment rsa = (RsaSha256Fulfillment) fulfillment;
+        out.name("modulus")
+            .value(UnsignedBigInteger.toUnsignedByteArray(rsa.getPublicKey().getModulus()));
+        out.name("signature").value(rsa.getSignature());
+        break;
+
+      case ED25519_SHA256:
+        Ed25519Sha256Fulfillment ed25519 = (Ed25519Sha256Fulfillment) fulfillment;
+        out.name("publicKey").value(ed25519.getPublicKey().getAbyte());
+        out.name("signature").value(ed25519.getSignature());
+        break;
+
+      default:
+        throw new IllegalArgumentException("Unknown fulfillment type " + fulfillment.getType());
+    }
+
+    out.endObject();
+  }
+
+  private static Condition readStructuredCondition(JsonReader in) throws JsonEncodingException {
+    ConditionType type = null;
+    byte[] fingerprint = null;
+    long cost = -1;
+    EnumSet<ConditionType> subtypes = EnumSet.noneOf(ConditionType.class);
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "type":
+          type = readType(in);
+          break;
+        case "fingerprint":
+          fingerprint = in.nextBytes();
+          break;
+        case "cost":
+          cost = in.nextLong();
+          break;
+        case "subtypes":
+          in.beginArray();
+          while (in.hasNext()) {
+            subtypes.add(readType(in));
+          }
+          in.endArray();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    if (type == null || fingerprint == null || cost < 0) {
+      throw in.error("Condition is missing its type, fingerprint or cost");
+    }
+    if (fingerprint.length != 32) {
+      throw in.error("Fingerprint must be 32 bytes");
+    }
+
+    try {
+      switch (type) {
+        case PREIMAGE_SHA256:
+          return new PreimageSha256Condition(fingerprint, cost);
+        case PREFIX_SHA256:
+          return new PrefixSha256Condition(fingerprint, cost, subtypes);
+        case THRESHOLD_SHA256:
+          return new ThresholdSha256Condition(fingerprint, cost, subtypes);
+        case RSA_SHA256:
+          return new RsaSha256Condition(fingerprint, cost);
+        default:
+          return new Ed25519Sha256Condition(fingerprint, cost);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new JsonEncodingException("Invalid condition: " + e.getMessage(), e);
+    }
+  }
+
+  private static Fulfillment readStructuredFulfillment(JsonReader in, int depth)
+      throws JsonEncodingException {
+    ConditionType type = null;
+    byte[] preimage = null;
+    byte[] prefix = null;
+    long maxMessageLength = -1;
+    Fulfillment subfulfillment = null;
+    // Defaults to the number of subfulfillments
+    boolean hasThreshold = false;
+    int threshold = 0;
+    List<Fulfillment> subfulfillments = null;
+    List<Condition> subconditions = null;
+    byte[] modulus = null;
+    byte[] publicKey = null;
+    byte[] signature = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "type":
+          type = readType(in);
+          break;
+        case "preimage":
+          preimage = in.nextBytes();
+          break;
+        case "prefix":
+          prefix = in.nextBytes();
+          break;
+        case "maxMessageLength":
+          maxMessageLength = in.nextLong();
+          if (maxMessageLength < 0) {
+            throw in.error("Maximum message length must not be negative");
+          }
+          break;
+        case "subfulfillment":
+          subfulfillment = readStructuredFulfillment(in, checkDepth(in, depth));
+          break;
+        case "threshold":
+          threshold = in.nextInt();
+          if (threshold < 0) {
+            throw in.error("Threshold must not be negative");
+          }
+          hasThreshold = true;
+          break;
+        case "subfulfillments":
+          int subdepth = checkDepth(in, depth);
+          subfulfillments = new ArrayList<>();
+          in.beginArray();
+          while (in.hasNext()) {
+            subfulfillments.add(readStructuredFulfillment(in, subdepth));
+          }
+          in.endArray();
+          break;
+        case "subconditions":
+          subconditions = new ArrayList<>();
+          in.beginArray();
+          while (in.hasNext()) {
+            subconditions.add(readCondition(in));
+          }
+          in.endArray();
+          break;
+        case "modulus":
+          modulus = in.nextBytes();
+          break;
+        case "publicKey":
+          publicKey = in.nextBytes();
+          break;
+        case "signature":
+          signature = in.nextBytes();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    if (type == null) {
+      throw in.error("Fulfillment is missing its type");
+    }
+
+    switch (type) {
+      case PREIMAGE_SHA256:
+        require(in, preimage != null, "preimage");
+        return new PreimageSha256Fulfillment(preimage);
+
+      case PREFIX_SHA256:
+        require(in, prefix != null && maxMessageLength >= 0 && subfulfillment != null,
+            "prefix, maxMessageLength and subfulfillment");
+        return new PrefixSha256Fulfillment(prefix, maxMessageLength, subfulfillment);
+
+      case THRESHOLD_SHA256:
+        require(in, subfulfillments != null, "subfulfillments");
+        return threshold(in, hasThreshold ? threshold : subfulfillments.size(), subfulfillments,
+            subconditions != null ? subconditions : new ArrayList<>());
+
+      case RSA_SHA256:
+        require(in, modulus != null && signature != null, "modulus and signature");
+        return new RsaSha256Fulfillment(rsaPublicKey(in, modulus), signature);
+
+      default:
+        require(in, publicKey != null && signature != null, "publicKey and signature");
+        try {
+          return new Ed25519Sha256Fulfillment(publicKey, signature);
+        } catch (IllegalArgumentException e) {
+          throw new JsonEncodingException("Invalid Ed25519 public key.", e);
+        }
+    }
+  }
+
+  /**
+   * Build a threshold fulfillment, keeping the smallest subfulfillments needed to meet the
+   * threshold and only the conditions of the rest.
+   */
+  private static Fulfillment threshold(JsonReader in, int threshold,
+      List<Fulfillment> subfulfillments, List<Condition> subconditions)
+      throws JsonEncodingException {
+    int count = subfulfillments.size();
+    if (threshold > count) {
+      throw in.error("Threshold of " + threshold + " can't be met by " + count
+          + " subfulfillments");
+    }
+
+    Fulfillment[] fulfilled = subfulfillments.toArray(new Fulfillment[count]);
+    if (threshold < count) {
+      int[] sizes = new int[count];
+      Integer[] order = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        sizes[i] = fulfilled[i].getEncoded().length;
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingInt(i -> sizes[i]));
+
+      Fulfillment[] smallest = new Fulfillment[threshold];
+      for (int i = 0; i < count; i++) {
+        Fulfillment subfulfillment = subfulfillments.get(order[i]);
+        if (i < threshold) {
+          smallest[i] = subfulfillment;
+        } else {
+          subconditions.add(subfulfillment.getCondition());
+        }
+      }
+      fulfilled = smallest;
+    }
+
+    return new ThresholdSha256Fulfillment(
+        subconditions.toArray(new Condition[subconditions.size()]), fulfilled);
+  }
+
+  private static RSAPublicKey rsaPublicKey(JsonReader in, byte[] modulus)
+      throws JsonEncodingException {
+    BigInteger n = UnsignedBigInteger.fromUnsignedByteArray(modulus);
+    try {
+      KeyFactory rsaKeyFactory = KeyFactory.getInstance("RSA");
+      return (RSAPublicKey) rsaKeyFactory
+          .generatePublic(new RSAPublicKeySpec(n, RsaSha256Fulfillment.PUBLIC_EXPONENT));
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Error creating RSA key.", e);
+    } catch (InvalidKeySpecException e) {
+      throw new JsonEncodingException("Invalid RSA modulus.", e);
+    }
+  }
+
+  private static ConditionType readType(JsonReader in) throws JsonEncodingException {
+    String name = in.nextString();
+    try {
+      return ConditionType.fromString(name);
+    } catch (IllegalArgumentException e) {
+      throw in.error("Unknown type '" + name + "'");
+    }
+  }
+
+  private static String typeName(ConditionType type) {
+    return type.toString().toLowerCase();
+  }
+
+  private static int checkDepth(JsonReader in, int depth) throws JsonEncodingException {
+    if (depth >= MAX_DEPTH) {
+      throw in.error("Fulfillment is nested more than " + MAX_DEPTH + " levels deep");
+    }
+    return depth + 1;
+  }
+
+  private static void require(JsonReader in, boolean present, String members)
+      throws JsonEncodingException {
+    if (!present) {
+      throw in.error("Fulfillment is missing its " + members);
+    }
+  }
+
+  private static byte[] base64url(String value, JsonReader in) throws JsonEncodingException {
+    try {
+      return Base64Url.decode(value);
+    } catch (IllegalArgumentException e) {
+      throw in.error("Invalid base64url string");
+    }
+  }
+
+}
@@ -0,0 +1,15 @@
+package org.interledger.cryptoconditions.json;
+
+public class JsonEncodingException extends Exception {
+
+  public JsonEncodingException(String message) {
+    super(message);
+  }
+
+  public JsonEncodingException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  private static final long serialVersionUID = 7195243117960365423L;
+
+}
@@ -0,0 +1,438 @@
+package org.interledger.cryptoconditions.json;
+
+import java.nio.CharBuffer;
+
+import org.interledger.cryptoconditions.Base64Url;
+
+/**
+ * Reads JSON from a buffer of characters one token at a time, without building a tree.
+ *
+ * The caller walks the document with {@link #beginObject()}, {@link #hasNext()},
+ * {@link #nextName()} and the value methods, and uses {@link #skipValue()} for anything it is not
+ * interested in. Strings without escapes, which are all the strings in an encoded condition or
+ * fulfillment, are read with a single copy out of the buffer.
+ */
+public final class JsonReader {
+
+  private final CharSequence json;
+  private final int limit;
+  private int position;
+
+  // True if the next element of the current object or array is its first, or its separator has
+  // already been read by hasNext()
+  private boolean first = true;
+
+  /**
+   * Create a reader over a string or other sequence of characters.
+   *
+   * @param json the JSON to read
+   */
+  public JsonReader(CharSequence json) {
+    this.json = json;
+    this.limit = json.length();
+  }
+
+  /**
+   * Create a reader over part of an array of characters, which is not copied.
+   *
+   * @param buffer the buffer holding the JSON to read
+   * @param offset the offset of the JSON in the buffer
+   * @param length the length of the JSON
+   */
+  public JsonReader(char[] buffer, int offset, int length) {
+    this(CharBuffer.wrap(buffer, offset, length));
+  }
+
+  public void beginObject() throws JsonEncodingException {
+    expect('{');
+    first = true;
+  }
+
+  public void endObject() throws JsonEncodingException {
+    expect('}');
+    first = false;
+  }
+
+  public void beginArray() throws JsonEncodingException {
+    expect('[');
+    first = true;
+  }
+
+  public void endArray() throws JsonEncodingException {
+    expect(']');
+    first = false;
+  }
+
+  /**
+   * Check whether the current object or array has another element, reading the separator before
+   * it if it does.
+   *
+   * @return true if there is another element
+   * @throws JsonEncodingException if the end of the input has been reached or there is no separator
+   */
+  public boolean hasNext() throws JsonEncodingException {
+    char c = peek();
+    if (c == '}' || c == ']') {
+      return false;
+    }
+    if (!first) {
+      expect(',');
+      first = true;
+    }
+    return true;
+  }
+
+  /**
+   * Get the next non-whitespace character without reading it, which identifies the type of the next
+   * value: '{', '[', '"', a digit or '-', or the first letter of a literal.
+   *
+   * @return the next character
+   * @throws JsonEncodingException if the end of the input has been reached
+   */
+  public char peek() throws JsonEncodingException {
+    skipWhitespace();
+    if (position >= limit) {
+      throw error("Unexpected end of input");
+    }
+    return json.charAt(position);
+  }
+
+  /**
+   * Read the name of the next member of an object, and the colon after it.
+   *
+   * @return the member name
+   * @throws JsonEncodingException if the next token is not a name
+   */
+  public String nextName() throws JsonEncodingException {
+    String name = nextString();
+    expect(':');
+    first = true;
+    return name;
+  }
+
+  public String nextString() throws JsonEncodingException {
+    expect('"');
+    int start = position;
+    while (position < limit) {
+      char c = json.charAt(position);
+      if (c == '"') {
+        String value = json.subSequence(start, position++).toString();
+        first = false;
+        return value;
+      }
+      if (c == '\\') {
+        return escapedString(start);
+      }
+      if (c < 0x20) {
+        throw error("Unescaped control character in string");
+      }
+      position++;
+    }
+    throw error("Unterminated string");
+  }
+
+  /**
+   * Read a string in base64url encoding without padding, decoding it straight out of the buffer.
+   *
+   * @return the decoded bytes
+   * @throws JsonEncodingException if the next token is not a string or is not base64url
+   */
+  public byte[] nextBytes() throws JsonEncodingException {
+    expect('"');
+    int start = position;
+    while (position < limit && json.charAt(position) != '"') {
+      position++;
+    }
+    if (position >= limit) {
+      throw error("Unterminated string");
+    }
+    try {
+      byte[] value = Base64Url.decode(json, start, position++);
+      first = false;
+      return value;
+    } catch (IllegalArgumentException e) {
+      position = start;
+      throw error("Invalid base64url string");
+    }
+  }
+
+  public long nextLong() throws JsonEncodingException {
+    skipWhitespace();
+    int start = position;
+    boolean negative = position < limit && json.charAt(position) == '-';
+    if (negative) {
+      position++;
+    }
+    long value = 0;
+    int digits = 0;
+    while (position < limit) {
+      char c = json.charAt(position);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      if (value < -(Long.MAX_VALUE / 10) || (digits > 0 && value == 0)) {
+        position = start;
+        throw error(value == 0 ? "Number with a leading zero" : "Number out of range");
+      }
+      // Accumulated negatively so that Long.MIN_VALUE can be read
+      value = value * 10 - (c - '0');
+      if (value > 0) {
+        position = start;
+        throw error("Number out of range");
+      }
+      digits++;
+      position++;
+    }
+    if (digits == 0 || (!negative && value == Long.MIN_VALUE)) {
+      position = start;
+      throw error(digits == 0 ? "Expected a number" : "Number out of range");
+    }
+    if (position < limit && isScalarChar(json.charAt(position))) {
+      position = start;
+      throw error("Expected an integer");
+    }
+    first = false;
+    return negative ? value : -value;
+  }
+
+  public int nextInt() throws JsonEncodingException {
+    int start = position;
+    long value = nextLong();
+    if (value != (int) value) {
+      position = start;
+      throw error("Number out of range");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Skip the next value, including everything nested in it.
+   *
+   * The value is checked as strictly as the other methods check what they read, so a value that
+   * is skipped must still be well formed JSON. Nested values are skipped without recursion.
+   *
+   * @throws JsonEncodingException if the value is not well formed
+   */
+  public void skipValue() throws JsonEncodingException {
+    // The objects and arrays being skipped, innermost last, only created if there are any
+    StringBuilder containers = null;
+    for (;;) {
+      // Skip a scalar, or just the start of an object or array that has elements
+      char c = peek();
+      if (c == '{') {
+        beginObject();
+        if (hasNext()) {
+          containers = push(containers, '{');
+          nextName();
+          continue;
+        }
+        endObject();
+      } else if (c == '[') {
+        beginArray();
+        if (hasNext()) {
+          containers = push(containers, '[');
+          continue;
+        }
+        endArray();
+      } else if (c == '"') {
+        nextString();
+      } else if (c == '-' || (c >= '0' && c <= '9')) {
+        skipNumber();
+      } else {
+        skipLiteral();
+      }
+
+      // Close the objects and arrays the value was the last element of
+      while (containers != null && containers.length() > 0) {
+        int last = containers.length() - 1;
+        if (hasNext()) {
+          if (containers.charAt(last) == '{') {
+            nextName();
+          }
+          break;
+        }
+        if (containers.charAt(last) == '{') {
+          endObject();
+        } else {
+          endArray();
+        }
+        containers.setLength(last);
+      }
+      if (containers == null || containers.length() == 0) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Check that nothing but whitespace is left in the input.
+   *
+   * @throws JsonEncodingException if there is anything else left
+   */
+  public void endDocument() throws JsonEncodingException {
+    skipWhitespace();
+    if (position < limit) {
+      throw error("Unexpected content after the end of the document");
+    }
+  }
+
+  JsonEncodingException error(String message) {
+    return new JsonEncodingException(message + " at position " + position + ".");
+  }
+
+  private String escapedString(int start) throws JsonEncodingException {
+    StringBuilder value = new StringBuilder(position - start + 16);
+    value.append(json, start, position);
+    while (position < limit) {
+      char c = json.charAt(position++);
+      if (c == '"') {
+        first = false;
+        return value.toString();
+      }
+      if (c < 0x20) {
+        position--;
+        throw error("Unescaped control character in string");
+      }
+      if (c != '\\') {
+        value.append(c);
+        continue;
+      }
+      if (position >= limit) {
+        break;
+      }
+      c = json.charAt(position++);
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          value.append(c);
+          break;
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'n':
+          value.append('\n');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'u':
+          if (limit - position < 4) {
+            throw error("Truncated unicode escape");
+          }
+          int code = 0;
+          for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json.charAt(position++), 16);
+            if (digit < 0) {
+              throw error("Invalid unicode escape");
+            }
+            code = (code << 4) | digit;
+          }
+          value.append((char) code);
+          break;
+        default:
+          throw error("Invalid escape '\\" + c + "'");
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private void expect(char expected) throws JsonEncodingException {
+    if (peek() != expected) {
+      throw error("Expected '" + expected + "' but found '" + json.charAt(position) + "'");
+    }
+    position++;
+  }
+
+  private void skipWhitespace() {
+    while (position < limit) {
+      char c = json.charAt(position);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  private static StringBuilder push(StringBuilder containers, char container) {
+    if (containers == null) {
+      containers = new StringBuilder();
+    }
+    return containers.append(container);
+  }
+
+  /**
+   * Skip a number, which may have a fraction and an exponent.
+   */
+  private void skipNumber() throws JsonEncodingException {
+    int start = position;
+    if (json.charAt(position) == '-') {
+      position++;
+    }
+    if (position < limit && json.charAt(position) == '0') {
+      position++;
+    } else if (skipDigits() == 0) {
+      position = start;
+      throw error("Expected a number");
+    }
+    if (position < limit && json.charAt(position) == '.') {
+      position++;
+      if (skipDigits() == 0) {
+        position = start;
+        throw error("Expected digits after the decimal point");
+      }
+    }
+    if (position < limit && (json.charAt(position) == 'e' || json.charAt(position) == 'E')) {
+      position++;
+      if (position < limit && (json.charAt(position) == '+' || json.charAt(position) == '-')) {
+        position++;
+      }
+      if (skipDigits() == 0) {
+        position = start;
+        throw error("Expected digits in the exponent");
+      }
+    }
+    if (position < limit && isScalarChar(json.charAt(position))) {
+      position = start;
+      throw error("Invalid number");
+    }
+    first = false;
+  }
+
+  private int skipDigits() {
+    int start = position;
+    while (position < limit && json.charAt(position) >= '0' && json.charAt(position) <= '9') {
+      position++;
+    }
+    return position - start;
+  }
+
+  /**
+   * Skip one of the literals true, false or null.
+   */
+  private void skipLiteral() throws JsonEncodingException {
+    int start = position;
+    while (position < limit && isScalarChar(json.charAt(position))) {
+      position++;
+    }
+    String literal = json.subSequence(start, position).toString();
+    if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) {
+      position = start;
+      throw error("Unexpected " + (literal.isEmpty()
+          ? "character '" + json.charAt(position) + "'" : "literal '" + literal + "'"));
+    }
+    first = false;
+  }
+
+  private static boolean isScalarChar(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+        || (c >= 'a' && c <= 'z');
+  }
+
+}
@@ -0,0 +1,198 @@
+package org.interledger.cryptoconditions.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.interledger.cryptoconditions.Base64Url;
+
+/**
+ * Writes JSON directly to an {@link Appendable} or {@link OutputStream}, one token at a time.
+ *
+ * Separators are written as they are needed, nothing is buffered and no tree is built. Characters
+ * outside of printable ASCII are escaped, so the output is always ASCII and is written to an
+ * {@link OutputStream} byte for byte. The writer does not check that the tokens it is given form a
+ * valid document.
+ */
+public final class JsonWriter {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Appendable out;
+  private boolean separate;
+
+  // Reused for encoding binary values, sized for a 32 byte fingerprint to start with
+  private char[] scratch = new char[Base64Url.FINGERPRINT_ENCODED_LENGTH];
+
+  /**
+   * Create a writer that appends to the given output, e.g. a {@link StringBuilder}.
+   *
+   * @param out the output to append to
+   */
+  public JsonWriter(Appendable out) {
+    this.out = out;
+  }
+
+  /**
+   * Create a writer that writes ASCII bytes to the given stream.
+   *
+   * @param out the stream to write to
+   */
+  public JsonWriter(OutputStream out) {
+    this(new AsciiAppendable(out));
+  }
+
+  public JsonWriter beginObject() throws IOException {
+    separator();
+    out.append('{');
+    separate = false;
+    return this;
+  }
+
+  public JsonWriter endObject() throws IOException {
+    out.append('}');
+    separate = true;
+    return this;
+  }
+
+  public JsonWriter beginArray() throws IOException {
+    separator();
+    out.append('[');
+    separate = false;
+    return this;
+  }
+
+  public JsonWriter endArray() throws IOException {
+    out.append(']');
+    separate = true;
+    return this;
+  }
+
+  /**
+   * Write the name of the next member of an object.
+   *
+   * @param name the member name
+   * @return this writer
+   * @throws IOException if the output can't be written to
+   */
+  public JsonWriter name(String name) throws IOException {
+    separator();
+    string(name);
+    out.append(':');
+    separate = false;
+    return this;
+  }
+
+  public JsonWriter value(String value) throws IOException {
+    separator();
+    string(value);
+    separate = true;
+    return this;
+  }
+
+  public JsonWriter value(long value) throws IOException {
+    separator();
+    out.append(Long.toString(value));
+    separate = true;
+    return this;
+  }
+
+  /**
+   * Write bytes as a string in base64url encoding without padding.
+   *
+   * @param value the bytes to write
+   * @return this writer
+   * @throws IOException if the output can't be written to
+   */
+  public JsonWriter value(byte[] value) throws IOException {
+    separator();
+    int length = Base64Url.encodedLength(value.length);
+    if (scratch.length < length) {
+      scratch = new char[length];
+    }
+    Base64Url.encode(value, 0, value.length, scratch, 0);
+    out.append('"');
+    if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(scratch, 0, length);
+    } else {
+      for (int i = 0; i < length; i++) {
+        out.append(scratch[i]);
+      }
+    }
+    out.append('"');
+    separate = true;
+    return this;
+  }
+
+  private void separator() throws IOException {
+    if (separate) {
+      out.append(',');
+    }
+  }
+
+  private void string(String value) throws IOException {
+    out.append('"');
+    int start = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+        continue;
+      }
+      out.append(value, start, i);
+      start = i + 1;
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append("\\u").append(HEX[c >>> 12]).append(HEX[(c >>> 8) & 0xf])
+              .append(HEX[(c >>> 4) & 0xf]).append(HEX[c & 0xf]);
+      }
+    }
+    out.append(value, start, length).append('"');
+  }
+
+  /**
+   * Writes characters that are known to be ASCII to a stream, one byte each.
+   */
+  private static final class AsciiAppendable implements Appendable {
+
+    private final OutputStream out;
+
+    private AsciiAppendable(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      for (int i = start; i < end; i++) {
+        out.write(csq.charAt(i));
+      }
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      out.write(c);
+      return this;
+    }
+  }
+
+}
@@ -0,0 +1,421 @@
+package org.interledger.cryptoconditions.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+import org.interledger.cryptoconditions.CompoundCondition;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.der.DEREncodingException;
+import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.interledger.cryptoconditions.types.RsaSha256Condition;
+import org.interledger.cryptoconditions.types.ThresholdSha256Condition;
+
+/**
+ * A compact store of *-SHA-256 conditions held outside of the Java heap.
+ *
+ * Each condition is packed into a fixed-width record of {@link #RECORD_SIZE} bytes (type code,
+ * subtypes bitmask, cost and 32 byte fingerprint) and the records themselves form an open
+ * addressing hash table keyed on type and fingerprint. The backing memory is either a direct
+ * buffer ({@link #allocate(int)}) or a memory-mapped file ({@link #open(Path, int)}), in which case
+ * the contents survive a restart.
+ *
+ * Conditions are materialized on demand from their record, so only the record is resident for
+ * each stored condition.
+ *
+ * This class is not thread-safe.
+ *
+ */
+public class ConditionStore implements Closeable {
+
+  /**
+   * Size in bytes of a single condition record.
+   */
+  public static final int RECORD_SIZE = 48;
+
+  /**
+   * Size in bytes of the header preceding the records.
+   */
+  public static final int HEADER_SIZE = 64;
+
+  private static final int MAGIC = 0x43435331; // "CCS1"
+  private static final int VERSION = 1;
+
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_VERSION = 4;
+  private static final int HEADER_SLOTS = 8;
+  private static final int HEADER_SIZE_FIELD = 12;
+
+  private static final int RECORD_STATE = 0;
+  private static final int RECORD_TYPE = 1;
+  private static final int RECORD_SUBTYPES = 2;
+  private static final int RECORD_COST = 8;
+  private static final int RECORD_FINGERPRINT = 16;
+
+  private static final byte STATE_EMPTY = 0;
+  private static final byte STATE_OCCUPIED = 1;
+
+  private static final int FINGERPRINT_LENGTH = 32;
+
+  private final ByteBuffer buffer;
+  private final FileChannel channel;
+  private final int slots;
+  private final int mask;
+  private int size;
+
+  private ConditionStore(ByteBuffer buffer, FileChannel channel, int slots, int size) {
+    this.buffer = buffer;
+    this.channel = channel;
+    this.slots = slots;
+    this.mask = slots - 1;
+    this.size = size;
+  }
+
+  /**
+   * Create a new store in off-heap memory able to hold at least the given number of conditions.
+   *
+   * @param capacity the maximum number of conditions that will be stored.
+   * @return an empty store
+   */
+  public static ConditionStore allocate(int capacity) {
+    int slots = slotsFor(capacity);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize(slots));
+    writeHeader(buffer, slots);
+    return new ConditionStore(buffer, null, slots, 0);
+  }
+
+  /**
+   * Open a store backed by a memory-mapped file.
+   *
+   * If the file does not exist or is empty a new store able to hold at least the given number of
+   * conditions is created, otherwise the existing store is opened and the capacity is ignored.
+   *
+   * @param file the file backing the store.
+   * @param capacity the maximum number of conditions that will be stored in a new store.
+   * @return the store
+   * @throws IOException if the file can't be opened or does not contain a valid store.
+   */
+  public static ConditionStore open(Path file, int capacity) throws IOException {
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try {
+      if (channel.size() == 0) {
+        int slots = slotsFor(capacity);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bufferSize(slots));
+        writeHeader(buffer, slots);
+        return new ConditionStore(buffer, channel, slots, 0);
+      }
+
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("File is too small to contain a condition store: " + file);
+      }
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_VERSION) != VERSION) {
+        throw new IOException("File does not contain a condition store: " + file);
+      }
+
+      int slots = buffer.getInt(HEADER_SLOTS);
+      if (Integer.bitCount(slots) != 1 || channel.size() != bufferSize(slots)) {
+        throw new IOException("Condition store is corrupt: " + file);
+      }
+
+      return new ConditionStore(buffer, channel, slots, buffer.getInt(HEADER_SIZE_FIELD));
+
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Get the number of conditions in the store.
+   *
+   * @return the number of stored conditions
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the maximum number of conditions this store can hold.
+   *
+   * @return the capacity of the store
+   */
+  public int capacity() {
+    return maxSize(slots);
+  }
+
+  /**
+   * Add a condition to the store.
+   *
+   * @param condition the condition to add.
+   * @return true if the condition was added, false if it was already in the store.
+   * @throws IllegalStateException if the store is full.
+   */
+  public boolean add(Condition condition) {
+
+    byte[] fingerprint = checkFingerprint(condition.getFingerprint());
+    int typeCode = condition.getType().getTypeCode();
+
+    int slot = find(typeCode, fingerprint);
+    if (slot >= 0) {
+      return false;
+    }
+
+    if (size >= capacity()) {
+      throw new IllegalStateException("Condition store is full.");
+    }
+
+    int offset = offset(-slot - 1);
+    buffer.put(offset + RECORD_STATE, STATE_OCCUPIED);
+    buffer.put(offset + RECORD_TYPE, (byte) typeCode);
+    buffer.put(offset + RECORD_SUBTYPES, subtypesMask(condition));
+    buffer.putLong(offset + RECORD_COST, condition.getCost());
+    for (int i = 0; i < FINGERPRINT_LENGTH; i++) {
+      buffer.put(offset + RECORD_FINGERPRINT + i, fingerprint[i]);
+    }
+
+    setSize(size + 1);
+    return true;
+  }
+
+  /**
+   * Check if a condition with the same type and fingerprint is in the store.
+   *
+   * @param condition the condition to look for.
+   * @return true if the condition is in the store.
+   */
+  public boolean contains(Condition condition) {
+    return find(condition.getType().getTypeCode(), condition.getFingerprint()) >= 0;
+  }
+
+  /**
+   * Get the stored condition matching a DER encoded condition.
+   *
+   * @param encoded a DER encoded condition.
+   * @return the condition materialized from the store or null if it is not in the store.
+   * @throws DEREncodingException if the encoded condition can't be decoded.
+   */
+  public Condition get(byte[] encoded) throws DEREncodingException {
+    Condition condition = CryptoConditionReader.readCondition(encoded);
+    int slot = find(condition.getType().getTypeCode(), condition.getFingerprint());
+    if (slot < 0) {
+      return null;
+    }
+    return read(offset(slot));
+  }
+
+  /**
+   * Remove a condition from the store.
+   *
+   * @param condition the condition to remove.
+   * @return true if the condition was removed, false if it was not in the store.
+   */
+  public boolean remove(Condition condition) {
+    int slot = find(condition.getType().getTypeCode(), condition.getFingerprint());
+    if (slot < 0) {
+      return false;
+    }
+
+    delete(slot);
+    setSize(size - 1);
+    return true;
+  }
+
+  /**
+   * Remove the condition matching a DER encoded condition from the store.
+   *
+   * @param encoded a DER encoded condition.
+   * @return true if the condition was removed, false if it was not in the store.
+   * @throws DEREncodingException if the encoded condition can't be decoded.
+   */
+  public boolean remove(byte[] encoded) throws DEREncodingException {
+    return remove(CryptoConditionReader.readCondition(encoded));
+  }
+
+  /**
+   * Flush any changes to a file backed store to disk.
+   */
+  public void force() {
+    if (buffer instanceof MappedByteBuffer) {
+      ((MappedByteBuffer) buffer).force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      force();
+      channel.close();
+    }
+  }
+
+  /**
+   * Find the slot holding the given type and fingerprint.
+   *
+   * @return the slot index if found, otherwise (-(insertion slot) - 1).
+   */
+  private int find(int typeCode, byte[] fingerprint) {
+
+    if (fingerprint.length != FINGERPRINT_LENGTH) {
+      return -1;
+    }
+
+    long f0 = FingerprintHash.getLong(fingerprint, 0);
+    long f1 = FingerprintHash.getLong(fingerprint, 8);
+    long f2 = FingerprintHash.getLong(fingerprint, 16);
+    long f3 = FingerprintHash.getLong(fingerprint, 24);
+
+    int slot = FingerprintHash.hash(typeCode, f0) & mask;
+    while (true) {
+      int offset = offset(slot);
+      if (buffer.get(offset + RECORD_STATE) == STATE_EMPTY) {
+        return -slot - 1;
+      }
+      if (buffer.get(offset + RECORD_TYPE) == typeCode
+          && buffer.getLong(offset + RECORD_FINGERPRINT) == f0
+          && buffer.getLong(offset + RECORD_FINGERPRINT + 8) == f1
+          && buffer.getLong(offset + RECORD_FINGERPRINT + 16) == f2
+          && buffer.getLong(offset + RECORD_FINGERPRINT + 24) == f3) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Empty a slot and shift back any following records that would otherwise become unreachable,
+   * so that no tombstones are left in the table.
+   */
+  private void delete(int slot) {
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (buffer.get(offset(next) + RECORD_STATE) != STATE_EMPTY) {
+      int offset = offset(next);
+      int home = FingerprintHash.hash(buffer.get(offset + RECORD_TYPE),
+          buffer.getLong(offset + RECORD_FINGERPRINT)) & mask;
+
+      // Move the record into the hole if its home slot is not cyclically within (hole, next]
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        copyRecord(offset, offset(hole));
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+
+    int offset = offset(hole);
+    for (int i = 0; i < RECORD_SIZE; i += 8) {
+      buffer.putLong(offset + i, 0L);
+    }
+  }
+
+  private void copyRecord(int from, int to) {
+    for (int i = 0; i < RECORD_SIZE; i += 8) {
+      buffer.putLong(to + i, buffer.getLong(from + i));
+    }
+  }
+
+  private Condition read(int offset) {
+    ConditionType type = ConditionType.valueOf(buffer.get(offset + RECORD_TYPE));
+    long cost = buffer.getLong(offset + RECORD_COST);
+    byte[] fingerprint = new byte[FINGERPRINT_LENGTH];
+    for (int i = 0; i < FINGERPRINT_LENGTH; i++) {
+      fingerprint[i] = buffer.get(offset + RECORD_FINGERPRINT + i);
+    }
+
+    switch (type) {
+      case PREIMAGE_SHA256:
+        return new PreimageSha256Condition(fingerprint, cost);
+      case PREFIX_SHA256:
+        return new PrefixSha256Condition(fingerprint, cost,
+            subtypes(buffer.get(offset + RECORD_SUBTYPES)));
+      case THRESHOLD_SHA256:
+        return new ThresholdSha256Condition(fingerprint, cost,
+            subtypes(buffer.get(offset + RECORD_SUBTYPES)));
+      case RSA_SHA256:
+        return new RsaSha256Condition(fingerprint, cost);
+      case ED25519_SHA256:
+        return new Ed25519Sha256Condition(fingerprint, cost);
+      default:
+        throw new IllegalStateException("Unknown condition type in store: " + type);
+    }
+  }
+
+  private void setSize(int size) {
+    this.size = size;
+    buffer.putInt(HEADER_SIZE_FIELD, size);
+  }
+
+  private static int offset(int slot) {
+    return HEADER_SIZE + slot * RECORD_SIZE;
+  }
+
+  private static byte subtypesMask(Condition condition) {
+    if (!(condition instanceof CompoundCondition)) {
+      return 0;
+    }
+    byte[] bitString =
+        ConditionType.getEnumOfTypesAsBitString(((CompoundCondition) condition).getSubtypes());
+    return bitString.length > 1 ? bitString[1] : 0;
+  }
+
+  private static EnumSet<ConditionType> subtypes(byte mask) {
+    EnumSet<ConditionType> subtypes = EnumSet.noneOf(ConditionType.class);
+    for (ConditionType type : ConditionType.values()) {
+      if ((mask & type.getMask()) == type.getMask()) {
+        subtypes.add(type);
+      }
+    }
+    return subtypes;
+  }
+
+  private static byte[] checkFingerprint(byte[] fingerprint) {
+    if (fingerprint.length != FINGERPRINT_LENGTH) {
+      throw new IllegalArgumentException("Only conditions with a 32 byte fingerprint can be stored.");
+    }
+    return fingerprint;
+  }
+
+  /**
+   * The table is kept at most 7/8 full so probe sequences stay short.
+   */
+  private static int slotsFor(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be greater than 0.");
+    }
+    long minSlots = ((long) capacity * 8 + 6) / 7 + 1;
+    long slots = Long.highestOneBit(minSlots - 1) << 1;
+    if (slots * RECORD_SIZE + HEADER_SIZE > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Capacity is too large: " + capacity);
+    }
+    return (int) slots;
+  }
+
+  private static int maxSize(int slots) {
+    return (int) ((long) slots * 7 / 8);
+  }
+
+  private static int bufferSize(int slots) {
+    return HEADER_SIZE + slots * RECORD_SIZE;
+  }
+
+  private static void writeHeader(ByteBuffer buffer, int slots) {
+    buffer.putInt(HEADER_MAGIC, MAGIC);
+    buffer.putInt(HEADER_VERSION, VERSION);
+    buffer.putInt(HEADER_SLOTS, slots);
+    buffer.putInt(HEADER_SIZE_FIELD, 0);
+  }
+
+}
@@ -0,0 +1,30 @@
+package org.interledger.cryptoconditions.store;
+
+/**
+ * Hashing helpers shared by the fingerprint keyed hash tables in this package.
+ *
+ * Fingerprints are SHA-256 digests so the leading bytes are already uniformly distributed, they
+ * only need to be mixed with the condition type.
+ */
+final class FingerprintHash {
+
+  private FingerprintHash() {
+  }
+
+  static int hash(int typeCode, long leadingFingerprintBytes) {
+    long h = leadingFingerprintBytes ^ (typeCode * 0x9E3779B97F4A7C15L);
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Read 8 bytes of a fingerprint as a big-endian long.
+   */
+  static long getLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,249 @@
+package org.interledger.cryptoconditions.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+
+/**
+ * An index of pending conditions that finds the entries a fulfillment may satisfy.
+ *
+ * Entries are keyed on condition type and fingerprint, as required by the specification, and kept
+ * in an open addressing hash table built from primitive arrays (four longs of fingerprint and a
+ * type byte per slot) so lookups never re-encode or copy conditions. The same condition may be
+ * added several times with different values, e.g. one per pending transfer.
+ *
+ * Candidates returned by {@link #match(Fulfillment)} have the same type and fingerprint as the
+ * condition derived from the fulfillment, callers must still verify the fulfillment against the
+ * message.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <V> the type of value associated with each condition.
+ */
+public class FulfillmentMatcher<V> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int FINGERPRINT_LENGTH = 32;
+
+  // The most slots whose four fingerprint longs per slot still fit in one array
+  private static final int MAX_SLOTS = 1 << 28;
+
+  // Type code + 1 for each slot, 0 for an empty slot
+  private byte[] types;
+  private long[] fingerprints;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  public FulfillmentMatcher() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create an index sized to hold the given number of entries without resizing.
+   *
+   * @param expectedSize the expected number of entries.
+   * @throws IllegalArgumentException if more entries are expected than the index can hold
+   */
+  public FulfillmentMatcher(int expectedSize) {
+    allocate(slotsFor(expectedSize));
+  }
+
+  /**
+   * Get the number of entries in the index.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Add an entry for the given condition.
+   *
+   * @param condition the pending condition.
+   * @param value the value to return when the condition is matched.
+   * @throws IllegalStateException if the index holds the most entries it can
+   */
+  public void add(Condition condition, V value) {
+    byte[] fingerprint = checkFingerprint(condition.getFingerprint());
+
+    if (size + 1 > maxSize(types.length)) {
+      if (types.length >= MAX_SLOTS) {
+        throw new IllegalStateException("The index is full: " + size + " entries.");
+      }
+      resize(types.length * 2);
+    }
+
+    insert(condition.getType().getTypeCode() + 1, FingerprintHash.getLong(fingerprint, 0),
+        FingerprintHash.getLong(fingerprint, 8), FingerprintHash.getLong(fingerprint, 16),
+        FingerprintHash.getLong(fingerprint, 24), value);
+    size++;
+  }
+
+  /**
+   * Remove an entry for the given condition.
+   *
+   * @param condition the pending condition.
+   * @param value the value the condition was added with.
+   * @return true if an entry was removed.
+   */
+  public boolean remove(Condition condition, V value) {
+    byte[] fingerprint = condition.getFingerprint();
+    if (fingerprint.length != FINGERPRINT_LENGTH) {
+      return false;
+    }
+
+    int type = condition.getType().getTypeCode() + 1;
+    long f0 = FingerprintHash.getLong(fingerprint, 0);
+    long f1 = FingerprintHash.getLong(fingerprint, 8);
+    long f2 = FingerprintHash.getLong(fingerprint, 16);
+    long f3 = FingerprintHash.getLong(fingerprint, 24);
+
+    int slot = FingerprintHash.hash(type, f0) & mask;
+    while (types[slot] != 0) {
+      if (matches(slot, type, f0, f1, f2, f3) && Objects.equals(values[slot], value)) {
+        delete(slot);
+        size--;
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Find the entries for the condition derived from the given fulfillment.
+   *
+   * @param fulfillment a fulfillment that has been received.
+   * @return the values of all entries with the same condition type and fingerprint.
+   */
+  public List<V> match(Fulfillment fulfillment) {
+    return get(fulfillment.getCondition());
+  }
+
+  /**
+   * Find the entries for the given condition.
+   *
+   * @param condition the condition to look for.
+   * @return the values of all entries with the same condition type and fingerprint.
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> get(Condition condition) {
+    byte[] fingerprint = condition.getFingerprint();
+    if (fingerprint.length != FINGERPRINT_LENGTH) {
+      return Collections.emptyList();
+    }
+
+    int type = condition.getType().getTypeCode() + 1;
+    long f0 = FingerprintHash.getLong(fingerprint, 0);
+    long f1 = FingerprintHash.getLong(fingerprint, 8);
+    long f2 = FingerprintHash.getLong(fingerprint, 16);
+    long f3 = FingerprintHash.getLong(fingerprint, 24);
+
+    List<V> candidates = Collections.emptyList();
+    int slot = FingerprintHash.hash(type, f0) & mask;
+    while (types[slot] != 0) {
+      if (matches(slot, type, f0, f1, f2, f3)) {
+        if (candidates.isEmpty()) {
+          candidates = new ArrayList<>(1);
+        }
+        candidates.add((V) values[slot]);
+      }
+      slot = (slot + 1) & mask;
+    }
+    return candidates;
+  }
+
+  private boolean matches(int slot, int type, long f0, long f1, long f2, long f3) {
+    int i = slot * 4;
+    return types[slot] == type && fingerprints[i] == f0 && fingerprints[i + 1] == f1
+        && fingerprints[i + 2] == f2 && fingerprints[i + 3] == f3;
+  }
+
+  private void insert(int type, long f0, long f1, long f2, long f3, Object value) {
+    int slot = FingerprintHash.hash(type, f0) & mask;
+    while (types[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    types[slot] = (byte) type;
+    int i = slot * 4;
+    fingerprints[i] = f0;
+    fingerprints[i + 1] = f1;
+    fingerprints[i + 2] = f2;
+    fingerprints[i + 3] = f3;
+    values[slot] = value;
+  }
+
+  /**
+   * Empty a slot and shift back any following entries that would otherwise become unreachable.
+   */
+  private void delete(int slot) {
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (types[next] != 0) {
+      int home = FingerprintHash.hash(types[next], fingerprints[next * 4]) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        types[hole] = types[next];
+        System.arraycopy(fingerprints, next * 4, fingerprints, hole * 4, 4);
+        values[hole] = values[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    types[hole] = 0;
+    values[hole] = null;
+  }
+
+  private void resize(int slots) {
+    byte[] oldTypes = types;
+    long[] oldFingerprints = fingerprints;
+    Object[] oldValues = values;
+
+    allocate(slots);
+    for (int slot = 0; slot < oldTypes.length; slot++) {
+      if (oldTypes[slot] != 0) {
+        int i = slot * 4;
+        insert(oldTypes[slot], oldFingerprints[i], oldFingerprints[i + 1], oldFingerprints[i + 2],
+            oldFingerprints[i + 3], oldValues[slot]);
+      }
+    }
+  }
+
+  private void allocate(int slots) {
+    types = new byte[slots];
+    fingerprints = new long[slots * 4];
+    values = new Object[slots];
+    mask = slots - 1;
+  }
+
+  private static byte[] checkFingerprint(byte[] fingerprint) {
+    if (fingerprint.length != FINGERPRINT_LENGTH) {
+      throw new IllegalArgumentException("Only conditions with a 32 byte fingerprint can be indexed.");
+    }
+    return fingerprint;
+  }
+
+  /**
+   * The table is kept at most 3/4 full so probe sequences stay short.
+   */
+  private static int slotsFor(int expectedSize) {
+    int slots = DEFAULT_CAPACITY;
+    while (maxSize(slots) < expectedSize) {
+      if (slots >= MAX_SLOTS) {
+        throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+      }
+      slots <<= 1;
+    }
+    return slots;
+  }
+
+  private static int maxSize(int slots) {
+    return slots / 4 * 3;
+  }
+
+}
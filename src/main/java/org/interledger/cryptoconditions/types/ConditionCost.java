@@ -0,0 +1,248 @@
+package org.interledger.cryptoconditions.types;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.interledger.cryptoconditions.CompoundCondition;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+
+/**
+ * The type, cost and subtypes of a condition, computed from the structure of its tree alone.
+ *
+ * A tree is described bottom up with the factory methods, e.g.
+ * {@code threshold(2, ed25519(), ed25519(), preimage(32))}, and nothing is hashed or encoded, so
+ * the cost of a tree can be quoted before any of its keys or fingerprints exist. The cost of a
+ * THRESHOLD-SHA-256 condition only needs the largest threshold costs of its subconditions, which
+ * are selected in linear time rather than by sorting all of them.
+ *
+ * The cost of an encoded fulfillment can be computed without decoding it with
+ * {@link org.interledger.cryptoconditions.der.CryptoConditionReader#readFulfillmentCost(byte[])}.
+ */
+public final class ConditionCost {
+
+  private static final long ED25519_COST = 131072;
+
+  // Added to the cost of a PREFIX-SHA-256 condition and for every subcondition of a threshold
+  static final long COMPOUND_COST = 1024;
+
+  private final ConditionType type;
+  private final long cost;
+
+  // The subtypes as a bit mask indexed by type code, which is cheaper to combine than a set
+  private final int subtypes;
+
+  private ConditionCost(ConditionType type, long cost, int subtypes) {
+    this.type = type;
+    this.cost = cost;
+    this.subtypes = subtypes;
+  }
+
+  /**
+   * Describe a PREIMAGE-SHA-256 condition.
+   *
+   * @param preimageLength the length of the preimage in bytes
+   * @return the cost of the condition
+   */
+  public static ConditionCost preimage(int preimageLength) {
+    return new ConditionCost(ConditionType.PREIMAGE_SHA256, preimageLength, 0);
+  }
+
+  /**
+   * Describe an RSA-SHA-256 condition.
+   *
+   * @param modulusLength the length of the modulus in bytes
+   * @return the cost of the condition
+   */
+  public static ConditionCost rsa(int modulusLength) {
+    return new ConditionCost(ConditionType.RSA_SHA256, (long) modulusLength * modulusLength, 0);
+  }
+
+  /**
+   * Describe an ED25519-SHA-256 condition.
+   *
+   * @return the cost of the condition
+   */
+  public static ConditionCost ed25519() {
+    return new ConditionCost(ConditionType.ED25519_SHA256, ED25519_COST, 0);
+  }
+
+  /**
+   * Describe a PREFIX-SHA-256 condition.
+   *
+   * @param prefixLength the length of the prefix in bytes
+   * @param maxMessageLength the maximum length of the message
+   * @param subcondition the subcondition
+   * @return the cost of the condition
+   */
+  public static ConditionCost prefix(int prefixLength, long maxMessageLength,
+      ConditionCost subcondition) {
+    return new ConditionCost(ConditionType.PREFIX_SHA256,
+        prefixLength + maxMessageLength + subcondition.cost + COMPOUND_COST,
+        without(subcondition.subtypesAndType(), ConditionType.PREFIX_SHA256));
+  }
+
+  /**
+   * Describe a THRESHOLD-SHA-256 condition.
+   *
+   * @param threshold the number of subconditions that must be fulfilled
+   * @param subconditions the subconditions
+   * @return the cost of the condition
+   * @throws IllegalArgumentException if the threshold is negative or greater than the number of
+   *         subconditions
+   */
+  public static ConditionCost threshold(int threshold, ConditionCost... subconditions) {
+    long[] costs = new long[subconditions.length];
+    int subtypes = 0;
+    for (int i = 0; i < subconditions.length; i++) {
+      costs[i] = subconditions[i].cost;
+      subtypes |= subconditions[i].subtypesAndType();
+    }
+    return threshold(threshold, costs, subtypes);
+  }
+
+  /**
+   * Describe a THRESHOLD-SHA-256 condition.
+   *
+   * @param threshold the number of subconditions that must be fulfilled
+   * @param subconditions the subconditions
+   * @return the cost of the condition
+   * @throws IllegalArgumentException if the threshold is negative or greater than the number of
+   *         subconditions
+   */
+  public static ConditionCost threshold(int threshold, List<ConditionCost> subconditions) {
+    return threshold(threshold, subconditions.toArray(new ConditionCost[subconditions.size()]));
+  }
+
+  /**
+   * Describe an existing condition, which may be a leaf of a larger tree.
+   *
+   * @param condition the condition
+   * @return the cost of the condition
+   */
+  public static ConditionCost of(Condition condition) {
+    int subtypes = 0;
+    if (condition instanceof CompoundCondition) {
+      for (ConditionType subtype : ((CompoundCondition) condition).getSubtypes()) {
+        subtypes |= bit(subtype);
+      }
+    }
+    return new ConditionCost(condition.getType(), condition.getCost(), subtypes);
+  }
+
+  /**
+   * Describe a condition by its type, cost and subtypes, as read from an encoding.
+   *
+   * @param type the type of the condition
+   * @param cost the cost of the condition
+   * @param subtypes the subtypes of the condition
+   * @return the cost of the condition
+   */
+  public static ConditionCost of(ConditionType type, long cost, EnumSet<ConditionType> subtypes) {
+    int bits = 0;
+    for (ConditionType subtype : subtypes) {
+      bits |= bit(subtype);
+    }
+    return new ConditionCost(type, cost, bits);
+  }
+
+  public ConditionType getType() {
+    return type;
+  }
+
+  public long getCost() {
+    return cost;
+  }
+
+  public EnumSet<ConditionType> getSubtypes() {
+    EnumSet<ConditionType> types = EnumSet.noneOf(ConditionType.class);
+    for (ConditionType subtype : ConditionType.values()) {
+      if ((subtypes & bit(subtype)) != 0) {
+        types.add(subtype);
+      }
+    }
+    return types;
+  }
+
+  @Override
+  public String toString() {
+    return type + " cost=" + cost + " subtypes=" + getSubtypes();
+  }
+
+  /**
+   * Sum the largest costs, as the cost of a THRESHOLD-SHA-256 condition requires.
+   *
+   * The array is reordered.
+   *
+   * @param costs the costs of the subconditions
+   * @param count the number of largest costs to sum
+   * @return the sum of the largest costs
+   */
+  static long sumOfLargest(long[] costs, int count) {
+    if (count < 0 || count > costs.length) {
+      throw new IllegalArgumentException("Threshold must be between 0 and the number of "
+          + "subconditions (" + costs.length + ").");
+    }
+
+    // Quickselect the count largest into the end of the array
+    int first = costs.length - count;
+    int low = 0;
+    int high = costs.length - 1;
+    while (count > 0 && first > 0 && low < high) {
+      int mid = (low + high) >>> 1;
+      long pivot = median(costs[low], costs[mid], costs[high]);
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (costs[i] < pivot) {
+          i++;
+        }
+        while (costs[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          long swap = costs[i];
+          costs[i++] = costs[j];
+          costs[j--] = swap;
+        }
+      }
+      if (first <= j) {
+        high = j;
+      } else if (first >= i) {
+        low = i;
+      } else {
+        break;
+      }
+    }
+
+    long sum = 0;
+    for (int i = first; i < costs.length; i++) {
+      sum += costs[i];
+    }
+    return sum;
+  }
+
+  private static ConditionCost threshold(int threshold, long[] costs, int subtypes) {
+    int count = costs.length;
+    long cost = sumOfLargest(costs, threshold) + COMPOUND_COST * count;
+    return new ConditionCost(ConditionType.THRESHOLD_SHA256, cost,
+        without(subtypes, ConditionType.THRESHOLD_SHA256));
+  }
+
+  private static long median(long a, long b, long c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private int subtypesAndType() {
+    return subtypes | bit(type);
+  }
+
+  private static int bit(ConditionType type) {
+    return 1 << type.getTypeCode();
+  }
+
+  private static int without(int types, ConditionType type) {
+    return types & ~bit(type);
+  }
+
+}
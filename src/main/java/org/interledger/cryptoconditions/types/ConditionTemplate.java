@@ -0,0 +1,289 @@
+package org.interledger.cryptoconditions.types;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.interledger.cryptoconditions.CompoundCondition;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.crypto.Digests;
+import org.interledger.cryptoconditions.der.DEROutputStream;
+import org.interledger.cryptoconditions.der.DERTags;
+
+/**
+ * A condition of a fixed shape with a single varying leaf, e.g. a PREFIX-SHA-256 condition with
+ * a fixed prefix over whichever ED25519-SHA-256 or PREIMAGE-SHA-256 condition a payment uses, or a
+ * 2-of-3 THRESHOLD-SHA-256 condition with two fixed keys and a varying preimage.
+ *
+ * The DER fragments of the fixed parts of the tree, and the sort order and costs of the fixed
+ * subconditions of each threshold, are computed once when the template is created. A condition
+ * is then created with {@link #instantiate(Condition)} by hashing the fixed fragments and the
+ * encoding of the leaf straight into the digest, so that it costs the hash of the leaf and one
+ * hash for each level of the tree above it. The conditions created are the same as those created
+ * with the constructors, and have their fingerprint already computed.
+ *
+ * Templates are immutable and may be shared between threads.
+ */
+public abstract class ConditionTemplate {
+
+  private static final int SEQUENCE = DERTags.CONSTRUCTED.getTag() + DERTags.SEQUENCE.getTag();
+  private static final int TAGGED = DERTags.TAGGED.getTag();
+  private static final int TAGGED_CONSTRUCTED =
+      DERTags.TAGGED.getTag() + DERTags.CONSTRUCTED.getTag();
+
+  private static final ConditionTemplate LEAF = new ConditionTemplate() {
+    @Override
+    public Condition instantiate(Condition leaf) {
+      return leaf;
+    }
+  };
+
+  private ConditionTemplate() {
+  }
+
+  /**
+   * Get the template of the varying leaf itself, from which the other templates are built.
+   *
+   * @return a template that instantiates to its leaf
+   */
+  public static ConditionTemplate leaf() {
+    return LEAF;
+  }
+
+  /**
+   * Create a template of a PREFIX-SHA-256 condition over the varying leaf.
+   *
+   * @param prefix the prefix
+   * @param maxMessageLength the maximum length of the message
+   * @return the template
+   */
+  public static ConditionTemplate prefix(byte[] prefix, long maxMessageLength) {
+    return prefix(prefix, maxMessageLength, LEAF);
+  }
+
+  /**
+   * Create a template of a PREFIX-SHA-256 condition over a subcondition that is itself a
+   * template.
+   *
+   * @param prefix the prefix
+   * @param maxMessageLength the maximum length of the message
+   * @param subcondition the template of the subcondition
+   * @return the template
+   */
+  public static ConditionTemplate prefix(byte[] prefix, long maxMessageLength,
+      ConditionTemplate subcondition) {
+    return new Prefix(prefix.clone(), maxMessageLength, subcondition);
+  }
+
+  /**
+   * Create a template of a THRESHOLD-SHA-256 condition over the varying leaf and some fixed
+   * subconditions.
+   *
+   * @param threshold the number of subconditions that must be fulfilled
+   * @param fixed the fixed subconditions
+   * @return the template
+   * @throws IllegalArgumentException if the threshold is negative or greater than the number of
+   *         subconditions, including the leaf
+   */
+  public static ConditionTemplate threshold(int threshold, Condition... fixed) {
+    return threshold(threshold, LEAF, fixed);
+  }
+
+  /**
+   * Create a template of a THRESHOLD-SHA-256 condition over some fixed subconditions and one that
+   * is itself a template.
+   *
+   * @param threshold the number of subconditions that must be fulfilled
+   * @param subcondition the template of the varying subcondition, which comes first in the
+   *        subconditions of the conditions created
+   * @param fixed the fixed subconditions
+   * @return the template
+   * @throws IllegalArgumentException if the threshold is negative or greater than the number of
+   *         subconditions, including the varying one
+   */
+  public static ConditionTemplate threshold(int threshold, ConditionTemplate subcondition,
+      Condition... fixed) {
+    if (threshold < 0 || threshold > fixed.length + 1) {
+      throw new IllegalArgumentException("Threshold must be between 0 and the number of "
+          + "subconditions (" + (fixed.length + 1) + ").");
+    }
+    return new Threshold(threshold, subcondition, fixed.clone());
+  }
+
+  /**
+   * Create the condition of this shape over the given leaf.
+   *
+   * @param leaf the varying leaf condition
+   * @return the condition
+   */
+  public abstract Condition instantiate(Condition leaf);
+
+  private static final class Prefix extends ConditionTemplate {
+
+    private final byte[] prefix;
+    private final long maxMessageLength;
+    private final ConditionTemplate subcondition;
+
+    // The encoded prefix and maximum message length, which start the fingerprint contents
+    private final byte[] head;
+
+    private Prefix(byte[] prefix, long maxMessageLength, ConditionTemplate subcondition) {
+      this.prefix = prefix;
+      this.maxMessageLength = maxMessageLength;
+      this.subcondition = subcondition;
+
+      byte[] length = BigInteger.valueOf(maxMessageLength).toByteArray();
+      byte[] head = new byte[DEROutputStream.headerLength(prefix.length) + prefix.length
+          + DEROutputStream.headerLength(length.length) + length.length];
+      int offset = DEROutputStream.writeHeader(head, 0, TAGGED, prefix.length);
+      System.arraycopy(prefix, 0, head, offset, prefix.length);
+      offset =
+          DEROutputStream.writeHeader(head, offset + prefix.length, TAGGED + 1, length.length);
+      System.arraycopy(length, 0, head, offset, length.length);
+      this.head = head;
+    }
+
+    @Override
+    public Condition instantiate(Condition leaf) {
+      Condition sub = subcondition.instantiate(leaf);
+      byte[] encoded = sub.getEncoded();
+
+      byte[] header = new byte[12];
+      int contentsLength =
+          head.length + DEROutputStream.headerLength(encoded.length) + encoded.length;
+      int offset = DEROutputStream.writeHeader(header, 0, SEQUENCE, contentsLength);
+      int end =
+          DEROutputStream.writeHeader(header, offset, TAGGED_CONSTRUCTED + 2, encoded.length);
+
+      MessageDigest digest = Digests.sha256();
+      digest.update(header, 0, offset);
+      digest.update(head);
+      digest.update(header, offset, end - offset);
+      digest.update(encoded);
+
+      EnumSet<ConditionType> subtypes = typesOf(sub);
+      subtypes.remove(ConditionType.PREFIX_SHA256);
+      long cost = prefix.length + maxMessageLength + sub.getCost() + ConditionCost.COMPOUND_COST;
+      return new PrefixSha256Condition(prefix, maxMessageLength, sub, digest.digest(), cost,
+          subtypes);
+    }
+  }
+
+  private static final class Threshold extends ConditionTemplate {
+
+    private final int threshold;
+    private final ConditionTemplate subcondition;
+    private final Condition[] fixed;
+
+    // The encoded threshold, which starts the fingerprint contents
+    private final byte[] head;
+
+    // The encodings of the fixed subconditions in sort order, and their total length
+    private final byte[][] sorted;
+    private final int sortedLength;
+
+    // Sums of the largest costs of the fixed subconditions, the i largest at index i
+    private final long[] largest;
+
+    private final EnumSet<ConditionType> fixedTypes = EnumSet.noneOf(ConditionType.class);
+
+    private Threshold(int threshold, ConditionTemplate subcondition, Condition[] fixed) {
+      this.threshold = threshold;
+      this.subcondition = subcondition;
+      this.fixed = fixed;
+
+      byte[] value = BigInteger.valueOf(threshold).toByteArray();
+      head = new byte[DEROutputStream.headerLength(value.length) + value.length];
+      int offset = DEROutputStream.writeHeader(head, 0, TAGGED, value.length);
+      System.arraycopy(value, 0, head, offset, value.length);
+
+      sorted = new byte[fixed.length][];
+      int length = 0;
+      long[] costs = new long[fixed.length];
+      for (int i = 0; i < fixed.length; i++) {
+        sorted[i] = fixed[i].getEncoded();
+        length += sorted[i].length;
+        costs[i] = fixed[i].getCost();
+        fixedTypes.addAll(typesOf(fixed[i]));
+      }
+      Arrays.sort(sorted, ThresholdSha256Condition::compareEncodings);
+      sortedLength = length;
+
+      Arrays.sort(costs);
+      largest = new long[fixed.length + 1];
+      for (int i = 1; i <= fixed.length; i++) {
+        largest[i] = largest[i - 1] + costs[fixed.length - i];
+      }
+    }
+
+    @Override
+    public Condition instantiate(Condition leaf) {
+      Condition sub = subcondition.instantiate(leaf);
+      byte[] encoded = sub.getEncoded();
+
+      // Where the varying subcondition sorts among the fixed ones
+      int position =
+          Arrays.binarySearch(sorted, encoded, ThresholdSha256Condition::compareEncodings);
+      if (position < 0) {
+        position = -position - 1;
+      }
+
+      byte[] header = new byte[12];
+      int subconditionsLength = sortedLength + encoded.length;
+      int contentsLength = head.length + DEROutputStream.headerLength(subconditionsLength)
+          + subconditionsLength;
+      int offset = DEROutputStream.writeHeader(header, 0, SEQUENCE, contentsLength);
+      int end =
+          DEROutputStream.writeHeader(header, offset, TAGGED_CONSTRUCTED + 1, subconditionsLength);
+
+      MessageDigest digest = Digests.sha256();
+      digest.update(header, 0, offset);
+      digest.update(head);
+      digest.update(header, offset, end - offset);
+      for (int i = 0; i < position; i++) {
+        digest.update(sorted[i]);
+      }
+      digest.update(encoded);
+      for (int i = position; i < sorted.length; i++) {
+        digest.update(sorted[i]);
+      }
+
+      Condition[] subconditions = new Condition[fixed.length + 1];
+      subconditions[0] = sub;
+      System.arraycopy(fixed, 0, subconditions, 1, fixed.length);
+
+      EnumSet<ConditionType> subtypes = typesOf(sub);
+      subtypes.addAll(fixedTypes);
+      subtypes.remove(ConditionType.THRESHOLD_SHA256);
+      return new ThresholdSha256Condition(threshold, subconditions, digest.digest(),
+          cost(sub.getCost()) + subconditions.length * ConditionCost.COMPOUND_COST, subtypes);
+    }
+
+    /**
+     * The sum of the largest threshold costs, given the cost of the varying subcondition.
+     */
+    private long cost(long cost) {
+      if (threshold == 0) {
+        return 0;
+      }
+      if (threshold == largest.length) {
+        return largest[threshold - 1] + cost;
+      }
+      return Math.max(largest[threshold - 1] + cost, largest[threshold]);
+    }
+  }
+
+  /**
+   * Get the type of a condition and its subtypes.
+   */
+  private static EnumSet<ConditionType> typesOf(Condition condition) {
+    EnumSet<ConditionType> types = EnumSet.of(condition.getType());
+    if (condition instanceof CompoundCondition) {
+      types.addAll(((CompoundCondition) condition).getSubtypes());
+    }
+    return types;
+  }
+
+}
@@ -7,6 +7,7 @@ import java.io.UncheckedIOException;
 import org.interledger.cryptoconditions.ConditionType;
 import org.interledger.cryptoconditions.Sha256Condition;
 import org.interledger.cryptoconditions.SimpleCondition;
+import org.interledger.cryptoconditions.crypto.Ed25519PublicKeyCache;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 import org.interledger.cryptoconditions.der.DERTags;
 
@@ -14,10 +15,18 @@ import net.i2p.crypto.eddsa.EdDSAPublicKey;
 
 public class Ed25519Sha256Condition extends Sha256Condition implements SimpleCondition {
 
-  private EdDSAPublicKey key;
+  private final EdDSAPublicKey key;
 
+  /**
+   * Create a condition for the given key.
+   * 
+   * The fingerprint is taken from the {@link Ed25519PublicKeyCache#getDefault() shared cache} so
+   * it is only computed once per key.
+   * 
+   * @param key the Ed25519 public key
+   */
   public Ed25519Sha256Condition(EdDSAPublicKey key) {
-    super(calculateCost(key));
+    super(Ed25519PublicKeyCache.getDefault().get(key).getFingerprint(), calculateCost(key));
     // TODO Validate key
 
     this.key = key;
@@ -25,6 +34,7 @@ public class Ed25519Sha256Condition extends Sha256Condition implements SimpleCon
 
   public Ed25519Sha256Condition(byte[] fingerprint, long cost) {
     super(fingerprint, cost);
+    this.key = null;
   }
 
   @Override
@@ -38,7 +48,7 @@ public class Ed25519Sha256Condition extends Sha256Condition implements SimpleCon
       // Write public key
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       DEROutputStream out = new DEROutputStream(baos);
-      out.writeTaggedObject(0, key.getA().toByteArray());
+      out.writeTaggedObject(0, key.getAbyte());
       out.close();
       byte[] buffer = baos.toByteArray();
 
@@ -3,25 +3,24 @@ package org.interledger.cryptoconditions.types;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.security.InvalidKeyException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.Signature;
-import java.security.SignatureException;
 
+import org.interledger.cryptoconditions.CompositeMessage;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
-import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
+import org.interledger.cryptoconditions.crypto.Digests;
+import org.interledger.cryptoconditions.crypto.Ed25519PublicKeyCache;
+import org.interledger.cryptoconditions.crypto.Ed25519Verifier;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 
-import net.i2p.crypto.eddsa.EdDSAEngine;
 import net.i2p.crypto.eddsa.EdDSAPublicKey;
 
-public class Ed25519Sha256Fulfillment implements Fulfillment {
+public class Ed25519Sha256Fulfillment extends FulfillmentBase {
 
-  private Ed25519Sha256Condition condition;
-  private EdDSAPublicKey publicKey;
-  private byte[] signature;
+  private volatile Ed25519Sha256Condition condition;
+  private final EdDSAPublicKey publicKey;
+  private final byte[] signature;
 
   public Ed25519Sha256Fulfillment(EdDSAPublicKey publicKey, byte[] signature) {
     this.signature = new byte[signature.length];
@@ -29,6 +28,17 @@ public class Ed25519Sha256Fulfillment implements Fulfillment {
     this.publicKey = publicKey;
   }
 
+  /**
+   * Create a fulfillment from a raw 32 byte public key, which is decoded via the
+   * {@link Ed25519PublicKeyCache#getDefault() shared cache}.
+   * 
+   * @param publicKey the raw public key
+   * @param signature the signature
+   */
+  public Ed25519Sha256Fulfillment(byte[] publicKey, byte[] signature) {
+    this(Ed25519PublicKeyCache.getDefault().get(publicKey).getPublicKey(), signature);
+  }
+
   @Override
   public ConditionType getType() {
     return ConditionType.ED25519_SHA256;
@@ -45,12 +55,12 @@ public class Ed25519Sha256Fulfillment implements Fulfillment {
   }
 
   @Override
-  public byte[] getEncoded() {
+  protected byte[] encode() {
     try {
       // Build preimage sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       DEROutputStream out = new DEROutputStream(baos);
-      out.writeTaggedObject(0, publicKey.getA().toByteArray());
+      out.writeTaggedObject(0, publicKey.getAbyte());
       out.writeTaggedObject(1, signature);
       out.close();
       byte[] buffer = baos.toByteArray();
@@ -70,14 +80,20 @@ public class Ed25519Sha256Fulfillment implements Fulfillment {
 
   @Override
   public Ed25519Sha256Condition getCondition() {
+    Ed25519Sha256Condition condition = this.condition;
     if (condition == null) {
       condition = new Ed25519Sha256Condition(publicKey);
+      this.condition = condition;
     }
     return condition;
   }
 
   @Override
-  public boolean verify(Condition condition, byte[] message) {
+  public boolean verify(Condition condition, CompositeMessage message) {
+    return message.verify(() -> verifyMessage(condition, message));
+  }
+
+  private boolean verifyMessage(Condition condition, CompositeMessage message) {
 
     if (condition == null) {
       throw new IllegalArgumentException(
@@ -93,30 +109,17 @@ public class Ed25519Sha256Fulfillment implements Fulfillment {
       return false;
     }
 
-    try {
-      Signature edDsaSigner = new EdDSAEngine(getSha512Digest());
-      edDsaSigner.initVerify(publicKey);
-      edDsaSigner.update(message);
-      return edDsaSigner.verify(signature);
-    } catch (InvalidKeyException | SignatureException e) {
-      // TODO Log error or throw?
-      e.printStackTrace();
+    Ed25519Verifier.PublicKey verifierKey =
+        Ed25519PublicKeyCache.getDefault().get(publicKey).getVerifierKey();
+    if (verifierKey == null || signature.length != Ed25519Verifier.SIGNATURE_LENGTH) {
       return false;
     }
 
-  }
-
-  private static MessageDigest _DIGEST;
-
-  private static MessageDigest getSha512Digest() {
-    if (_DIGEST == null) {
-      try {
-        _DIGEST = MessageDigest.getInstance("SHA-512");
-      } catch (NoSuchAlgorithmException e) {
-        throw new RuntimeException(e);
-      }
-    }
-
-    return _DIGEST;
+    // The signature is over SHA-512(R || A || M)
+    MessageDigest digest = Digests.sha512();
+    digest.update(signature, 0, 32);
+    digest.update(publicKey.getAbyte());
+    return message.verify(digest,
+        hash -> Ed25519Verifier.verifyDigest(verifierKey, signature, hash));
   }
 }
@@ -0,0 +1,106 @@
+package org.interledger.cryptoconditions.types;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.stream.IntStream;
+
+import org.interledger.cryptoconditions.crypto.Ed25519PublicKeyCache;
+
+import net.i2p.crypto.eddsa.EdDSAEngine;
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+
+/**
+ * Creates ED25519-SHA-256 fulfillments by signing messages with a private key.
+ *
+ * The private key is expanded and its public key decoded once, when the signer is created, and
+ * each thread signs with its own {@link EdDSAEngine}, so a signer may be shared between threads.
+ * Batches of messages are signed in parallel.
+ */
+public final class Ed25519Sha256Signer {
+
+  /**
+   * Batches smaller than this are signed on the calling thread.
+   */
+  static final int PARALLEL_THRESHOLD = 64;
+
+  private static final ThreadLocal<EdDSAEngine> ENGINE = ThreadLocal.withInitial(() -> {
+    try {
+      return new EdDSAEngine(MessageDigest.getInstance("SHA-512"));
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  });
+
+  private final EdDSAPrivateKey privateKey;
+  private final EdDSAPublicKey publicKey;
+
+  /**
+   * Create a signer for the given private key.
+   *
+   * @param privateKey the private key to sign with
+   */
+  public Ed25519Sha256Signer(EdDSAPrivateKey privateKey) {
+    this.privateKey = privateKey;
+    this.publicKey = Ed25519PublicKeyCache.getDefault().get(privateKey.getAbyte()).getPublicKey();
+  }
+
+  /**
+   * Sign a message with a private key.
+   *
+   * @param privateKey the private key to sign with
+   * @param message the message to sign
+   * @return a fulfillment of the condition for the public key over the message
+   */
+  public static Ed25519Sha256Fulfillment sign(EdDSAPrivateKey privateKey, byte[] message) {
+    return new Ed25519Sha256Signer(privateKey).sign(message);
+  }
+
+  public EdDSAPublicKey getPublicKey() {
+    return publicKey;
+  }
+
+  /**
+   * Get the condition that fulfillments created by this signer fulfill.
+   *
+   * @return the condition for the public key
+   */
+  public Ed25519Sha256Condition getCondition() {
+    return new Ed25519Sha256Condition(publicKey);
+  }
+
+  /**
+   * Sign a message.
+   *
+   * @param message the message to sign
+   * @return a fulfillment of the condition for the public key over the message
+   */
+  public Ed25519Sha256Fulfillment sign(byte[] message) {
+    EdDSAEngine engine = ENGINE.get();
+    try {
+      engine.initSign(privateKey);
+      return new Ed25519Sha256Fulfillment(publicKey, engine.signOneShot(message));
+    } catch (InvalidKeyException | SignatureException e) {
+      throw new RuntimeException("Error signing message.", e);
+    }
+  }
+
+  /**
+   * Sign each of the given messages, in parallel for large batches.
+   *
+   * @param messages the messages to sign
+   * @return the fulfillments, in the same order as the messages
+   */
+  public Ed25519Sha256Fulfillment[] signAll(byte[][] messages) {
+    Ed25519Sha256Fulfillment[] fulfillments = new Ed25519Sha256Fulfillment[messages.length];
+    IntStream indexes = IntStream.range(0, messages.length);
+    if (messages.length >= PARALLEL_THRESHOLD) {
+      indexes = indexes.parallel();
+    }
+    indexes.forEach(i -> fulfillments[i] = sign(messages[i]));
+    return fulfillments;
+  }
+
+}
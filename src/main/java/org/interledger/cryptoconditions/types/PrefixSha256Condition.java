@@ -15,9 +15,9 @@ import org.interledger.cryptoconditions.der.DERTags;
 
 public class PrefixSha256Condition extends CompoundSha256Condition implements CompoundCondition {
 
-  private byte[] prefix;
-  private long maxMessageLength;
-  private Condition subcondition;
+  private final byte[] prefix;
+  private final long maxMessageLength;
+  private final Condition subcondition;
 
   public PrefixSha256Condition(byte[] prefix, long maxMessageLength, Condition subcondition) {
     super(calculateCost(prefix, maxMessageLength, subcondition.getCost()), calculateSubtypes(subcondition));
@@ -27,8 +27,22 @@ public class PrefixSha256Condition extends CompoundSha256Condition implements Co
     this.subcondition = subcondition;
   }
 
+  /**
+   * Create a condition whose fingerprint was already computed, by a {@link ConditionTemplate}.
+   */
+  PrefixSha256Condition(byte[] prefix, long maxMessageLength, Condition subcondition,
+      byte[] fingerprint, long cost, EnumSet<ConditionType> subtypes) {
+    super(fingerprint, cost, subtypes);
+    this.prefix = prefix;
+    this.maxMessageLength = maxMessageLength;
+    this.subcondition = subcondition;
+  }
+
   public PrefixSha256Condition(byte[] fingerprint, long cost, EnumSet<ConditionType> subtypes) {
     super(fingerprint, cost, subtypes);
+    this.prefix = null;
+    this.maxMessageLength = 0;
+    this.subcondition = null;
   }
 
   @Override
@@ -4,20 +4,21 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.util.Arrays;
 
+import org.interledger.cryptoconditions.CompositeMessage;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
 import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 
-public class PrefixSha256Fulfillment implements Fulfillment {
+public class PrefixSha256Fulfillment extends FulfillmentBase {
 
-  private PrefixSha256Condition condition;
-  private Fulfillment subfulfillment;
+  private volatile PrefixSha256Condition condition;
+  private final Fulfillment subfulfillment;
 
-  private long maxMessageLength;
-  private byte[] prefix;
+  private final long maxMessageLength;
+  private final byte[] prefix;
 
   public PrefixSha256Fulfillment(byte[] prefix, long maxMessageLength, Fulfillment subfulfillment) {
     this.prefix = new byte[prefix.length];
@@ -49,7 +50,7 @@ public class PrefixSha256Fulfillment implements Fulfillment {
   }
 
   @Override
-  public byte[] getEncoded() {
+  protected byte[] encode() {
     try {
       // Build prefix sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -75,15 +76,21 @@ public class PrefixSha256Fulfillment implements Fulfillment {
 
   @Override
   public PrefixSha256Condition getCondition() {
+    PrefixSha256Condition condition = this.condition;
     if (condition == null) {
       condition =
           new PrefixSha256Condition(prefix, maxMessageLength, subfulfillment.getCondition());
+      this.condition = condition;
     }
     return condition;
   }
 
   @Override
-  public boolean verify(Condition condition, byte[] message) {
+  public boolean verify(Condition condition, CompositeMessage message) {
+    return message.verify(() -> verifyMessage(condition, message));
+  }
+
+  private boolean verifyMessage(Condition condition, CompositeMessage message) {
 
     if (condition == null) {
       throw new IllegalArgumentException(
@@ -95,20 +102,15 @@ public class PrefixSha256Fulfillment implements Fulfillment {
           "Must verify a PrefixSha256Fulfillment against PrefixSha256Condition.");
     }
 
-    if (message.length > maxMessageLength) {
-      throw new IllegalArgumentException(
-          "Message length exceeds maximum message length of " + maxMessageLength + ".");
-    }
+    message.checkLength(maxMessageLength);
 
     if (!getCondition().equals(condition)) {
       return false;
     }
 
     Condition subcondition = subfulfillment.getCondition();
-    byte[] prefixedMessage = Arrays.copyOf(prefix, prefix.length + message.length);
-    System.arraycopy(message, 0, prefixedMessage, prefix.length, message.length);
 
-    return subfulfillment.verify(subcondition, prefixedMessage);
+    return subfulfillment.verify(subcondition, message.withPrefix(prefix));
   }
 
 }
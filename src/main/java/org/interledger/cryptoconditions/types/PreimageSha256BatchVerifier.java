@@ -0,0 +1,108 @@
+package org.interledger.cryptoconditions.types;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.BitSet;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.crypto.Digests;
+
+/**
+ * Verifies many PREIMAGE-SHA-256 fulfillments at once.
+ *
+ * All the preimages are hashed with the SHA-256 digest of the current thread into one reused
+ * buffer, so a batch costs one digest per preimage and no allocation per preimage.
+ */
+public class PreimageSha256BatchVerifier {
+
+  private static final int DIGEST_LENGTH = 32;
+
+  private static final ThreadLocal<byte[]> DIGEST_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[DIGEST_LENGTH]);
+
+  /**
+   * Check each preimage against the fingerprint at the same index.
+   *
+   * @param preimages the preimages to hash.
+   * @param fingerprints the expected SHA-256 fingerprints.
+   * @return a set with the bit at each index set if the preimage hashes to the fingerprint.
+   */
+  public static BitSet verify(byte[][] preimages, byte[][] fingerprints) {
+    if (preimages.length != fingerprints.length) {
+      throw new IllegalArgumentException("Must provide one fingerprint per preimage.");
+    }
+
+    BitSet results = new BitSet(preimages.length);
+    byte[] digest = DIGEST_BUFFER.get();
+    MessageDigest sha256 = Digests.sha256();
+
+    for (int i = 0; i < preimages.length; i++) {
+      digest(sha256, preimages[i], digest);
+      if (isEqual(digest, fingerprints[i])) {
+        results.set(i);
+      }
+    }
+
+    return results;
+  }
+
+  /**
+   * Verify each fulfillment against the condition at the same index.
+   *
+   * Equivalent to calling {@link PreimageSha256Fulfillment#verify(Condition, byte[])} for each
+   * pair, except that a condition that is not a {@link PreimageSha256Condition} simply fails to
+   * verify.
+   *
+   * @param fulfillments the fulfillments to verify.
+   * @param conditions the conditions to verify them against.
+   * @return a set with the bit at each index set if the fulfillment verified.
+   */
+  public static BitSet verify(PreimageSha256Fulfillment[] fulfillments, Condition[] conditions) {
+    if (fulfillments.length != conditions.length) {
+      throw new IllegalArgumentException("Must provide one condition per fulfillment.");
+    }
+
+    BitSet results = new BitSet(fulfillments.length);
+    byte[] digest = DIGEST_BUFFER.get();
+    MessageDigest sha256 = Digests.sha256();
+
+    for (int i = 0; i < fulfillments.length; i++) {
+      Condition condition = conditions[i];
+      byte[] preimage = fulfillments[i].preimage();
+      if (!(condition instanceof PreimageSha256Condition)
+          || condition.getCost() != preimage.length) {
+        continue;
+      }
+      digest(sha256, preimage, digest);
+      if (((PreimageSha256Condition) condition).isFingerprint(digest)) {
+        results.set(i);
+      }
+    }
+
+    return results;
+  }
+
+  private static void digest(MessageDigest sha256, byte[] preimage, byte[] digest) {
+    try {
+      sha256.update(preimage);
+      sha256.digest(digest, 0, DIGEST_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException("SHA-256 digest failed.", e);
+    }
+  }
+
+  /**
+   * Constant time comparison of a digest with an expected fingerprint.
+   */
+  private static boolean isEqual(byte[] digest, byte[] fingerprint) {
+    if (fingerprint.length != DIGEST_LENGTH) {
+      return false;
+    }
+    int diff = 0;
+    for (int i = 0; i < DIGEST_LENGTH; i++) {
+      diff |= digest[i] ^ fingerprint[i];
+    }
+    return diff == 0;
+  }
+
+}
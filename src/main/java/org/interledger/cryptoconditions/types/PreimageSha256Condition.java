@@ -6,7 +6,7 @@ import org.interledger.cryptoconditions.SimpleCondition;
 
 public class PreimageSha256Condition extends Sha256Condition implements SimpleCondition {
 
-  private byte[] preimage;
+  private final byte[] preimage;
 
   public PreimageSha256Condition(byte[] preimage) {
     super(calculateCost(preimage));
@@ -16,6 +16,7 @@ public class PreimageSha256Condition extends Sha256Condition implements SimpleCo
 
   public PreimageSha256Condition(byte[] fingerprint, long cost) {
     super(fingerprint, cost);
+    this.preimage = null;
   }
 
   @Override
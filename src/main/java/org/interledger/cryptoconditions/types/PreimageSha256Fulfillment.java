@@ -3,22 +3,38 @@ package org.interledger.cryptoconditions.types;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.security.DigestException;
+import java.security.MessageDigest;
 
+import org.interledger.cryptoconditions.CompositeMessage;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
-import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
+import org.interledger.cryptoconditions.crypto.Digests;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 
-public class PreimageSha256Fulfillment implements Fulfillment {
+public class PreimageSha256Fulfillment extends FulfillmentBase {
 
-  private PreimageSha256Condition condition;
-  private byte[] preimage;
+  private static final ThreadLocal<byte[]> DIGEST_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[32]);
+
+  private volatile PreimageSha256Condition condition;
+  private final byte[] preimage;
 
   public PreimageSha256Fulfillment(byte[] preimage) {
     this.preimage = new byte[preimage.length];
     System.arraycopy(preimage, 0, this.preimage, 0, preimage.length);
   }
 
+  /**
+   * Create a fulfillment that takes ownership of the preimage, with a condition whose fingerprint
+   * has already been computed.
+   */
+  PreimageSha256Fulfillment(byte[] preimage, PreimageSha256Condition condition) {
+    this.preimage = preimage;
+    this.condition = condition;
+  }
+
   @Override
   public ConditionType getType() {
     return ConditionType.PREIMAGE_SHA256;
@@ -30,8 +46,15 @@ public class PreimageSha256Fulfillment implements Fulfillment {
     return preimage;
   }
   
+  /**
+   * Get the internal preimage without copying it, for use by batch verification.
+   */
+  byte[] preimage() {
+    return preimage;
+  }
+
   @Override
-  public byte[] getEncoded() {
+  protected byte[] encode() {
     try {
       // Build preimage sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -55,14 +78,16 @@ public class PreimageSha256Fulfillment implements Fulfillment {
 
   @Override
   public PreimageSha256Condition getCondition() {
+    PreimageSha256Condition condition = this.condition;
     if (condition == null) {
       condition = new PreimageSha256Condition(preimage);
+      this.condition = condition;
     }
     return condition;
   }
 
   @Override
-  public boolean verify(Condition condition, byte[] message) {
+  public boolean verify(Condition condition, CompositeMessage message) {
 
     if (condition == null) {
       throw new IllegalArgumentException(
@@ -74,7 +99,21 @@ public class PreimageSha256Fulfillment implements Fulfillment {
           "Must verify a PreimageSha256Fulfillment against PreimageSha256Condition.");
     }
 
-    return getCondition().equals(condition);
+    // Hash the preimage directly rather than building and comparing a condition
+    if (condition.getCost() != preimage.length) {
+      return false;
+    }
+
+    byte[] digest = DIGEST_BUFFER.get();
+    try {
+      MessageDigest sha256 = Digests.sha256();
+      sha256.update(preimage);
+      sha256.digest(digest, 0, digest.length);
+    } catch (DigestException e) {
+      throw new IllegalStateException("SHA-256 digest failed.", e);
+    }
+
+    return ((PreimageSha256Condition) condition).isFingerprint(digest);
   }
   
 }
@@ -0,0 +1,168 @@
+package org.interledger.cryptoconditions.types;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.interledger.cryptoconditions.crypto.Digests;
+
+/**
+ * Generates random PREIMAGE-SHA-256 fulfillments and their conditions in bulk.
+ *
+ * A batch is generated with a single call to the random source into one contiguous buffer of
+ * preimages, each of which is then hashed with the SHA-256 digest of the current thread into a
+ * second contiguous buffer of fingerprints. Fulfillments and conditions are only created when
+ * asked for, and reuse the fingerprints rather than hashing the preimages again.
+ *
+ * A generator may be shared between threads.
+ */
+public final class PreimageSha256Generator {
+
+  /**
+   * The length of the preimages generated by default, in bytes.
+   */
+  public static final int DEFAULT_PREIMAGE_LENGTH = 32;
+
+  private static final int DIGEST_LENGTH = 32;
+
+  private final int preimageLength;
+  private final SecureRandom random;
+
+  public PreimageSha256Generator() {
+    this(DEFAULT_PREIMAGE_LENGTH);
+  }
+
+  /**
+   * Create a generator of preimages of the given length.
+   *
+   * @param preimageLength the length of each preimage in bytes
+   */
+  public PreimageSha256Generator(int preimageLength) {
+    this(preimageLength, new SecureRandom());
+  }
+
+  /**
+   * Create a generator of preimages of the given length drawn from the given random source.
+   *
+   * @param preimageLength the length of each preimage in bytes
+   * @param random the source of the preimages
+   */
+  public PreimageSha256Generator(int preimageLength, SecureRandom random) {
+    if (preimageLength < 1) {
+      throw new IllegalArgumentException("Preimage length must be greater than 0.");
+    }
+    this.preimageLength = preimageLength;
+    this.random = random;
+  }
+
+  public int getPreimageLength() {
+    return preimageLength;
+  }
+
+  /**
+   * Generate a batch of preimages and their fingerprints.
+   *
+   * @param count the number of preimages to generate
+   * @return the batch
+   */
+  public Batch generate(int count) {
+    if (count < 0 || (long) count * Math.max(preimageLength, 32) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid batch size: " + count);
+    }
+
+    byte[] preimages = new byte[count * preimageLength];
+    random.nextBytes(preimages);
+
+    byte[] fingerprints = new byte[count * DIGEST_LENGTH];
+    MessageDigest sha256 = Digests.sha256();
+    try {
+      for (int i = 0; i < count; i++) {
+        sha256.update(preimages, i * preimageLength, preimageLength);
+        sha256.digest(fingerprints, i * DIGEST_LENGTH, DIGEST_LENGTH);
+      }
+    } catch (DigestException e) {
+      throw new IllegalStateException("SHA-256 digest failed.", e);
+    }
+
+    return new Batch(preimageLength, count, preimages, fingerprints);
+  }
+
+  /**
+   * A batch of generated preimages, stored contiguously along with their fingerprints.
+   */
+  public static final class Batch {
+
+    private final int preimageLength;
+    private final int size;
+    private final byte[] preimages;
+    private final byte[] fingerprints;
+
+    private Batch(int preimageLength, int size, byte[] preimages, byte[] fingerprints) {
+      this.preimageLength = preimageLength;
+      this.size = size;
+      this.preimages = preimages;
+      this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Get the number of preimages in the batch.
+     *
+     * @return the size of the batch
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Get a copy of a preimage.
+     *
+     * @param index the index of the preimage
+     * @return the preimage
+     */
+    public byte[] getPreimage(int index) {
+      int offset = checkIndex(index) * preimageLength;
+      return Arrays.copyOfRange(preimages, offset, offset + preimageLength);
+    }
+
+    /**
+     * Get a copy of the fingerprint of a preimage, its SHA-256 digest.
+     *
+     * @param index the index of the preimage
+     * @return the fingerprint
+     */
+    public byte[] getFingerprint(int index) {
+      int offset = checkIndex(index) * DIGEST_LENGTH;
+      return Arrays.copyOfRange(fingerprints, offset, offset + DIGEST_LENGTH);
+    }
+
+    /**
+     * Get the condition for a preimage.
+     *
+     * @param index the index of the preimage
+     * @return the condition
+     */
+    public PreimageSha256Condition getCondition(int index) {
+      return new PreimageSha256Condition(getFingerprint(index), preimageLength);
+    }
+
+    /**
+     * Get the fulfillment for a preimage, whose condition is already computed.
+     *
+     * @param index the index of the preimage
+     * @return the fulfillment
+     */
+    public PreimageSha256Fulfillment getFulfillment(int index) {
+      return new PreimageSha256Fulfillment(getPreimage(index), getCondition(index));
+    }
+
+    private int checkIndex(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return index;
+    }
+
+  }
+
+}
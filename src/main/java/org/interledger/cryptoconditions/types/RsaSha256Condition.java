@@ -15,7 +15,7 @@ import org.interledger.cryptoconditions.der.DERTags;
 
 public class RsaSha256Condition extends Sha256Condition implements SimpleCondition {
 
-  private RSAPublicKey key;
+  private final RSAPublicKey key;
 
   public RsaSha256Condition(RSAPublicKey key) {
     super(calculateCost(key));
@@ -35,6 +35,7 @@ public class RsaSha256Condition extends Sha256Condition implements SimpleConditi
 
   public RsaSha256Condition(byte[] fingerprint, long cost) {
     super(fingerprint, cost);
+    this.key = null;
   }
 
   @Override
@@ -4,25 +4,24 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.Signature;
-import java.security.SignatureException;
 import java.security.interfaces.RSAPublicKey;
 
+import org.interledger.cryptoconditions.CompositeMessage;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
-import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
 import org.interledger.cryptoconditions.UnsignedBigInteger;
+import org.interledger.cryptoconditions.crypto.RsaPssVerifier;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 
-public class RsaSha256Fulfillment implements Fulfillment {
+public class RsaSha256Fulfillment extends FulfillmentBase {
 
   public static final BigInteger PUBLIC_EXPONENT = BigInteger.valueOf(65537);
   
-  private RsaSha256Condition condition;
-  private RSAPublicKey publicKey;
-  private byte[] signature;
+  private volatile RsaSha256Condition condition;
+  private volatile RsaPssVerifier verifier;
+  private final RSAPublicKey publicKey;
+  private final byte[] signature;
 
   public RsaSha256Fulfillment(RSAPublicKey publicKey, byte[] signature) {
     this.signature = new byte[signature.length];
@@ -46,7 +45,7 @@ public class RsaSha256Fulfillment implements Fulfillment {
   }
   
   @Override
-  public byte[] getEncoded() {
+  protected byte[] encode() {
     try {
       // Build preimage sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -71,14 +70,20 @@ public class RsaSha256Fulfillment implements Fulfillment {
 
   @Override
   public RsaSha256Condition getCondition() {
+    RsaSha256Condition condition = this.condition;
     if (condition == null) {
       condition = new RsaSha256Condition(publicKey);
+      this.condition = condition;
     }
     return condition;
   }
 
   @Override
-  public boolean verify(Condition condition, byte[] message) {
+  public boolean verify(Condition condition, CompositeMessage message) {
+    return message.verify(() -> verifyMessage(condition, message));
+  }
+
+  private boolean verifyMessage(Condition condition, CompositeMessage message) {
 
     if (condition == null) {
       throw new IllegalArgumentException(
@@ -94,17 +99,22 @@ public class RsaSha256Fulfillment implements Fulfillment {
       return false;
     }
 
-    try {
-      Signature rsaSigner = Signature.getInstance("SHA256withRSA/PSS");
-      rsaSigner.initVerify(publicKey);
-      rsaSigner.update(message);
-      return rsaSigner.verify(signature);
-    } catch (InvalidKeyException | NoSuchAlgorithmException | SignatureException e) {
-      // TODO Log error or throw?
-      e.printStackTrace();
+    // The condition only commits to the modulus, the exponent of RSA-SHA-256 is always 65537
+    if (!PUBLIC_EXPONENT.equals(publicKey.getPublicExponent())) {
       return false;
     }
 
+    RsaPssVerifier pssVerifier = getVerifier();
+    return message.verifySha256(hash -> pssVerifier.verifyDigest(hash, signature));
+  }
+
+  private RsaPssVerifier getVerifier() {
+    RsaPssVerifier verifier = this.verifier;
+    if (verifier == null) {
+      verifier = new RsaPssVerifier(publicKey);
+      this.verifier = verifier;
+    }
+    return verifier;
   }
 
 }
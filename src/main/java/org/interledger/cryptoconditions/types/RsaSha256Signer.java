@@ -0,0 +1,129 @@
+package org.interledger.cryptoconditions.types;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.stream.IntStream;
+
+import org.interledger.cryptoconditions.crypto.RsaPssVerifier;
+
+/**
+ * Creates RSA-SHA-256 fulfillments by signing messages with a private key, using RSASSA-PSS with
+ * SHA-256, MGF1-SHA-256 and a 32 byte salt.
+ *
+ * Each thread signs with its own {@link Signature}, so a signer may be shared between threads.
+ * Signatures are created by the "RSASSA-PSS" algorithm of the installed providers, or by a provider
+ * of "SHA256withRSA/PSS" such as BouncyCastle if that is not available. Batches of messages are
+ * signed in parallel.
+ */
+public final class RsaSha256Signer {
+
+  private static final PSSParameterSpec PSS_PARAMETERS = new PSSParameterSpec("SHA-256", "MGF1",
+      MGF1ParameterSpec.SHA256, RsaPssVerifier.SALT_LENGTH, 1);
+
+  private static final ThreadLocal<Signature> SIGNATURE =
+      ThreadLocal.withInitial(RsaSha256Signer::newSignature);
+
+  private final RSAPrivateKey privateKey;
+  private final RSAPublicKey publicKey;
+
+  /**
+   * Create a signer for the given key pair.
+   *
+   * @param privateKey the private key to sign with, ideally with its CRT parameters
+   * @param publicKey the public key
+   * @throws IllegalArgumentException if the keys have different moduli, or the public exponent is
+   *         not 65537
+   */
+  public RsaSha256Signer(RSAPrivateKey privateKey, RSAPublicKey publicKey) {
+    if (!privateKey.getModulus().equals(publicKey.getModulus())) {
+      throw new IllegalArgumentException("Private and public key must have the same modulus.");
+    }
+    if (!RsaSha256Fulfillment.PUBLIC_EXPONENT.equals(publicKey.getPublicExponent())) {
+      throw new IllegalArgumentException("RSA public exponent must be 65537.");
+    }
+    this.privateKey = privateKey;
+    this.publicKey = publicKey;
+  }
+
+  /**
+   * Sign a message with a private key.
+   *
+   * @param privateKey the private key to sign with
+   * @param publicKey the public key
+   * @param message the message to sign
+   * @return a fulfillment of the condition for the public key over the message
+   */
+  public static RsaSha256Fulfillment sign(RSAPrivateKey privateKey, RSAPublicKey publicKey,
+      byte[] message) {
+    return new RsaSha256Signer(privateKey, publicKey).sign(message);
+  }
+
+  public RSAPublicKey getPublicKey() {
+    return publicKey;
+  }
+
+  /**
+   * Get the condition that fulfillments created by this signer fulfill.
+   *
+   * @return the condition for the public key
+   */
+  public RsaSha256Condition getCondition() {
+    return new RsaSha256Condition(publicKey);
+  }
+
+  /**
+   * Sign a message.
+   *
+   * @param message the message to sign
+   * @return a fulfillment of the condition for the public key over the message
+   */
+  public RsaSha256Fulfillment sign(byte[] message) {
+    Signature signer = SIGNATURE.get();
+    try {
+      signer.initSign(privateKey);
+      signer.update(message);
+      return new RsaSha256Fulfillment(publicKey, signer.sign());
+    } catch (InvalidKeyException | SignatureException e) {
+      throw new RuntimeException("Error signing message.", e);
+    }
+  }
+
+  /**
+   * Sign each of the given messages, in parallel for large batches.
+   *
+   * @param messages the messages to sign
+   * @return the fulfillments, in the same order as the messages
+   */
+  public RsaSha256Fulfillment[] signAll(byte[][] messages) {
+    RsaSha256Fulfillment[] fulfillments = new RsaSha256Fulfillment[messages.length];
+    IntStream indexes = IntStream.range(0, messages.length);
+    // RSA signing is slow enough that even small batches are worth spreading across cores
+    if (messages.length > 1) {
+      indexes = indexes.parallel();
+    }
+    indexes.forEach(i -> fulfillments[i] = sign(messages[i]));
+    return fulfillments;
+  }
+
+  private static Signature newSignature() {
+    try {
+      Signature signature = Signature.getInstance("RSASSA-PSS");
+      signature.setParameter(PSS_PARAMETERS);
+      return signature;
+    } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+      try {
+        return Signature.getInstance("SHA256withRSA/PSS");
+      } catch (NoSuchAlgorithmException e2) {
+        throw new IllegalStateException("No provider of RSASSA-PSS signatures is installed.", e2);
+      }
+    }
+  }
+
+}
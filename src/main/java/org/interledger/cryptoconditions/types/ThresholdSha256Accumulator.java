@@ -0,0 +1,233 @@
+package org.interledger.cryptoconditions.types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+
+/**
+ * Collects subfulfillments of a THRESHOLD-SHA-256 condition as they arrive, e.g. signatures from
+ * the parties to a multi-signature escrow, until the condition can be fulfilled.
+ *
+ * Each subfulfillment offered is verified once, against the message and its own condition, and
+ * only then recorded against every subcondition it fulfills, including subconditions of nested
+ * THRESHOLD-SHA-256 conditions with known subconditions. Recording updates a count per threshold
+ * on the way up the tree, so checking whether the condition is fulfilled never re-verifies or
+ * re-scans what was accepted before. As soon as the threshold is met the cheapest fulfillment of
+ * the condition is built from the accepted subfulfillments with a
+ * {@link ThresholdSha256FulfillmentBuilder} and {@link #getFulfillment()} completes.
+ *
+ * An accumulator may be shared between threads. Subfulfillments are verified by the thread that
+ * offers them, outside of any lock, and only the bookkeeping that follows is synchronized.
+ */
+public final class ThresholdSha256Accumulator {
+
+  private final ThresholdSha256Condition condition;
+  private final byte[] message;
+  private final Map<Condition, List<Slot>> slots = new HashMap<>();
+  private final List<Fulfillment> accepted = new ArrayList<>();
+  private final CompletableFuture<ThresholdSha256Fulfillment> fulfillment =
+      new CompletableFuture<>();
+
+  private boolean complete;
+  private boolean built;
+
+  /**
+   * Create an accumulator for the given condition.
+   *
+   * @param condition the condition to fulfill
+   * @param message the message the subfulfillments are verified against
+   * @throws IllegalArgumentException if the condition was created from a fingerprint, so that its
+   *         subconditions are not known
+   */
+  public ThresholdSha256Accumulator(ThresholdSha256Condition condition, byte[] message) {
+    if (!condition.hasSubconditions()) {
+      throw new IllegalArgumentException(
+          "Can't accumulate a fulfillment of a condition created from a fingerprint.");
+    }
+    this.condition = condition;
+    this.message = message.clone();
+
+    List<Node> empty = new ArrayList<>();
+    index(new Node(null, 0, condition.getThreshold(), condition.getSubconditions().length),
+        condition, empty);
+    synchronized (this) {
+      for (Node node : empty) {
+        satisfy(node);
+      }
+    }
+    completeIfReady();
+  }
+
+  /**
+   * Offer a subfulfillment, which is verified and accepted if it fulfills a subcondition that is
+   * not yet fulfilled.
+   *
+   * @param subfulfillment the subfulfillment
+   * @return true if the subfulfillment was accepted, false if it is not valid, does not fulfill
+   *         any subcondition or only fulfills subconditions that are already fulfilled
+   */
+  public boolean offer(Fulfillment subfulfillment) {
+    Condition subcondition = subfulfillment.getCondition();
+    List<Slot> matching = slots.get(subcondition);
+    if (matching == null || !isOpen(matching)) {
+      return false;
+    }
+
+    boolean valid;
+    try {
+      valid = subfulfillment.verify(subcondition, message);
+    } catch (IllegalArgumentException e) {
+      valid = false;
+    }
+    if (!valid) {
+      return false;
+    }
+
+    boolean recorded = false;
+    synchronized (this) {
+      for (Slot slot : matching) {
+        recorded |= fill(slot.node, slot.index);
+      }
+      if (recorded) {
+        accepted.add(subfulfillment);
+      }
+    }
+    completeIfReady();
+    return recorded;
+  }
+
+  /**
+   * Check whether enough subfulfillments have been accepted to fulfill the condition.
+   *
+   * @return true if the condition can be fulfilled
+   */
+  public synchronized boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Get the fulfillment of the condition, which completes as soon as enough subfulfillments have
+   * been accepted.
+   *
+   * @return the future fulfillment
+   */
+  public CompletableFuture<ThresholdSha256Fulfillment> getFulfillment() {
+    return fulfillment;
+  }
+
+  public ThresholdSha256Condition getCondition() {
+    return condition;
+  }
+
+  /**
+   * Record where every subcondition of a threshold, and of the thresholds nested in it, occurs.
+   */
+  private void index(Node node, ThresholdSha256Condition threshold, List<Node> empty) {
+    if (node.threshold == 0) {
+      empty.add(node);
+    }
+    Condition[] subconditions = threshold.getSubconditions();
+    for (int i = 0; i < subconditions.length; i++) {
+      Condition subcondition = subconditions[i];
+      slots.computeIfAbsent(subcondition, c -> new ArrayList<>()).add(new Slot(node, i));
+      if (subcondition instanceof ThresholdSha256Condition
+          && ((ThresholdSha256Condition) subcondition).hasSubconditions()) {
+        ThresholdSha256Condition nested = (ThresholdSha256Condition) subcondition;
+        index(new Node(node, i, nested.getThreshold(), nested.getSubconditions().length), nested,
+            empty);
+      }
+    }
+  }
+
+  private synchronized boolean isOpen(List<Slot> matching) {
+    if (complete) {
+      return false;
+    }
+    for (Slot slot : matching) {
+      if (!slot.node.fulfilled[slot.index]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Mark a subcondition fulfilled, and every threshold whose count that completes.
+   *
+   * @return true if the subcondition was not fulfilled before
+   */
+  private boolean fill(Node node, int index) {
+    if (node.fulfilled[index]) {
+      return false;
+    }
+    node.fulfilled[index] = true;
+    if (++node.count == node.threshold) {
+      satisfy(node);
+    }
+    return true;
+  }
+
+  private void satisfy(Node node) {
+    if (node.parent == null) {
+      complete = true;
+    } else {
+      fill(node.parent, node.index);
+    }
+  }
+
+  private void completeIfReady() {
+    List<Fulfillment> candidates;
+    synchronized (this) {
+      if (!complete || built) {
+        return;
+      }
+      built = true;
+      candidates = new ArrayList<>(accepted);
+    }
+    try {
+      fulfillment.complete(new ThresholdSha256FulfillmentBuilder(condition)
+          .addAll(candidates).build());
+    } catch (RuntimeException e) {
+      fulfillment.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * A threshold in the tree, with the subconditions of it that are fulfilled.
+   */
+  private static final class Node {
+
+    private final Node parent;
+    private final int index;
+    private final int threshold;
+    private final boolean[] fulfilled;
+    private int count;
+
+    private Node(Node parent, int index, int threshold, int subconditions) {
+      this.parent = parent;
+      this.index = index;
+      this.threshold = threshold;
+      this.fulfilled = new boolean[subconditions];
+    }
+  }
+
+  /**
+   * An occurrence of a subcondition: its threshold and position in it.
+   */
+  private static final class Slot {
+
+    private final Node node;
+    private final int index;
+
+    private Slot(Node node, int index) {
+      this.node = node;
+      this.index = index;
+    }
+  }
+
+}
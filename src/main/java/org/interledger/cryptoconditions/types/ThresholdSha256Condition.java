@@ -17,8 +17,8 @@ import org.interledger.cryptoconditions.der.DERTags;
 
 public class ThresholdSha256Condition extends CompoundSha256Condition implements CompoundCondition {
 
-  private int threshold;
-  private Condition[] subconditions;
+  private final int threshold;
+  private final Condition[] subconditions;
 
   public ThresholdSha256Condition(int threshold, Condition[] subconditions) {
     super(calculateCost(threshold, subconditions), calculateSubtypes(subconditions));
@@ -28,8 +28,20 @@ public class ThresholdSha256Condition extends CompoundSha256Condition implements
     
   }
 
+  /**
+   * Create a condition whose fingerprint was already computed, by a {@link ConditionTemplate}.
+   */
+  ThresholdSha256Condition(int threshold, Condition[] subconditions, byte[] fingerprint,
+      long cost, EnumSet<ConditionType> subtypes) {
+    super(fingerprint, cost, subtypes);
+    this.threshold = threshold;
+    this.subconditions = subconditions;
+  }
+
   public ThresholdSha256Condition(byte[] fingerprint, long cost, EnumSet<ConditionType> subtypes) {
     super(fingerprint, cost, subtypes);
+    this.threshold = 0;
+    this.subconditions = null;
   }
 
   @Override
@@ -37,12 +49,52 @@ public class ThresholdSha256Condition extends CompoundSha256Condition implements
     return ConditionType.THRESHOLD_SHA256;
   }
 
+  /**
+   * Get the number of subconditions that must be fulfilled.
+   * 
+   * @return the threshold
+   * @throws IllegalStateException if this condition was created from a fingerprint
+   */
+  public int getThreshold() {
+    checkSubconditions();
+    return threshold;
+  }
+
+  /**
+   * Get the subconditions, in the order this condition was created with.
+   * 
+   * @return a copy of the subconditions
+   * @throws IllegalStateException if this condition was created from a fingerprint
+   */
+  public Condition[] getSubconditions() {
+    checkSubconditions();
+    return Arrays.copyOf(subconditions, subconditions.length);
+  }
+
+  /**
+   * Check whether the threshold and subconditions of this condition are known, which they are
+   * unless it was created from a fingerprint.
+   * 
+   * @return true if {@link #getThreshold()} and {@link #getSubconditions()} can be called
+   */
+  public boolean hasSubconditions() {
+    return subconditions != null;
+  }
+
+  private void checkSubconditions() {
+    if (subconditions == null) {
+      throw new IllegalStateException(
+          "The subconditions of a condition created from a fingerprint are not known.");
+    }
+  }
+
   @Override
   protected byte[] getFingerprintContents() {
     try {
       
-      //Sort
-      sortConditions(this.subconditions);
+      //Sort a copy, the subconditions are never modified so this condition can be shared
+      Condition[] subconditions = Arrays.copyOf(this.subconditions, this.subconditions.length);
+      sortConditions(subconditions);
       
       // Build subcondition sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -79,37 +131,40 @@ public class ThresholdSha256Condition extends CompoundSha256Condition implements
    * @param conditions an array of Conditions to sort.
    */
   private static void sortConditions(Condition[] conditions) {
-    Arrays.sort(conditions, (Comparator<? super Condition>) (Condition c1, Condition c2) -> {
-      byte[] c1encoded = c1.getEncoded();
-      byte[] c2encoded = c2.getEncoded();
-
-      int minLength = Math.min(c1encoded.length, c2encoded.length);
-      for (int i = 0; i < minLength; i++) {
-        int result = Integer.compareUnsigned(c1encoded[i], c2encoded[i]);
-        if (result != 0) {
-          return result;
-        }
+    Arrays.sort(conditions, (Comparator<? super Condition>) (Condition c1, Condition c2) ->
+        compareEncodings(c1.getEncoded(), c2.getEncoded()));
+  }
+
+  /**
+   * Compare two encoded conditions in the lexicographic order subconditions are sorted in.
+   * 
+   * @param c1encoded the first encoded condition
+   * @param c2encoded the second encoded condition
+   * @return a negative number, zero or a positive number as the first sorts before, equal to or
+   *         after the second
+   */
+  static int compareEncodings(byte[] c1encoded, byte[] c2encoded) {
+    int minLength = Math.min(c1encoded.length, c2encoded.length);
+    for (int i = 0; i < minLength; i++) {
+      int result = Integer.compareUnsigned(c1encoded[i], c2encoded[i]);
+      if (result != 0) {
+        return result;
       }
-      return c1encoded.length - c2encoded.length;
-    });
+    }
+    return c1encoded.length - c2encoded.length;
   }
 
   private static long calculateCost(int threshold, Condition[] subconditions) {
 
     // sum(biggest(t, subcondition_costs)) + 1024 * n
 
-    // Sort by cost
-    Condition[] sortedConditions = Arrays.copyOf(subconditions, subconditions.length);
-    Arrays.sort(sortedConditions, (Comparator<? super Condition>) (Condition c1, Condition c2) -> {
-      return (int) (c2.getCost() - c1.getCost());
-    });
-
-    long largestCosts = 0;
-    for (int i = 0; i < threshold; i++) {
-      largestCosts += sortedConditions[i].getCost();
+    long[] costs = new long[subconditions.length];
+    for (int i = 0; i < subconditions.length; i++) {
+      costs[i] = subconditions[i].getCost();
     }
 
-    return largestCosts + (subconditions.length * 1024);
+    return ConditionCost.sumOfLargest(costs, threshold)
+        + (subconditions.length * ConditionCost.COMPOUND_COST);
   }
   
   private static EnumSet<ConditionType> calculateSubtypes(Condition[] subconditions) {
@@ -4,16 +4,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 
+import org.interledger.cryptoconditions.CompositeMessage;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
 import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.FulfillmentBase;
 import org.interledger.cryptoconditions.der.DEROutputStream;
 
-public class ThresholdSha256Fulfillment implements Fulfillment {
+public class ThresholdSha256Fulfillment extends FulfillmentBase {
 
-  private ThresholdSha256Condition condition;
-  private Condition[] subconditions;
-  private Fulfillment[] subfulfillments;
+  private volatile ThresholdSha256Condition condition;
+  private final Condition[] subconditions;
+  private final Fulfillment[] subfulfillments;
 
   public ThresholdSha256Fulfillment(Condition[] subconditions, Fulfillment[] subfulfillments) {
     this.subconditions = new Condition[subconditions.length];
@@ -47,12 +49,12 @@ public class ThresholdSha256Fulfillment implements Fulfillment {
   }
   
   @Override
-  public byte[] getEncoded() {
+  protected byte[] encode() {
     try {
       // Build subfulfillment sequence
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       for (int i = 0; i < subfulfillments.length; i++) {
-        baos.write(subfulfillments[i].getEncoded());
+        subfulfillments[i].writeTo(baos);
       }
       baos.close();
       byte[] fulfillmentsBuffer = baos.toByteArray();
@@ -99,6 +101,7 @@ public class ThresholdSha256Fulfillment implements Fulfillment {
 
   @Override
   public ThresholdSha256Condition getCondition() {
+    ThresholdSha256Condition condition = this.condition;
     if (condition == null) {
 
       // Copy all subconditions into another array along with the conditions derived from all
@@ -112,12 +115,17 @@ public class ThresholdSha256Fulfillment implements Fulfillment {
         j++;
       }
       condition = new ThresholdSha256Condition(subfulfillments.length, allConditions);
+      this.condition = condition;
     }
     return condition;
   }
 
   @Override
-  public boolean verify(Condition condition, byte[] message) {
+  public boolean verify(Condition condition, CompositeMessage message) {
+    return message.verify(() -> verifyMessage(condition, message));
+  }
+
+  private boolean verifyMessage(Condition condition, CompositeMessage message) {
 
     if (condition == null) {
       throw new IllegalArgumentException(
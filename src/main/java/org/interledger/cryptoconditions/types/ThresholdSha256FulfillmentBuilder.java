@@ -0,0 +1,160 @@
+package org.interledger.cryptoconditions.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+
+/**
+ * Builds the cheapest fulfillment of a THRESHOLD-SHA-256 condition from a pool of candidate
+ * subfulfillments.
+ *
+ * Candidates are matched to the subconditions of the condition by their own condition, which may
+ * be given in any order and may include fulfillments of unrelated conditions. Of the subconditions
+ * that can be fulfilled, the threshold with the lowest cost are fulfilled, ties going to the
+ * candidate with the shortest encoding, and the rest are only included as conditions. The cost of
+ * a condition is the upper bound on the work to verify its fulfillment, so the fulfillment that is
+ * built is the one that is cheapest to verify. Where several candidates fulfill the same
+ * condition the one with the shortest encoding is kept.
+ *
+ * A subcondition that is itself a THRESHOLD-SHA-256 condition with known subconditions, and has no
+ * candidate of its own, is built from the same pool, so a whole tree can be fulfilled from a flat
+ * set of leaf fulfillments.
+ *
+ * A builder is not thread safe.
+ */
+public final class ThresholdSha256FulfillmentBuilder {
+
+  private final ThresholdSha256Condition condition;
+  private final Map<Condition, Candidate> candidates = new HashMap<>();
+
+  /**
+   * Create a builder for the given condition.
+   *
+   * @param condition the condition to build a fulfillment of
+   * @throws IllegalArgumentException if the condition was created from a fingerprint, so that its
+   *         subconditions are not known
+   */
+  public ThresholdSha256FulfillmentBuilder(ThresholdSha256Condition condition) {
+    if (!condition.hasSubconditions()) {
+      throw new IllegalArgumentException(
+          "Can't build a fulfillment of a condition created from a fingerprint.");
+    }
+    this.condition = condition;
+  }
+
+  /**
+   * Add a candidate subfulfillment.
+   *
+   * @param fulfillment the candidate
+   * @return this builder
+   */
+  public ThresholdSha256FulfillmentBuilder add(Fulfillment fulfillment) {
+    Candidate candidate = new Candidate(fulfillment);
+    candidates.merge(fulfillment.getCondition(), candidate,
+        (current, added) -> added.encodedLength < current.encodedLength ? added : current);
+    return this;
+  }
+
+  /**
+   * Add candidate subfulfillments.
+   *
+   * @param fulfillments the candidates
+   * @return this builder
+   */
+  public ThresholdSha256FulfillmentBuilder addAll(Iterable<? extends Fulfillment> fulfillments) {
+    for (Fulfillment fulfillment : fulfillments) {
+      add(fulfillment);
+    }
+    return this;
+  }
+
+  /**
+   * Build the cheapest fulfillment of the condition from the candidates added so far.
+   *
+   * @return the fulfillment
+   * @throws IllegalStateException if the candidates can't fulfill enough subconditions
+   */
+  public ThresholdSha256Fulfillment build() {
+    Candidate built = build(condition, new HashMap<>());
+    if (built == null) {
+      throw new IllegalStateException("Fewer than " + condition.getThreshold() + " of the "
+          + condition.getSubconditions().length + " subconditions can be fulfilled.");
+    }
+    return (ThresholdSha256Fulfillment) built.fulfillment;
+  }
+
+  /**
+   * Build a fulfillment of a threshold condition, or return null if there are not enough
+   * candidates. Nested thresholds are built at most once, and remembered in {@code nested}.
+   */
+  private Candidate build(ThresholdSha256Condition target, Map<Condition, Candidate> nested) {
+    int threshold = target.getThreshold();
+    Condition[] subconditions = target.getSubconditions();
+    int count = subconditions.length;
+
+    Candidate[] matched = new Candidate[count];
+    Integer[] fulfillable = new Integer[count];
+    int fulfillableCount = 0;
+    for (int i = 0; i < count; i++) {
+      Condition subcondition = subconditions[i];
+      Candidate candidate = candidates.get(subcondition);
+      if (candidate == null && subcondition instanceof ThresholdSha256Condition
+          && ((ThresholdSha256Condition) subcondition).hasSubconditions()) {
+        if (nested.containsKey(subcondition)) {
+          candidate = nested.get(subcondition);
+        } else {
+          candidate = build((ThresholdSha256Condition) subcondition, nested);
+          nested.put(subcondition, candidate);
+        }
+      }
+      if (candidate != null) {
+        matched[i] = candidate;
+        fulfillable[fulfillableCount++] = i;
+      }
+    }
+
+    if (fulfillableCount < threshold) {
+      return null;
+    }
+
+    // Fulfill the cheapest, keeping the original order among equals
+    Arrays.sort(fulfillable, 0, fulfillableCount, (a, b) -> {
+      int result = Long.compare(subconditions[a].getCost(), subconditions[b].getCost());
+      return result != 0 ? result : Integer.compare(matched[a].encodedLength,
+          matched[b].encodedLength);
+    });
+    boolean[] selected = new boolean[count];
+    for (int i = 0; i < threshold; i++) {
+      selected[fulfillable[i]] = true;
+    }
+
+    Fulfillment[] subfulfillments = new Fulfillment[threshold];
+    Condition[] unfulfilled = new Condition[count - threshold];
+    int f = 0;
+    int c = 0;
+    for (int i = 0; i < count; i++) {
+      if (selected[i]) {
+        subfulfillments[f++] = matched[i].fulfillment;
+      } else {
+        unfulfilled[c++] = subconditions[i];
+      }
+    }
+
+    return new Candidate(new ThresholdSha256Fulfillment(unfulfilled, subfulfillments));
+  }
+
+  private static final class Candidate {
+
+    private final Fulfillment fulfillment;
+    private final int encodedLength;
+
+    private Candidate(Fulfillment fulfillment) {
+      this.fulfillment = fulfillment;
+      this.encodedLength = fulfillment.getEncoded().length;
+    }
+  }
+
+}
@@ -0,0 +1,394 @@
+package org.interledger.cryptoconditions.types;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.interledger.cryptoconditions.CompositeMessage;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.crypto.Digests;
+import org.interledger.cryptoconditions.crypto.Ed25519PublicKeyCache;
+import org.interledger.cryptoconditions.crypto.Ed25519Verifier;
+import org.interledger.cryptoconditions.crypto.RsaPssVerifier;
+
+/**
+ * The shape of a fulfillment compiled into a flat program that verifies fulfillments of that
+ * shape without walking the fulfillment tree.
+ *
+ * Verifying a fulfillment directly recurses through the tree, deriving and comparing the condition
+ * of every node through calls on the {@link Fulfillment} interface. Only the comparison at the root
+ * decides anything though, since every node below it is verified against its own derived
+ * condition. A program is compiled by a single walk of the tree which turns every node into an
+ * instruction, in the order the recursive verification would visit them. The instructions only
+ * depend on the types of the nodes and the thresholds, so one program verifies every fulfillment
+ * of the same shape, e.g. the same 2-of-3 threshold of Ed25519 signatures over different keys.
+ *
+ * The keys, signatures and prefixes of a particular fulfillment are collected into
+ * {@link Operands} by {@link #bind(Fulfillment)}. Verification is then a comparison of the
+ * condition of the fulfillment with the given condition, followed by one loop over the
+ * instructions, with explicit stacks for the prefixed messages and the thresholds being counted.
+ *
+ * Programs and operands are immutable and may be shared between threads, and operands may be
+ * reused to verify the same fulfillment against any number of messages.
+ */
+public final class VerificationProgram {
+
+  // Each instruction is an opcode followed by one operand
+  static final int FULFILLED = 0;
+  static final int ED25519 = 1;
+  static final int RSA = 2;
+  static final int PREFIX = 3;
+  static final int END_PREFIX = 4;
+  static final int THRESHOLD = 5;
+
+  // A threshold frame: pc after the threshold, message depth, successes needed, failures allowed
+  private static final int FRAME_SIZE = 4;
+
+  private final ConditionType type;
+  private final int[] code;
+  private final int[] thresholds;
+  private final int maxPrefixDepth;
+  private final int maxThresholdDepth;
+
+  private VerificationProgram(ConditionType type, Compiler compiler) {
+    this.type = type;
+    this.code = compiler.code.stream().mapToInt(Integer::intValue).toArray();
+    this.thresholds = compiler.thresholds.stream().mapToInt(Integer::intValue).toArray();
+    this.maxPrefixDepth = compiler.maxPrefixDepth;
+    this.maxThresholdDepth = compiler.maxThresholdDepth;
+  }
+
+  /**
+   * Compile the shape of a fulfillment into a program.
+   *
+   * @param fulfillment the fulfillment to compile
+   * @return a program that verifies fulfillments of the same shape
+   * @throws IllegalArgumentException if the fulfillment, or one of its subfulfillments, is not of
+   *         a known type
+   */
+  public static VerificationProgram compile(Fulfillment fulfillment) {
+    Compiler compiler = new Compiler(null);
+    compiler.emit(fulfillment, 0, 0);
+    return new VerificationProgram(fulfillment.getType(), compiler);
+  }
+
+  /**
+   * Get the type of the fulfillments this program verifies.
+   *
+   * @return the type of the root of the compiled fulfillment
+   */
+  public ConditionType getType() {
+    return type;
+  }
+
+  /**
+   * Collect the operands of a fulfillment of the same shape as the one this program was compiled
+   * from.
+   *
+   * @param fulfillment the fulfillment to bind
+   * @return the operands of the fulfillment
+   * @throws IllegalArgumentException if the fulfillment is not of the shape of this program
+   */
+  public Operands bind(Fulfillment fulfillment) {
+    Compiler compiler = new Compiler(this);
+    compiler.emit(fulfillment, 0, 0);
+    if (compiler.pc != code.length) {
+      throw new IllegalArgumentException("Fulfillment is not of the shape of this program.");
+    }
+    return new Operands(this, fulfillment, compiler);
+  }
+
+  /**
+   * The keys, signatures and prefixes of one fulfillment, bound to the program for its shape.
+   */
+  public static final class Operands {
+
+    private final VerificationProgram program;
+    private final Fulfillment fulfillment;
+    private final byte[][] prefixes;
+    private final long[] maxMessageLengths;
+    private final byte[][] publicKeys;
+    private final Ed25519Verifier.PublicKey[] verifierKeys;
+    private final RsaPssVerifier[] rsaVerifiers;
+    private final byte[][] signatures;
+
+    private Operands(VerificationProgram program, Fulfillment fulfillment, Compiler compiler) {
+      this.program = program;
+      this.fulfillment = fulfillment;
+      this.prefixes = compiler.prefixes.toArray(new byte[0][]);
+      this.maxMessageLengths = compiler.maxMessageLengths.stream().mapToLong(Long::longValue)
+          .toArray();
+      this.publicKeys = compiler.publicKeys.toArray(new byte[0][]);
+      this.verifierKeys = compiler.verifierKeys.toArray(new Ed25519Verifier.PublicKey[0]);
+      this.rsaVerifiers = compiler.rsaVerifiers.toArray(new RsaPssVerifier[0]);
+      this.signatures = compiler.signatures.toArray(new byte[0][]);
+    }
+
+    /**
+     * Get the condition that the bound fulfillment fulfills.
+     *
+     * @return the condition derived from the fulfillment
+     */
+    public Condition getCondition() {
+      return fulfillment.getCondition();
+    }
+
+    /**
+     * Verify the bound fulfillment against a condition and message.
+     *
+     * @param condition the condition to verify against
+     * @param message the message to verify against
+     * @return true if the fulfillment fulfills the condition for the message
+     */
+    public boolean verify(Condition condition, byte[] message) {
+      return verify(condition, CompositeMessage.of(message));
+    }
+
+    /**
+     * Verify the bound fulfillment against a condition and a message read from a stream.
+     *
+     * @param condition the condition to verify against
+     * @param message the message to verify against
+     * @return true if the fulfillment fulfills the condition for the message
+     * @throws IOException if the stream can't be read
+     */
+    public boolean verify(Condition condition, InputStream message) throws IOException {
+      try {
+        return verify(condition, CompositeMessage.of(message));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    /**
+     * Verify the bound fulfillment against a condition and a message that may be made up of
+     * several segments.
+     *
+     * As for {@link Fulfillment#verify(Condition, CompositeMessage)}, a streamed message is read
+     * before this method returns, unless the verification already failed.
+     *
+     * @param condition the condition to verify against
+     * @param message the message to verify against
+     * @return true if the fulfillment fulfills the condition for the message
+     * @throws IllegalArgumentException if the condition is null or not of the type of the
+     *         fulfillment
+     */
+    public boolean verify(Condition condition, CompositeMessage message) {
+
+      if (condition == null) {
+        throw new IllegalArgumentException(
+            "Can't verify a fulfillment against an null condition.");
+      }
+
+      if (condition.getType() != program.type) {
+        throw new IllegalArgumentException("Must verify a fulfillment of type " + program.type
+            + " against a condition of the same type.");
+      }
+
+      if (!fulfillment.getCondition().equals(condition)) {
+        return false;
+      }
+
+      return message.verify(() -> program.run(this, message));
+    }
+  }
+
+  private boolean run(Operands operands, CompositeMessage message) {
+    CompositeMessage[] messages = new CompositeMessage[maxPrefixDepth + 1];
+    int[] frames = new int[maxThresholdDepth * FRAME_SIZE];
+    int depth = 0;
+    int frame = 0;
+    messages[0] = message;
+
+    int pc = 0;
+    while (pc < code.length) {
+      int op = code[pc];
+      int arg = code[pc + 1];
+      pc += 2;
+
+      boolean result;
+      switch (op) {
+        case FULFILLED:
+          result = true;
+          break;
+        case ED25519:
+          result = verifyEd25519(operands, arg, messages[depth]);
+          break;
+        case RSA:
+          byte[] signature = operands.signatures[arg];
+          RsaPssVerifier verifier = operands.rsaVerifiers[arg];
+          result = verifier != null
+              && messages[depth].verifySha256(hash -> verifier.verifyDigest(hash, signature));
+          break;
+        case PREFIX:
+          messages[depth].checkLength(operands.maxMessageLengths[arg]);
+          messages[depth + 1] = messages[depth].withPrefix(operands.prefixes[arg]);
+          depth++;
+          continue;
+        case END_PREFIX:
+          depth--;
+          continue;
+        case THRESHOLD:
+          frames[frame] = thresholds[arg];
+          frames[frame + 1] = depth;
+          frames[frame + 2] = thresholds[arg + 1];
+          frames[frame + 3] = thresholds[arg + 2];
+          frame += FRAME_SIZE;
+          continue;
+        default:
+          throw new IllegalStateException("Unknown instruction " + op + ".");
+      }
+
+      // Count the result against the enclosing threshold, skipping the rest of it once it is
+      // decided and counting that against its own enclosing threshold in turn
+      while (frame > 0) {
+        if (result ? --frames[frame - 2] > 0 : --frames[frame - 1] >= 0) {
+          break;
+        }
+        frame -= FRAME_SIZE;
+        pc = frames[frame];
+        depth = frames[frame + 1];
+      }
+      if (frame == 0 && !result) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean verifyEd25519(Operands operands, int leaf, CompositeMessage message) {
+    Ed25519Verifier.PublicKey verifierKey = operands.verifierKeys[leaf];
+    byte[] signature = operands.signatures[leaf];
+    if (verifierKey == null || signature.length != Ed25519Verifier.SIGNATURE_LENGTH) {
+      return false;
+    }
+
+    // The signature is over SHA-512(R || A || M)
+    MessageDigest digest = Digests.sha512();
+    digest.update(signature, 0, 32);
+    digest.update(operands.publicKeys[leaf]);
+    return message.verify(digest,
+        hash -> Ed25519Verifier.verifyDigest(verifierKey, signature, hash));
+  }
+
+  /**
+   * Walks a fulfillment tree, appending an instruction for each node and collecting its operands,
+   * or checking the instructions of an existing program instead when binding to it.
+   */
+  private static final class Compiler {
+
+    private final VerificationProgram program;
+    private final List<Integer> code = new ArrayList<>();
+    private final List<Integer> thresholds = new ArrayList<>();
+    private final List<byte[]> prefixes = new ArrayList<>();
+    private final List<Long> maxMessageLengths = new ArrayList<>();
+    private final List<byte[]> publicKeys = new ArrayList<>();
+    private final List<Ed25519Verifier.PublicKey> verifierKeys = new ArrayList<>();
+    private final List<RsaPssVerifier> rsaVerifiers = new ArrayList<>();
+    private final List<byte[]> signatures = new ArrayList<>();
+    private int maxPrefixDepth;
+    private int maxThresholdDepth;
+    private int pc;
+
+    private Compiler(VerificationProgram program) {
+      this.program = program;
+    }
+
+    private void emit(Fulfillment fulfillment, int prefixDepth, int thresholdDepth) {
+      maxPrefixDepth = Math.max(maxPrefixDepth, prefixDepth);
+      maxThresholdDepth = Math.max(maxThresholdDepth, thresholdDepth);
+
+      switch (fulfillment.getType()) {
+        case PREIMAGE_SHA256:
+          // The preimage is what the fingerprint of the derived condition is computed from, so
+          // matching the condition is all there is to verify
+          instruction(FULFILLED, ConditionType.PREIMAGE_SHA256.getTypeCode());
+          break;
+
+        case ED25519_SHA256: {
+          Ed25519Sha256Fulfillment ed25519 = (Ed25519Sha256Fulfillment) fulfillment;
+          byte[] publicKey = ed25519.getPublicKey().getAbyte();
+          instruction(ED25519, signatures.size());
+          publicKeys.add(publicKey);
+          verifierKeys.add(Ed25519PublicKeyCache.getDefault().get(publicKey).getVerifierKey());
+          rsaVerifiers.add(null);
+          signatures.add(ed25519.getSignature());
+          break;
+        }
+
+        case RSA_SHA256: {
+          RsaSha256Fulfillment rsa = (RsaSha256Fulfillment) fulfillment;
+          instruction(RSA, signatures.size());
+          publicKeys.add(null);
+          verifierKeys.add(null);
+          // A key with an exponent other than 65537 can't fulfill any condition
+          RSAPublicKey publicKey = rsa.getPublicKey();
+          rsaVerifiers.add(RsaSha256Fulfillment.PUBLIC_EXPONENT.equals(
+              publicKey.getPublicExponent()) ? new RsaPssVerifier(publicKey) : null);
+          signatures.add(rsa.getSignature());
+          break;
+        }
+
+        case PREFIX_SHA256: {
+          PrefixSha256Fulfillment prefix = (PrefixSha256Fulfillment) fulfillment;
+          instruction(PREFIX, prefixes.size());
+          prefixes.add(prefix.getPrefix());
+          maxMessageLengths.add(prefix.getMaxMessageLenght());
+          emit(prefix.getSubfulfillment(), prefixDepth + 1, thresholdDepth);
+          instruction(END_PREFIX, 0);
+          break;
+        }
+
+        case THRESHOLD_SHA256: {
+          ThresholdSha256Fulfillment threshold = (ThresholdSha256Fulfillment) fulfillment;
+          Fulfillment[] subfulfillments = threshold.getSubfulfillments();
+          int required = threshold.getThreshold();
+          if (required == 0) {
+            instruction(FULFILLED, ConditionType.THRESHOLD_SHA256.getTypeCode());
+            break;
+          }
+
+          // Operands: pc after the last subfulfillment, successes needed, failures allowed
+          int operands = thresholds.size();
+          instruction(THRESHOLD, operands);
+          thresholds.add(0);
+          thresholds.add(required);
+          thresholds.add(subfulfillments.length - required);
+          for (Fulfillment subfulfillment : subfulfillments) {
+            emit(subfulfillment, prefixDepth, thresholdDepth + 1);
+          }
+          thresholds.set(operands, pc);
+          if (program != null && (program.thresholds[operands] != pc
+              || program.thresholds[operands + 1] != required
+              || program.thresholds[operands + 2] != subfulfillments.length - required)) {
+            throw new IllegalArgumentException(
+                "Fulfillment is not of the shape of this program.");
+          }
+          break;
+        }
+
+        default:
+          throw new IllegalArgumentException(
+              "Can't compile a fulfillment of type " + fulfillment.getType() + ".");
+      }
+    }
+
+    private void instruction(int op, int arg) {
+      if (program != null && (pc + 1 >= program.code.length || program.code[pc] != op
+          || program.code[pc + 1] != arg)) {
+        throw new IllegalArgumentException("Fulfillment is not of the shape of this program.");
+      }
+      code.add(op);
+      code.add(arg);
+      pc += 2;
+    }
+  }
+
+}
@@ -0,0 +1,467 @@
+package org.interledger.cryptoconditions.uri;
+
+import java.util.List;
+
+import org.interledger.cryptoconditions.Base64Url;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.der.DEREncodingException;
+
+/**
+ * Converts conditions directly between their URI and binary (DER) encodings, without creating a
+ * {@link org.interledger.cryptoconditions.Condition} in between.
+ *
+ * Each conversion is a single pass over its input that writes into a buffer provided by the
+ * caller: the fingerprint is decoded from base64url straight into the DER output and encoded
+ * straight from the DER input, and the subtypes are converted between the comma separated list of
+ * a URI and the BIT STRING of a binary condition as a bit mask. The output is the same as
+ * {@link org.interledger.cryptoconditions.Condition#getEncoded()} and
+ * {@link org.interledger.cryptoconditions.Condition#getUri()} of the condition the input encodes.
+ *
+ * Lists of conditions are converted with {@link #toDer(List, byte[], int)}, which writes their
+ * binary encodings one after another, and {@link #toUris(byte[], int, int, List)}, which reads
+ * them back.
+ */
+public final class CryptoConditionTranscoder {
+
+  /**
+   * The maximum length of the binary encoding of a condition.
+   */
+  public static final int MAX_ENCODED_LENGTH = 50;
+
+  /**
+   * The maximum length of the URI of a condition.
+   */
+  public static final int MAX_URI_LENGTH;
+
+  private static final String PREFIX = "ni:///sha-256;";
+  private static final String TYPE = "?fpt=";
+  private static final String COST = "&cost=";
+  private static final String SUBTYPES = "&subtypes=";
+
+  private static final int FINGERPRINT_LENGTH = 32;
+  private static final int COMPOUND_TYPES =
+      ConditionType.PREFIX_SHA256.getMask() | ConditionType.THRESHOLD_SHA256.getMask();
+
+  private static final ConditionType[] TYPES = ConditionType.values();
+  private static final String[] NAMES = new String[TYPES.length];
+  private static final int KNOWN_TYPES;
+
+  static {
+    int names = 0;
+    int longest = 0;
+    int known = 0;
+    for (ConditionType type : TYPES) {
+      known |= type.getMask();
+      NAMES[type.ordinal()] = type.toString().toLowerCase();
+      names += NAMES[type.ordinal()].length() + 1;
+      longest = Math.max(longest, NAMES[type.ordinal()].length());
+    }
+    MAX_URI_LENGTH = PREFIX.length() + Base64Url.FINGERPRINT_ENCODED_LENGTH + TYPE.length()
+        + longest + COST.length() + Long.toString(Long.MIN_VALUE).length() + SUBTYPES.length()
+        + names - 1;
+    KNOWN_TYPES = known;
+  }
+
+  private CryptoConditionTranscoder() {
+  }
+
+  /**
+   * Convert the URI of a condition to its binary encoding.
+   *
+   * @param uri the URI of the condition
+   * @param dst the array to write the encoding to, which must have room for
+   *        {@link #MAX_ENCODED_LENGTH} bytes
+   * @param dstOffset the offset to write the encoding at
+   * @return the number of bytes written
+   * @throws URIEncodingException if the URI is not the URI of a condition
+   */
+  public static int toDer(CharSequence uri, byte[] dst, int dstOffset)
+      throws URIEncodingException {
+    return toDer(uri, 0, uri.length(), dst, dstOffset);
+  }
+
+  /**
+   * Convert the URI of a condition, held in a range of a character sequence, to its binary
+   * encoding.
+   *
+   * @param src the sequence holding the URI
+   * @param start the index of the first character of the URI
+   * @param end the index after the last character of the URI
+   * @param dst the array to write the encoding to, which must have room for
+   *        {@link #MAX_ENCODED_LENGTH} bytes
+   * @param dstOffset the offset to write the encoding at
+   * @return the number of bytes written
+   * @throws URIEncodingException if the range is not the URI of a condition
+   */
+  public static int toDer(CharSequence src, int start, int end, byte[] dst, int dstOffset)
+      throws URIEncodingException {
+    if (!regionMatches(src, start, end, "ni:", false)) {
+      throw new URIEncodingException("Serialized condition must start with 'ni:'");
+    }
+    if (!regionMatches(src, start, end, "ni://", false)) {
+      throw new URIEncodingException("Invalid condition format");
+    }
+
+    // The authority, as in CryptoConditionUri.CONDITION_REGEX_STRICT, may be a single character
+    int position = start + "ni://".length();
+    if (position < end && src.charAt(position) != '/') {
+      position++;
+    }
+    if (!regionMatches(src, position, end, PREFIX.substring("ni://".length()), false)) {
+      throw new URIEncodingException("Invalid condition format");
+    }
+    position += PREFIX.length() - "ni://".length();
+
+    int fingerprintStart = position;
+    int fingerprintEnd = position + Base64Url.FINGERPRINT_ENCODED_LENGTH;
+    if (fingerprintEnd >= end || src.charAt(fingerprintEnd) != '?') {
+      throw new URIEncodingException("Invalid condition format");
+    }
+
+    // Read the parameters, keeping the first occurrence of each
+    ConditionType type = null;
+    long cost = -1;
+    int subtypes = -1;
+    position = fingerprintEnd + 1;
+    while (position < end) {
+      int next = indexOf(src, '&', position, end);
+      int equals = indexOf(src, '=', position, next);
+      if (equals < next) {
+        if (type == null && regionEquals(src, position, equals, "fpt", false)) {
+          type = readType(src, equals + 1, next);
+          if (type == null) {
+            throw new URIEncodingException("No or invalid type provided");
+          }
+        } else if (cost < 0 && regionEquals(src, position, equals, "cost", false)) {
+          cost = readCost(src, equals + 1, next);
+        } else if (subtypes < 0 && regionEquals(src, position, equals, "subtypes", false)) {
+          subtypes = readSubtypes(src, equals + 1, next);
+        }
+      }
+      position = next + 1;
+    }
+    if (type == null) {
+      throw new URIEncodingException("No fingerprint type provided");
+    }
+    if (cost < 0) {
+      throw new URIEncodingException("No or invalid cost provided");
+    }
+
+    // The contents are at most 48 bytes, so every length fits in one byte
+    int costLength = costLength(cost);
+    int contentsLength = 2 + FINGERPRINT_LENGTH + 2 + costLength;
+    boolean compound = (type.getMask() & COMPOUND_TYPES) != 0;
+    if (compound) {
+      contentsLength += subtypes > 0 ? 4 : 3;
+    }
+
+    int j = dstOffset;
+    dst[j++] = (byte) (0xa0 + type.getTypeCode());
+    dst[j++] = (byte) contentsLength;
+    dst[j++] = (byte) 0x80;
+    dst[j++] = (byte) FINGERPRINT_LENGTH;
+    try {
+      j += Base64Url.decode(src, fingerprintStart, fingerprintEnd, dst, j);
+    } catch (IllegalArgumentException e) {
+      throw new URIEncodingException("Invalid fingerprint: " + e.getMessage());
+    }
+    dst[j++] = (byte) 0x81;
+    dst[j++] = (byte) costLength;
+    for (int shift = (costLength - 1) * 8; shift >= 0; shift -= 8) {
+      dst[j++] = (byte) (cost >> shift);
+    }
+    if (compound) {
+      dst[j++] = (byte) 0x82;
+      if (subtypes > 0) {
+        dst[j++] = 2;
+        dst[j++] = (byte) Integer.numberOfTrailingZeros(subtypes);
+        dst[j++] = (byte) subtypes;
+      } else {
+        dst[j++] = 1;
+        dst[j++] = 0;
+      }
+    }
+    return j - dstOffset;
+  }
+
+  /**
+   * Convert the URIs of a list of conditions to their binary encodings, one after another.
+   *
+   * @param uris the URIs of the conditions
+   * @param dst the array to write the encodings to, which must have room for
+   *        {@link #MAX_ENCODED_LENGTH} bytes for each condition
+   * @param dstOffset the offset to write the first encoding at
+   * @return the number of bytes written
+   * @throws URIEncodingException if any of the URIs is not the URI of a condition
+   */
+  public static int toDer(List<? extends CharSequence> uris, byte[] dst, int dstOffset)
+      throws URIEncodingException {
+    int j = dstOffset;
+    for (CharSequence uri : uris) {
+      j += toDer(uri, 0, uri.length(), dst, j);
+    }
+    return j - dstOffset;
+  }
+
+  /**
+   * Convert the binary encoding of a condition to its URI.
+   *
+   * @param src the array holding the encoding
+   * @param offset the offset of the encoding in the array
+   * @param length the length of the encoding
+   * @param dst the array to write the URI to, which must have room for {@link #MAX_URI_LENGTH}
+   *        characters
+   * @param dstOffset the offset to write the URI at
+   * @return the number of characters written
+   * @throws DEREncodingException if the range is not the binary encoding of a condition
+   */
+  public static int toUri(byte[] src, int offset, int length, char[] dst, int dstOffset)
+      throws DEREncodingException {
+    int end = offset + length;
+    if (encodedEnd(src, offset, end) != end) {
+      throw new DEREncodingException("Unexpected bytes after the condition.");
+    }
+
+    ConditionType type = ConditionType.valueOf((src[offset] & 0xff) - 0xa0);
+    int position = offset + 2;
+
+    int fingerprintLength = readTaggedLength(src, position, end, 0);
+    if (fingerprintLength != FINGERPRINT_LENGTH) {
+      throw new DEREncodingException("Fingerprint must be 32 bytes.");
+    }
+    int fingerprint = position + 2;
+    position = fingerprint + FINGERPRINT_LENGTH;
+
+    int costLength = readTaggedLength(src, position, end, 1);
+    if (costLength == 0 || costLength > 8) {
+      throw new DEREncodingException("Invalid cost length: " + costLength);
+    }
+    position += 2;
+
+    // The cost is a non-negative INTEGER in its minimal encoding, as written by the encoders
+    if (src[position] < 0 || costLength > 1 && src[position] == 0 && src[position + 1] >= 0) {
+      throw new DEREncodingException("Cost is negative or not minimally encoded.");
+    }
+    long cost = src[position++];
+    for (int i = 1; i < costLength; i++) {
+      cost = (cost << 8) | (src[position++] & 0xff);
+    }
+
+    int subtypes = 0;
+    if ((type.getMask() & COMPOUND_TYPES) != 0) {
+      int bitStringLength = readTaggedLength(src, position, end, 2);
+      position += 2;
+      if (bitStringLength == 2) {
+        subtypes = src[position + 1] & 0xff;
+        if ((subtypes & ~KNOWN_TYPES) != 0) {
+          throw new DEREncodingException("Unknown types in bit string.");
+        }
+        if (subtypes == 0 || src[position] != Integer.numberOfTrailingZeros(subtypes)) {
+          throw new DEREncodingException("Corrupt bit string.");
+        }
+      } else if (bitStringLength != 1 || src[position] != 0) {
+        throw new DEREncodingException("Corrupt bit string.");
+      }
+      position += bitStringLength;
+    }
+    if (position != end) {
+      throw new DEREncodingException("Unexpected bytes after the condition.");
+    }
+
+    int j = write(PREFIX, dst, dstOffset);
+    j += Base64Url.encode(src, fingerprint, FINGERPRINT_LENGTH, dst, j);
+    j = write(TYPE, dst, j);
+    j = write(NAMES[type.ordinal()], dst, j);
+    j = write(COST, dst, j);
+    j = writeCost(cost, dst, j);
+    if (subtypes != 0) {
+      j = write(SUBTYPES, dst, j);
+      boolean first = true;
+      for (ConditionType subtype : TYPES) {
+        if ((subtypes & subtype.getMask()) != 0) {
+          if (!first) {
+            dst[j++] = ',';
+          }
+          j = write(NAMES[subtype.ordinal()], dst, j);
+          first = false;
+        }
+      }
+    }
+    return j - dstOffset;
+  }
+
+  /**
+   * Convert binary encodings of conditions, one after another, to their URIs.
+   *
+   * @param src the array holding the encodings
+   * @param offset the offset of the first encoding in the array
+   * @param length the total length of the encodings
+   * @param uris the list to add the URIs to
+   * @return the number of conditions converted
+   * @throws DEREncodingException if the range is not a sequence of binary encodings of conditions
+   */
+  public static int toUris(byte[] src, int offset, int length, List<? super String> uris)
+      throws DEREncodingException {
+    char[] buffer = new char[MAX_URI_LENGTH];
+    int end = offset + length;
+    int count = 0;
+    for (int position = offset; position < end; count++) {
+      int next = encodedEnd(src, position, end);
+      uris.add(new String(buffer, 0, toUri(src, position, next - position, buffer, 0)));
+      position = next;
+    }
+    return count;
+  }
+
+  /**
+   * Read the tag and length of a condition and return the offset at which it ends.
+   */
+  private static int encodedEnd(byte[] src, int offset, int limit) throws DEREncodingException {
+    if (limit - offset < 2) {
+      throw new DEREncodingException("Expected condition, got end of stream.");
+    }
+    int tag = (src[offset] & 0xff) - 0xa0;
+    if (tag < 0 || tag >= TYPES.length) {
+      throw new DEREncodingException("Unrecogized tag: " + Integer.toHexString(tag + 0xa0));
+    }
+    int length = src[offset + 1] & 0xff;
+    if (length > MAX_ENCODED_LENGTH - 2) {
+      throw new DEREncodingException("Invalid condition length: " + length);
+    }
+    if (offset + 2 + length > limit) {
+      throw new DEREncodingException("Condition extends past the end of the stream.");
+    }
+    return offset + 2 + length;
+  }
+
+  /**
+   * Read the tag and one byte length of a field of a condition and return the length.
+   */
+  private static int readTaggedLength(byte[] src, int position, int end, int tagNumber)
+      throws DEREncodingException {
+    if (end - position < 2) {
+      throw new DEREncodingException("Expected tag, got end of stream.");
+    }
+    if ((src[position] & 0xff) != 0x80 + tagNumber) {
+      throw new DEREncodingException("Expected tag: " + tagNumber + ", got: "
+          + Integer.toHexString(src[position] & 0xff));
+    }
+    int length = src[position + 1] & 0xff;
+    if (position + 2 + length > end) {
+      throw new DEREncodingException("Value extends past the end of the condition.");
+    }
+    return length;
+  }
+
+  private static ConditionType readType(CharSequence src, int start, int end) {
+    for (ConditionType type : TYPES) {
+      if (regionEquals(src, start, end, NAMES[type.ordinal()], true)) {
+        return type;
+      }
+    }
+    return null;
+  }
+
+  private static long readCost(CharSequence src, int start, int end)
+      throws URIEncodingException {
+    if (start == end) {
+      throw new URIEncodingException("No or invalid cost provided");
+    }
+    long cost = 0;
+    for (int i = start; i < end; i++) {
+      int digit = src.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || cost > (Long.MAX_VALUE - digit) / 10) {
+        throw new URIEncodingException("No or invalid cost provided");
+      }
+      cost = cost * 10 + digit;
+    }
+    return cost;
+  }
+
+  /**
+   * Read a comma separated list of types as a mask of their bits in a BIT STRING.
+   */
+  private static int readSubtypes(CharSequence src, int start, int end)
+      throws URIEncodingException {
+    int subtypes = 0;
+    int position = start;
+    while (position < end) {
+      int next = indexOf(src, ',', position, end);
+      ConditionType type = readType(src, position, next);
+      if (type == null) {
+        throw new URIEncodingException("Invalid subtype: " + src.subSequence(position, next));
+      }
+      subtypes |= type.getMask();
+      position = next + 1;
+    }
+    return subtypes;
+  }
+
+  /**
+   * Get the length of the minimal two's complement encoding of a cost.
+   */
+  private static int costLength(long cost) {
+    int length = 1;
+    while (length < 8 && (cost >> (length * 8 - 1)) != 0 && (cost >> (length * 8 - 1)) != -1) {
+      length++;
+    }
+    return length;
+  }
+
+  private static int writeCost(long cost, char[] dst, int offset) {
+    if (cost < 0) {
+      return write(Long.toString(cost), dst, offset);
+    }
+    int digits = 1;
+    for (long value = cost; value >= 10; value /= 10) {
+      digits++;
+    }
+    long value = cost;
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      dst[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return offset + digits;
+  }
+
+  private static int write(String value, char[] dst, int offset) {
+    value.getChars(0, value.length(), dst, offset);
+    return offset + value.length();
+  }
+
+  private static int indexOf(CharSequence src, char c, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (src.charAt(i) == c) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Check whether a range starts with a value, ignoring case if asked to.
+   */
+  private static boolean regionMatches(CharSequence src, int start, int end, String value,
+      boolean ignoreCase) {
+    if (end - start < value.length()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = src.charAt(start + i);
+      if (c != value.charAt(i)
+          && !(ignoreCase && Character.toLowerCase(c) == value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a range is a lower case value, ignoring the case of the range if asked to.
+   */
+  private static boolean regionEquals(CharSequence src, int start, int end, String value,
+      boolean ignoreCase) {
+    return end - start == value.length() && regionMatches(src, start, end, value, ignoreCase);
+  }
+
+}
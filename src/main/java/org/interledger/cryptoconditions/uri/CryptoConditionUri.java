@@ -3,7 +3,6 @@ package org.interledger.cryptoconditions.uri;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLDecoder;
-import java.util.Base64;
 import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -12,6 +11,7 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.interledger.cryptoconditions.Base64Url;
 import org.interledger.cryptoconditions.Condition;
 import org.interledger.cryptoconditions.ConditionType;
 import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
@@ -52,7 +52,8 @@ public class CryptoConditionUri {
     }
     
     //the regex covers the entire uri format including the 'ni:' scheme
-    Matcher m = Pattern.compile(CONDITION_REGEX_STRICT).matcher(uri.toString());
+    String uriString = uri.toString();
+    Matcher m = Pattern.compile(CONDITION_REGEX_STRICT).matcher(uriString);
     
     if (!m.matches()) {
       throw new URIEncodingException("Invalid condition format");
@@ -78,7 +79,12 @@ public class CryptoConditionUri {
       throw new URIEncodingException("No or invalid cost provided");
     }
     
-    byte[] fingerprint = Base64.getUrlDecoder().decode(m.group(2));
+    byte[] fingerprint;
+    try {
+      fingerprint = Base64Url.decode(uriString, m.start(2), m.end(2));
+    } catch (IllegalArgumentException x) {
+      throw new URIEncodingException("Invalid fingerprint: " + x.getMessage());
+    }
     
     EnumSet<ConditionType> subtypes = null;
     if (type == ConditionType.PREFIX_SHA256 || type == ConditionType.THRESHOLD_SHA256) {
@@ -0,0 +1,56 @@
+package org.interledger.cryptoconditions;
+
+import static org.junit.Assert.*;
+
+import java.nio.CharBuffer;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Test_Base64Url {
+
+  @Test
+  public void test_matches_java_util_base64() {
+    Random random = new Random(42);
+    for (int length = 0; length < 100; length++) {
+      byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+      assertEquals(expected, Base64Url.encode(bytes));
+      assertEquals("x" + expected, Base64Url.encode(bytes, new StringBuilder("x")).toString());
+      assertEquals(expected.length(), Base64Url.encodedLength(length));
+      assertEquals(length, Base64Url.decodedLength(expected.length()));
+      assertArrayEquals(bytes, Base64Url.decode(expected));
+      assertArrayEquals(bytes,
+          Base64Url.decode(CharBuffer.wrap("[" + expected + "]"), 1, expected.length() + 1));
+    }
+  }
+
+  @Test
+  public void test_fingerprint() {
+    byte[] fingerprint = new byte[32];
+    new Random(7).nextBytes(fingerprint);
+    String encoded = Base64Url.encode(fingerprint);
+
+    assertEquals(Base64Url.FINGERPRINT_ENCODED_LENGTH, encoded.length());
+    assertArrayEquals(fingerprint, Base64Url.decodeFingerprint(";" + encoded + "?", 1));
+  }
+
+  @Test
+  public void test_strict_decoding() {
+    String[] invalid = {"A", "AB==", "AB+/", "AB/_", "AB C", "ABéC", "AB", "AAB"};
+    for (String encoded : invalid) {
+      try {
+        Base64Url.decode(encoded);
+        fail(encoded);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    assertArrayEquals(new byte[] {0}, Base64Url.decode("AA"));
+    assertArrayEquals(new byte[] {0, 1}, Base64Url.decode("AAE"));
+  }
+
+}
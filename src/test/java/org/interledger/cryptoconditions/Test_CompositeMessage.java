@@ -0,0 +1,102 @@
+package org.interledger.cryptoconditions;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class Test_CompositeMessage {
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void test_prefixes_are_prepended() {
+    CompositeMessage message =
+        CompositeMessage.of(bytes("message")).withPrefix(bytes("outer ")).withPrefix(bytes("inner "));
+
+    assertEquals(19, message.length());
+    assertArrayEquals(bytes("inner outer message"), message.toByteArray());
+  }
+
+  @Test
+  public void test_update_digest() throws NoSuchAlgorithmException {
+    CompositeMessage message = CompositeMessage.of(bytes("message")).withPrefix(bytes("prefix "));
+
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    message.update(digest);
+
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(bytes("prefix message")),
+        digest.digest());
+  }
+
+  @Test
+  public void test_sha256_is_shared() throws Exception {
+    CompositeMessage message = CompositeMessage.of(bytes("message"));
+    CompositeMessage prefixed = message.withPrefix(bytes("prefix "));
+    assertSame(prefixed, message.withPrefix(bytes("prefix ")));
+
+    byte[] expected = MessageDigest.getInstance("SHA-256").digest(bytes("prefix message"));
+    byte[][] seen = new byte[2][];
+    assertTrue(prefixed.verifySha256(hash -> (seen[0] = hash) != null));
+    assertTrue(message.withPrefix(bytes("prefix ")).verifySha256(hash -> (seen[1] = hash) != null));
+
+    assertArrayEquals(expected, seen[0]);
+    assertSame(seen[0], seen[1]);
+  }
+
+  @Test
+  public void test_sha256_of_stream_is_shared() throws Exception {
+    CompositeMessage message = CompositeMessage.of(new ByteArrayInputStream(bytes("message")))
+        .withPrefix(bytes("prefix "));
+
+    byte[] expected = MessageDigest.getInstance("SHA-256").digest(bytes("prefix message"));
+    byte[][] seen = new byte[2][];
+    assertTrue(message.verifySha256(hash -> (seen[0] = hash) != null));
+    assertTrue(message.verifySha256(hash -> Arrays.equals(seen[1] = hash, expected)));
+    assertNull(seen[0]);
+
+    assertTrue(message.complete());
+    assertArrayEquals(expected, seen[0]);
+    assertSame(seen[0], seen[1]);
+  }
+
+  @Test
+  public void test_fulfillment_implementing_byte_array_verify() {
+    // A fulfillment written against the original interface, which only verifies byte arrays
+    Fulfillment fulfillment = new Fulfillment() {
+      @Override
+      public ConditionType getType() {
+        return ConditionType.PREIMAGE_SHA256;
+      }
+
+      @Override
+      public byte[] getEncoded() {
+        return new byte[0];
+      }
+
+      @Override
+      public Condition getCondition() {
+        return null;
+      }
+
+      @Override
+      public boolean verify(Condition condition, byte[] message) {
+        return Arrays.equals(bytes("prefix message"), message);
+      }
+    };
+
+    CompositeMessage message =
+        CompositeMessage.of(ByteBuffer.wrap(bytes("message"))).withPrefix(bytes("prefix "));
+    assertTrue(fulfillment.verify(null, message));
+    assertFalse(fulfillment.verify(null, ByteBuffer.wrap(bytes("message"))));
+  }
+
+}
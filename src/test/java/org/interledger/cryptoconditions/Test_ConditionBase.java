@@ -0,0 +1,61 @@
+package org.interledger.cryptoconditions;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.junit.Test;
+
+public class Test_ConditionBase {
+
+  @Test
+  public void test_equals_and_hash_code() {
+    Condition generated = new PreimageSha256Fulfillment(new byte[] {1, 2, 3}).getCondition();
+    Condition parsed = new PreimageSha256Condition(generated.getFingerprint(), 3);
+
+    assertEquals(generated, parsed);
+    assertEquals(generated.hashCode(), parsed.hashCode());
+    assertNotEquals(generated, new PreimageSha256Condition(generated.getFingerprint(), 4));
+    assertNotEquals(generated, new PrefixSha256Condition(generated.getFingerprint(), 3,
+        EnumSet.of(ConditionType.PREIMAGE_SHA256)));
+
+    Map<Condition, String> map = new HashMap<>();
+    map.put(generated, "value");
+    assertEquals("value", map.get(parsed));
+  }
+
+  @Test
+  public void test_fingerprint_not_exposed() {
+    Condition condition = new PreimageSha256Fulfillment(new byte[] {1, 2, 3}).getCondition();
+    int hashCode = condition.hashCode();
+    condition.getFingerprint()[0] ^= 1;
+
+    assertEquals(hashCode, condition.hashCode());
+    assertEquals(condition, new PreimageSha256Fulfillment(new byte[] {1, 2, 3}).getCondition());
+  }
+
+  @Test
+  public void test_is_fingerprint_at_offset() {
+    PreimageSha256Condition condition =
+        (PreimageSha256Condition) new PreimageSha256Fulfillment(new byte[] {1}).getCondition();
+    byte[] buffer = new byte[40];
+    System.arraycopy(condition.getFingerprint(), 0, buffer, 8, 32);
+
+    assertTrue(condition.isFingerprint(buffer, 8));
+    assertFalse(condition.isFingerprint(buffer, 7));
+    for (int offset : new int[] {-1, 9, 40}) {
+      try {
+        condition.isFingerprint(buffer, offset);
+        fail("offset " + offset);
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+package org.interledger.cryptoconditions;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Random;
+
+import org.interledger.cryptoconditions.types.Ed25519Sha256Fulfillment;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAEngine;
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+
+public class Test_StreamingVerification {
+
+  private static final byte[] PREFIX = "prefix".getBytes();
+
+  private static Ed25519Sha256Fulfillment sign(KeyPair keyPair, byte[]... segments)
+      throws Exception {
+    Signature signer = new EdDSAEngine(MessageDigest.getInstance("SHA-512"));
+    signer.initSign(keyPair.getPrivate());
+    for (byte[] segment : segments) {
+      signer.update(segment);
+    }
+    return new Ed25519Sha256Fulfillment((EdDSAPublicKey) keyPair.getPublic(), signer.sign());
+  }
+
+  private static Fulfillment fulfillment(byte[] message) throws Exception {
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    KeyPair keyPair1 = generator.generateKeyPair();
+    KeyPair keyPair2 = generator.generateKeyPair();
+
+    return new ThresholdSha256Fulfillment(new Condition[0], new Fulfillment[] {
+        sign(keyPair1, message),
+        new PrefixSha256Fulfillment(PREFIX, 1 << 20, sign(keyPair2, PREFIX, message)),
+        new PreimageSha256Fulfillment(new byte[] {1, 2, 3})});
+  }
+
+  private static byte[] message(int length) {
+    byte[] message = new byte[length];
+    new Random(1).nextBytes(message);
+    return message;
+  }
+
+  @Test
+  public void test_verify_stream() throws Exception {
+    byte[] message = message(100000);
+    Fulfillment fulfillment = fulfillment(message);
+    Condition condition = fulfillment.getCondition();
+
+    assertTrue(fulfillment.verify(condition, message));
+    assertTrue(fulfillment.verify(condition, ByteBuffer.wrap(message)));
+    assertTrue(fulfillment.verify(condition, new ByteArrayInputStream(message)));
+    assertTrue(
+        fulfillment.verify(condition, Channels.newChannel(new ByteArrayInputStream(message))));
+
+    message[50000]++;
+    assertFalse(fulfillment.verify(condition, new ByteArrayInputStream(message)));
+  }
+
+  @Test
+  public void test_stream_not_read_for_wrong_condition() throws Exception {
+    byte[] message = message(10);
+    Fulfillment fulfillment = fulfillment(message);
+    Condition other = new PreimageSha256Fulfillment(new byte[] {1}).getCondition();
+    ByteArrayInputStream stream = new ByteArrayInputStream(message);
+
+    try {
+      fulfillment.verify(other, stream);
+      fail("Expected verification against the wrong condition type to fail.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(10, stream.available());
+    }
+
+    assertFalse(fulfillment.verify(fulfillment(message).getCondition(), stream));
+    assertEquals(10, stream.available());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_stream_exceeds_max_message_length() throws Exception {
+    byte[] message = message(10000);
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    KeyPair keyPair = generator.generateKeyPair();
+    Fulfillment fulfillment =
+        new PrefixSha256Fulfillment(PREFIX, 9999, sign(keyPair, PREFIX, message));
+
+    fulfillment.verify(fulfillment.getCondition(), new ByteArrayInputStream(message));
+  }
+
+  @Test
+  public void test_stream_at_max_message_length() throws Exception {
+    byte[] message = message(10000);
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    KeyPair keyPair = generator.generateKeyPair();
+    Fulfillment fulfillment =
+        new PrefixSha256Fulfillment(PREFIX, 10000, sign(keyPair, PREFIX, message));
+
+    assertTrue(fulfillment.verify(fulfillment.getCondition(), new ByteArrayInputStream(message)));
+  }
+
+  @Test
+  public void test_composite_verify_reads_stream() throws Exception {
+    byte[] message = message(10000);
+    Fulfillment fulfillment = fulfillment(message);
+    Condition condition = fulfillment.getCondition();
+
+    ByteArrayInputStream stream = new ByteArrayInputStream(message);
+    assertTrue(fulfillment.verify(condition, CompositeMessage.of(stream)));
+    assertEquals(0, stream.available());
+
+    message[5000]++;
+    stream = new ByteArrayInputStream(message);
+    assertFalse(fulfillment.verify(condition, CompositeMessage.of(stream)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_empty_stream_exceeds_max_message_length() throws Exception {
+    // The inner prefix alone is longer than the maximum length the inner fulfillment allows
+    Fulfillment fulfillment = new PrefixSha256Fulfillment(PREFIX, 100,
+        new PrefixSha256Fulfillment(PREFIX, 2, new PreimageSha256Fulfillment(new byte[] {1})));
+
+    fulfillment.verify(fulfillment.getCondition(), new ByteArrayInputStream(new byte[0]));
+  }
+
+}
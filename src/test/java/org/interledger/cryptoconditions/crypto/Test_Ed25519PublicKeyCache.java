@@ -0,0 +1,75 @@
+package org.interledger.cryptoconditions.crypto;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+
+import org.interledger.cryptoconditions.types.Ed25519Sha256Condition;
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+
+public class Test_Ed25519PublicKeyCache {
+
+  @Test
+  public void test_cached_key_and_fingerprint() {
+    KeyPair keyPair = new net.i2p.crypto.eddsa.KeyPairGenerator().generateKeyPair();
+    EdDSAPublicKey publicKey = (EdDSAPublicKey) keyPair.getPublic();
+    Ed25519PublicKeyCache cache = new Ed25519PublicKeyCache(10);
+
+    Ed25519PublicKeyCache.Entry entry = cache.get(publicKey.getAbyte());
+    assertSame(entry, cache.get(publicKey.getAbyte()));
+    assertSame(entry, cache.get(publicKey));
+
+    assertArrayEquals(publicKey.getAbyte(), entry.getPublicKey().getAbyte());
+    assertArrayEquals(new TestCondition(publicKey).getFingerprint(), entry.getFingerprint());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void test_cache_is_bounded() {
+    Ed25519PublicKeyCache cache = new Ed25519PublicKeyCache(4);
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    for (int i = 0; i < 10; i++) {
+      cache.get((EdDSAPublicKey) generator.generateKeyPair().getPublic());
+    }
+    assertEquals(4, cache.size());
+    assertEquals(0, cache.getHitRate(), 0);
+  }
+
+  @Test
+  public void test_used_key_survives_eviction() {
+    Ed25519PublicKeyCache cache = new Ed25519PublicKeyCache(4);
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    EdDSAPublicKey hot = (EdDSAPublicKey) generator.generateKeyPair().getPublic();
+    Ed25519PublicKeyCache.Entry entry = cache.get(hot);
+
+    for (int i = 0; i < 20; i++) {
+      assertSame(entry, cache.get(hot));
+      cache.get((EdDSAPublicKey) generator.generateKeyPair().getPublic());
+      assertEquals(Math.min(i + 2, 4), cache.size());
+    }
+    assertEquals(21, cache.getMissCount());
+    assertEquals(20, cache.getHitCount());
+  }
+
+  /**
+   * Computes the fingerprint from the fingerprint contents rather than the cache.
+   */
+  private static class TestCondition extends Ed25519Sha256Condition {
+
+    private final byte[] contents;
+
+    TestCondition(EdDSAPublicKey key) {
+      super(key);
+      contents = getFingerprintContents();
+    }
+
+    @Override
+    public byte[] getFingerprint() {
+      return Digests.sha256().digest(contents);
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package org.interledger.cryptoconditions.crypto;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAEngine;
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+
+public class Test_Ed25519Verifier {
+
+  // RFC 8032, section 7.1, tests 1, 2 and 3: public key, message, signature
+  private static final String[][] RFC_8032_VECTORS = {
+      {"d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a", "",
+          "e5564300c360ac729086e2cc806e828a84877f1eb8e5d974d873e065224901555fb8821590a33bacc61e39"
+              + "701cf9b46bd25bf5f0595bbe24655141438e7a100b"},
+      {"3d4017c3e843895a92b70aa74d1b7ebc9c982ccf2ec4968cc0cd55f12af4660c", "72",
+          "92a009a9f0d4cab8720e820b5f642540a2b27b5416503f8fb3762223ebdb69da085ac1e43e15996e458f36"
+              + "13d0f11d8c387b2eaeb4302aeeb00d291612bb0c00"},
+      {"fc51cd8e6218a1a38da47ed00230f0580816ed13ba3303ac5deb911548908025", "af82",
+          "6291d657deec24024827e69c3abe01a30ce548a284743a445e3680d7db5ac3ac18ff9b538d16f290ae67f7"
+              + "60984dc6594a7c15e9716ed28dc027beceea1ec40a"}};
+
+  @Test
+  public void test_rfc8032_vectors() {
+    for (String[] vector : RFC_8032_VECTORS) {
+      byte[] publicKey = hex(vector[0]);
+      byte[] message = hex(vector[1]);
+      byte[] signature = hex(vector[2]);
+
+      assertTrue(Ed25519Verifier.verify(publicKey, message, signature));
+
+      byte[] tampered = message.length == 0 ? new byte[] {0} : message.clone();
+      tampered[0] ^= 1;
+      assertFalse(Ed25519Verifier.verify(publicKey, tampered, signature));
+    }
+  }
+
+  @Test
+  public void test_signatures_from_eddsa_engine() throws Exception {
+    Random random = new Random(1);
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+
+    for (int i = 0; i < 50; i++) {
+      KeyPair keyPair = generator.generateKeyPair();
+      byte[] publicKey = ((EdDSAPublicKey) keyPair.getPublic()).getAbyte();
+      byte[] message = new byte[random.nextInt(300)];
+      random.nextBytes(message);
+
+      Signature signer = new EdDSAEngine(MessageDigest.getInstance("SHA-512"));
+      signer.initSign(keyPair.getPrivate());
+      signer.update(message);
+      byte[] signature = signer.sign();
+
+      assertTrue(Ed25519Verifier.verify(publicKey, message, signature));
+
+      byte[] badSignature = signature.clone();
+      badSignature[random.nextInt(64)] ^= 1 << random.nextInt(8);
+      assertFalse(Ed25519Verifier.verify(publicKey, message, badSignature));
+    }
+  }
+
+  @Test
+  public void test_rejects_non_canonical_s() {
+    String[] vector = RFC_8032_VECTORS[0];
+    byte[] publicKey = hex(vector[0]);
+    byte[] signature = hex(vector[2]);
+
+    // S + L is an equivalent but non-canonical scalar
+    byte[] l = hex("edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010");
+    int carry = 0;
+    for (int i = 0; i < 32; i++) {
+      int sum = (signature[32 + i] & 0xff) + (l[i] & 0xff) + carry;
+      signature[32 + i] = (byte) sum;
+      carry = sum >> 8;
+    }
+    assertFalse(Ed25519Verifier.verify(publicKey, new byte[0], signature));
+  }
+
+  @Test
+  public void test_invalid_public_key() {
+    // y = 2 is not the y coordinate of a point on the curve
+    byte[] publicKey = new byte[32];
+    publicKey[0] = 2;
+    assertNull(Ed25519Verifier.decodePublicKey(publicKey));
+    assertFalse(Ed25519Verifier.verify(publicKey, new byte[0], new byte[64]));
+  }
+
+  private static byte[] hex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    return bytes;
+  }
+
+}
@@ -0,0 +1,90 @@
+package org.interledger.cryptoconditions.crypto;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Random;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Test;
+
+public class Test_RsaPssVerifier {
+
+  // The JDK only provides RSASSA-PSS from Java 11
+  private static final Provider PROVIDER = new BouncyCastleProvider();
+
+  @Test
+  public void test_signatures_from_jca() throws Exception {
+    Random random = new Random(1);
+
+    for (int bits : new int[] {1024 + 1, 2048, 3072 - 1}) {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(new RSAKeyGenParameterSpec(bits, RSAKeyGenParameterSpec.F4));
+      KeyPair keyPair = generator.generateKeyPair();
+      RsaPssVerifier verifier =
+          new RsaPssVerifier(((RSAPublicKey) keyPair.getPublic()).getModulus());
+
+      for (int i = 0; i < 10; i++) {
+        byte[] message = new byte[random.nextInt(300)];
+        random.nextBytes(message);
+        byte[] signature = sign(keyPair, message);
+
+        assertTrue(verifier.verify(message, signature));
+
+        byte[] badSignature = signature.clone();
+        badSignature[random.nextInt(badSignature.length)] ^= 1 << random.nextInt(8);
+        assertFalse(verifier.verify(message, badSignature));
+
+        byte[] badMessage = new byte[message.length + 1];
+        System.arraycopy(message, 0, badMessage, 0, message.length);
+        assertFalse(verifier.verify(badMessage, signature));
+      }
+    }
+  }
+
+  @Test
+  public void test_rejects_wrong_length() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    RsaPssVerifier verifier =
+        new RsaPssVerifier(((RSAPublicKey) keyPair.getPublic()).getModulus());
+
+    byte[] signature = sign(keyPair, new byte[0]);
+    byte[] padded = new byte[signature.length + 1];
+    System.arraycopy(signature, 0, padded, 1, signature.length);
+    assertFalse(verifier.verify(new byte[0], padded));
+    assertFalse(verifier.verify(new byte[0], new byte[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_rejects_other_exponent() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(1024);
+    BigInteger modulus = ((RSAPublicKey) generator.generateKeyPair().getPublic()).getModulus();
+    RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+        .generatePublic(new RSAPublicKeySpec(modulus, BigInteger.valueOf(3)));
+
+    new RsaPssVerifier(publicKey);
+  }
+
+  private static byte[] sign(KeyPair keyPair, byte[] message) throws Exception {
+    Signature signer = Signature.getInstance("SHA256withRSAandMGF1", PROVIDER);
+    signer.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256,
+        RsaPssVerifier.SALT_LENGTH, 1));
+    signer.initSign(keyPair.getPrivate());
+    signer.update(message);
+    return signer.sign();
+  }
+
+}
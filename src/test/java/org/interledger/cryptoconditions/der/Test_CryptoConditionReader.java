@@ -0,0 +1,165 @@
+package org.interledger.cryptoconditions.der;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+import org.junit.Test;
+
+public class Test_CryptoConditionReader {
+
+  /**
+   * Encode a chain of prefix fulfillments around a preimage fulfillment, from the inside out.
+   */
+  private static byte[] encodePrefixChain(int depth) {
+    byte[] preimage = new PreimageSha256Fulfillment(new byte[] {1, 2, 3}).getEncoded();
+    byte[] buffer = new byte[preimage.length + depth * 20];
+    int start = buffer.length - preimage.length;
+    System.arraycopy(preimage, 0, buffer, start, preimage.length);
+
+    for (int i = 0; i < depth; i++) {
+      start = prependHeader(buffer, start, 0xa2, buffer.length - start);
+      // maxMessageLength = 127
+      buffer[--start] = 127;
+      buffer[--start] = 1;
+      buffer[--start] = (byte) 0x81;
+      // prefix = i
+      buffer[--start] = (byte) i;
+      buffer[--start] = 1;
+      buffer[--start] = (byte) 0x80;
+      start = prependHeader(buffer, start, 0xa1, buffer.length - start);
+    }
+    return Arrays.copyOfRange(buffer, start, buffer.length);
+  }
+
+  private static int prependHeader(byte[] buffer, int start, int tag, int length) {
+    if (length < 128) {
+      buffer[--start] = (byte) length;
+    } else {
+      int lengthOfLength = 0;
+      for (; length > 0; length >>>= 8) {
+        buffer[--start] = (byte) length;
+        lengthOfLength++;
+      }
+      buffer[--start] = (byte) (0x80 | lengthOfLength);
+    }
+    buffer[--start] = (byte) tag;
+    return start;
+  }
+
+  @Test
+  public void test_round_trip() throws Exception {
+    Fulfillment preimage = new PreimageSha256Fulfillment(new byte[] {1, 2, 3});
+    Fulfillment prefix = new PrefixSha256Fulfillment(new byte[] {4}, 100, preimage);
+    Fulfillment fulfillment = new ThresholdSha256Fulfillment(
+        new Condition[] {new PreimageSha256Fulfillment(new byte[] {5}).getCondition()},
+        new Fulfillment[] {preimage, prefix, new ThresholdSha256Fulfillment(
+            new Condition[] {prefix.getCondition()}, new Fulfillment[0])});
+    byte[] encoded = fulfillment.getEncoded();
+
+    Fulfillment decoded = CryptoConditionReader.readFulfillment(encoded);
+    assertArrayEquals(encoded, decoded.getEncoded());
+    assertEquals(fulfillment.getCondition(), decoded.getCondition());
+
+    decoded = CryptoConditionReader
+        .readFulfillment(new DERInputStream(new ByteArrayInputStream(encoded)));
+    assertArrayEquals(encoded, decoded.getEncoded());
+  }
+
+  @Test
+  public void test_retains_canonical_encoding() throws Exception {
+    byte[] encoded = new ThresholdSha256Fulfillment(
+        new Condition[] {new PreimageSha256Fulfillment(new byte[] {5}).getCondition()},
+        new Fulfillment[] {new PrefixSha256Fulfillment(new byte[] {4}, 100,
+            new PreimageSha256Fulfillment(new byte[] {1, 2, 3}))}).getEncoded();
+    byte[] buffer = Arrays.copyOf(encoded, encoded.length + 1);
+
+    ThresholdSha256Fulfillment decoded =
+        (ThresholdSha256Fulfillment) CryptoConditionReader.readFulfillment(buffer);
+    Arrays.fill(buffer, (byte) 0);
+    assertArrayEquals(encoded, decoded.getEncoded());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    decoded.writeTo(out);
+    assertArrayEquals(encoded, out.toByteArray());
+
+    // The nested fulfillment and condition retain their part of the same encoding
+    Fulfillment prefix = decoded.getSubfulfillments()[0];
+    assertArrayEquals(Arrays.copyOfRange(encoded, 4, 4 + prefix.getEncoded().length),
+        prefix.getEncoded());
+    assertArrayEquals(new PreimageSha256Fulfillment(new byte[] {5}).getCondition().getEncoded(),
+        decoded.getSubconditions()[0].getEncoded());
+  }
+
+  @Test
+  public void test_non_canonical_encoding() throws Exception {
+    // A long form length that fits the short form, then a maximum message length with a
+    // redundant leading zero
+    byte[][] encodings = {
+        {(byte) 0xa0, (byte) 0x81, 5, (byte) 0x80, 3, 1, 2, 3},
+        {(byte) 0xa1, 16, (byte) 0x80, 1, 4, (byte) 0x81, 2, 0, 100, (byte) 0xa2, 7,
+            (byte) 0xa0, 5, (byte) 0x80, 3, 1, 2, 3}};
+    for (byte[] encoding : encodings) {
+      Fulfillment decoded = CryptoConditionReader.readFulfillment(encoding);
+      Fulfillment fresh = decoded instanceof PreimageSha256Fulfillment
+          ? new PreimageSha256Fulfillment(((PreimageSha256Fulfillment) decoded).getPreimage())
+          : new PrefixSha256Fulfillment(((PrefixSha256Fulfillment) decoded).getPrefix(), 100,
+              ((PrefixSha256Fulfillment) decoded).getSubfulfillment());
+      assertFalse(Arrays.equals(encoding, decoded.getEncoded()));
+      assertArrayEquals(fresh.getEncoded(), decoded.getEncoded());
+    }
+  }
+
+  @Test
+  public void test_deep_nesting() throws Exception {
+    int depth = CryptoConditionValidator.DEFAULT_MAX_DEPTH;
+    Fulfillment root = CryptoConditionReader.readFulfillment(encodePrefixChain(depth));
+
+    Fulfillment fulfillment = root;
+    for (int i = depth - 1; i >= 0; i--) {
+      PrefixSha256Fulfillment prefix = (PrefixSha256Fulfillment) fulfillment;
+      assertArrayEquals(new byte[] {(byte) i}, prefix.getPrefix());
+      fulfillment = prefix.getSubfulfillment();
+    }
+    assertTrue(fulfillment instanceof PreimageSha256Fulfillment);
+
+    Condition condition = root.getCondition();
+    assertTrue(root.verify(condition, new byte[0]));
+  }
+
+  @Test(expected = DEREncodingException.class)
+  public void test_too_deep() throws Exception {
+    // Deep enough to overflow the stack when deriving the condition, if it were decoded
+    CryptoConditionReader.readFulfillment(encodePrefixChain(100000));
+  }
+
+  @Test
+  public void test_max_depth() throws Exception {
+    int depth = CryptoConditionValidator.DEFAULT_MAX_DEPTH + 1;
+    byte[] encoded = encodePrefixChain(depth);
+
+    try {
+      CryptoConditionReader.readFulfillment(encoded);
+      fail("Expected a fulfillment nested too deeply to be rejected.");
+    } catch (DEREncodingException e) {
+      // expected
+    }
+
+    Fulfillment fulfillment =
+        CryptoConditionReader.readFulfillment(encoded, 0, encoded.length, depth);
+    assertTrue(fulfillment.verify(fulfillment.getCondition(), new byte[0]));
+  }
+
+  @Test(expected = DEREncodingException.class)
+  public void test_truncated() throws Exception {
+    byte[] encoded = encodePrefixChain(3);
+    CryptoConditionReader.readFulfillment(encoded, 0, encoded.length - 1);
+  }
+
+}
@@ -0,0 +1,94 @@
+package org.interledger.cryptoconditions.der;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.HexDump;
+import org.interledger.cryptoconditions.test.TestVector;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class Test_CryptoConditionValidator {
+
+  private static Fulfillment nested(int depth) {
+    Fulfillment fulfillment = new PreimageSha256Fulfillment(new byte[] {1, 2, 3});
+    for (int i = 0; i < depth; i++) {
+      fulfillment = i % 2 == 0
+          ? new PrefixSha256Fulfillment(new byte[] {(byte) i}, 1000, fulfillment)
+          : new ThresholdSha256Fulfillment(new Condition[0], new Fulfillment[] {fulfillment});
+    }
+    return fulfillment;
+  }
+
+  @Test
+  public void test_valid_test_vectors() throws Exception {
+    URL vectors = TestVector.class.getResource("vectors/valid");
+    ObjectMapper mapper = new ObjectMapper();
+
+    for (File file : new File(vectors.toURI()).listFiles((dir, name) -> name.endsWith(".json"))) {
+      TestVector vector = mapper.readValue(file, TestVector.class);
+      byte[] fulfillment = HexDump.hexStringToByteArray(vector.getFulfillment());
+      byte[] condition = HexDump.hexStringToByteArray(vector.getConditionBinary());
+
+      assertTrue(file.getName(), CryptoConditionValidator.isValidFulfillment(fulfillment));
+      assertTrue(file.getName(), CryptoConditionValidator.isValidCondition(condition));
+      assertTrue(file.getName(), CryptoConditionValidator.isValidFulfillment(direct(fulfillment)));
+      assertFalse(file.getName(), CryptoConditionValidator
+          .isValidFulfillment(Arrays.copyOf(fulfillment, fulfillment.length - 1)));
+      assertFalse(file.getName(), CryptoConditionValidator
+          .isValidFulfillment(Arrays.copyOf(fulfillment, fulfillment.length + 1)));
+      assertFalse(file.getName(), CryptoConditionValidator.isValidCondition(fulfillment));
+    }
+  }
+
+  private static ByteBuffer direct(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+    buffer.put((byte) 0).put(bytes).put((byte) 0);
+    buffer.position(1);
+    buffer.limit(1 + bytes.length);
+    return buffer;
+  }
+
+  @Test
+  public void test_nesting_limit() {
+    byte[] encoded = nested(10).getEncoded();
+    assertTrue(CryptoConditionValidator.isValidFulfillment(encoded));
+    assertTrue(CryptoConditionValidator.isValidFulfillment(encoded, 10));
+    assertFalse(CryptoConditionValidator.isValidFulfillment(encoded, 9));
+  }
+
+  @Test
+  public void test_non_canonical_length() {
+    // PREIMAGE-SHA-256 with the preimage length in long form
+    byte[] canonical = {(byte) 0xa0, 0x05, (byte) 0x80, 0x03, 1, 2, 3};
+    byte[] longForm = {(byte) 0xa0, 0x06, (byte) 0x80, (byte) 0x81, 0x03, 1, 2, 3};
+    assertTrue(CryptoConditionValidator.isValidFulfillment(canonical));
+    assertFalse(CryptoConditionValidator.isValidFulfillment(longForm));
+  }
+
+  @Test
+  public void test_truncated() {
+    byte[] encoded = nested(3).getEncoded();
+    for (int i = 0; i < encoded.length; i++) {
+      assertFalse(CryptoConditionValidator.isValidFulfillment(Arrays.copyOf(encoded, i)));
+    }
+  }
+
+  @Test
+  public void test_wrong_tag() {
+    byte[] encoded = nested(1).getEncoded();
+    encoded[2] ^= 0x01;
+    assertFalse(CryptoConditionValidator.isValidFulfillment(encoded));
+  }
+
+}
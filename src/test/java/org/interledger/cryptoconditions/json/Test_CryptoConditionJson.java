@@ -0,0 +1,166 @@
+package org.interledger.cryptoconditions.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.HexDump;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.json.CryptoConditionJson.Form;
+import org.interledger.cryptoconditions.test.TestVector;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.interledger.cryptoconditions.types.ThresholdSha256Fulfillment;
+import org.junit.Test;
+
+public class Test_CryptoConditionJson {
+
+  @Test
+  public void test_valid_test_vectors() throws Exception {
+    URL vectors = TestVector.class.getResource("vectors/valid");
+
+    for (File file : new File(vectors.toURI()).listFiles((dir, name) -> name.endsWith(".json"))) {
+      String name = file.getName();
+      JsonReader in = new JsonReader(new String(Files.readAllBytes(file.toPath()),
+          StandardCharsets.UTF_8));
+      Fulfillment fulfillment = null;
+      Condition condition = null;
+
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "json":
+            fulfillment = CryptoConditionJson.readFulfillment(in);
+            break;
+          case "fulfillment":
+            condition = CryptoConditionReader
+                .readFulfillment(HexDump.hexStringToByteArray(in.nextString())).getCondition();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      in.endDocument();
+
+      assertArrayEquals(name, condition.getEncoded(), fulfillment.getCondition().getEncoded());
+
+      for (Form form : new Form[] {Form.BINARY, Form.STRUCTURED}) {
+        String json = CryptoConditionJson.toJson(fulfillment, form);
+        assertArrayEquals(name, fulfillment.getEncoded(),
+            CryptoConditionJson.readFulfillment(json).getEncoded());
+      }
+      for (Form form : Form.values()) {
+        String json = CryptoConditionJson.toJson(condition, form);
+        assertArrayEquals(name, condition.getEncoded(),
+            CryptoConditionJson.readCondition(json).getEncoded());
+      }
+    }
+  }
+
+  @Test
+  public void test_structured_condition() throws Exception {
+    Condition condition = new ThresholdSha256Fulfillment(new Condition[0],
+        new Fulfillment[] {new PreimageSha256Fulfillment(new byte[0])}).getCondition();
+
+    assertEquals("{\"type\":\"threshold-sha-256\","
+        + "\"fingerprint\":\"tLhBNt9Ipx1z9JhcBMZ2eneOy2W6cCO0UGgjvu52Mbk\","
+        + "\"cost\":1024,\"subtypes\":[\"preimage-sha-256\"]}",
+        CryptoConditionJson.toJson(condition, Form.STRUCTURED));
+  }
+
+  @Test
+  public void test_extra_subfulfillments_become_conditions() throws Exception {
+    Fulfillment small = new PreimageSha256Fulfillment(new byte[] {1});
+    Fulfillment large = new PreimageSha256Fulfillment(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    String json = "{\"type\":\"threshold-sha-256\",\"threshold\":1,\"subfulfillments\":["
+        + CryptoConditionJson.toJson(large, Form.STRUCTURED) + ","
+        + CryptoConditionJson.toJson(small, Form.STRUCTURED) + "]}";
+
+    ThresholdSha256Fulfillment threshold =
+        (ThresholdSha256Fulfillment) CryptoConditionJson.readFulfillment(json);
+    assertEquals(1, threshold.getSubfulfillments().length);
+    assertArrayEquals(small.getEncoded(), threshold.getSubfulfillments()[0].getEncoded());
+    assertEquals(1, threshold.getSubconditions().length);
+    assertArrayEquals(large.getCondition().getEncoded(),
+        threshold.getSubconditions()[0].getEncoded());
+  }
+
+  @Test
+  public void test_write_to_stream() throws Exception {
+    Fulfillment fulfillment = new PreimageSha256Fulfillment(new byte[] {(byte) 0xfb, (byte) 0xff});
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginArray();
+    CryptoConditionJson.writeFulfillment(fulfillment, Form.STRUCTURED, writer);
+    writer.value("é\"").endArray();
+
+    assertEquals("[{\"type\":\"preimage-sha-256\",\"preimage\":\"-_8\"},\"\\u00e9\\\"\"]",
+        new String(out.toByteArray(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void test_skip_unknown_members() throws Exception {
+    String json = "{\"x\":{\"a\":[1,-2.5e+3,0.5,true,false,null,\"s\",{},[]],\"b\":{\"c\":[[]]}},"
+        + "\"type\":\"preimage-sha-256\",\"y\":\"z\",\"preimage\":\"AQ\",\"z\":-0}";
+
+    assertArrayEquals(new PreimageSha256Fulfillment(new byte[] {1}).getEncoded(),
+        CryptoConditionJson.readFulfillment(json).getEncoded());
+  }
+
+  @Test
+  public void test_invalid_json() {
+    String[] invalid = {
+        "{\"type\":\"preimage-sha-256\"}",
+        "{\"type\":\"unknown\",\"preimage\":\"\"}",
+        "{\"type\":\"preimage-sha-256\",\"preimage\":\"!\"}",
+        "{\"type\":\"preimage-sha-256\",\"preimage\":\"\"",
+        "{\"type\":\"preimage-sha-256\",\"preimage\":\"\"} x",
+        "{\"type\":\"threshold-sha-256\",\"threshold\":2,\"subfulfillments\":[]}",
+        "{\"type\":\"threshold-sha-256\",\"threshold\":-3,\"subfulfillments\":[]}",
+        "\"oA\"",
+        // Unknown members are skipped, but must still be well formed
+        "{\"x\":,\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":[1 2 :],\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":nonsense,\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":{\"a\"},\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":[1,],\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":[1},\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":01,\"type\":\"preimage-sha-256\",\"preimage\":\"\"}",
+        "{\"x\":}",
+    };
+    for (String json : invalid) {
+      try {
+        CryptoConditionJson.readFulfillment(json);
+        fail(json);
+      } catch (JsonEncodingException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void test_invalid_structured_condition() {
+    String fingerprint = "\"fingerprint\":\"47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU\"";
+    String[] invalid = {
+        "{\"type\":\"preimage-sha-256\",\"fingerprint\":\"AAAA\",\"cost\":1}",
+        "{\"type\":\"preimage-sha-256\"," + fingerprint + ",\"cost\":-1}",
+        "{\"type\":\"preimage-sha-256\"," + fingerprint + "}",
+        "{" + fingerprint + ",\"cost\":1}",
+    };
+    for (String json : invalid) {
+      try {
+        CryptoConditionJson.readCondition(json);
+        fail(json);
+      } catch (JsonEncodingException e) {
+        // expected
+      }
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+package org.interledger.cryptoconditions.store;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.der.DEREncodingException;
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.junit.Test;
+
+public class Test_ConditionStore {
+
+  private static PreimageSha256Condition preimageCondition(int i) {
+    return new PreimageSha256Condition(ByteBuffer.allocate(4).putInt(i).array());
+  }
+
+  @Test
+  public void test_add_get_remove() throws DEREncodingException {
+    ConditionStore store = ConditionStore.allocate(16);
+    PreimageSha256Condition condition = preimageCondition(1);
+
+    assertTrue(store.add(condition));
+    assertFalse(store.add(condition));
+    assertEquals(1, store.size());
+    assertTrue(store.contains(condition));
+    assertEquals(condition, store.get(condition.getEncoded()));
+
+    assertTrue(store.remove(condition.getEncoded()));
+    assertFalse(store.contains(condition));
+    assertNull(store.get(condition.getEncoded()));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  public void test_compound_condition_keeps_subtypes() throws DEREncodingException {
+    ConditionStore store = ConditionStore.allocate(16);
+    Condition condition = new PrefixSha256Condition(new byte[] {1, 2, 3}, 100, preimageCondition(1));
+
+    store.add(condition);
+    Condition stored = store.get(condition.getEncoded());
+
+    assertEquals(condition, stored);
+    assertEquals(EnumSet.of(ConditionType.PREIMAGE_SHA256),
+        ((PrefixSha256Condition) stored).getSubtypes());
+    assertArrayEquals(condition.getEncoded(), stored.getEncoded());
+  }
+
+  @Test
+  public void test_remove_keeps_other_conditions_reachable() {
+    ConditionStore store = ConditionStore.allocate(1000);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(store.add(preimageCondition(i)));
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      assertTrue(store.remove(preimageCondition(i)));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i % 2 == 1, store.contains(preimageCondition(i)));
+    }
+    assertEquals(500, store.size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_full_store() {
+    ConditionStore store = ConditionStore.allocate(1);
+    for (int i = 0; i <= store.capacity(); i++) {
+      store.add(preimageCondition(i));
+    }
+  }
+
+  @Test
+  public void test_store_survives_reopen() throws IOException, DEREncodingException {
+    Path file = Files.createTempFile("conditions", ".store");
+    file.toFile().deleteOnExit();
+    Files.delete(file);
+
+    try (ConditionStore store = ConditionStore.open(file, 100)) {
+      for (int i = 0; i < 100; i++) {
+        store.add(preimageCondition(i));
+      }
+    }
+
+    try (ConditionStore store = ConditionStore.open(file, 1)) {
+      assertEquals(100, store.size());
+      assertEquals(preimageCondition(42), store.get(preimageCondition(42).getEncoded()));
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.interledger.cryptoconditions.store;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.types.PrefixSha256Fulfillment;
+import org.interledger.cryptoconditions.types.PreimageSha256Fulfillment;
+import org.junit.Test;
+
+public class Test_FulfillmentMatcher {
+
+  private static PreimageSha256Fulfillment preimageFulfillment(int i) {
+    return new PreimageSha256Fulfillment(ByteBuffer.allocate(4).putInt(i).array());
+  }
+
+  @Test
+  public void test_match() {
+    FulfillmentMatcher<Integer> matcher = new FulfillmentMatcher<>();
+    for (int i = 0; i < 10000; i++) {
+      matcher.add(preimageFulfillment(i).getCondition(), i);
+    }
+
+    assertEquals(10000, matcher.size());
+    assertEquals(Collections.singletonList(1234), matcher.match(preimageFulfillment(1234)));
+    assertTrue(matcher.match(preimageFulfillment(10000)).isEmpty());
+  }
+
+  @Test
+  public void test_match_is_keyed_on_type() {
+    FulfillmentMatcher<String> matcher = new FulfillmentMatcher<>();
+    PreimageSha256Fulfillment preimage = preimageFulfillment(1);
+    PrefixSha256Fulfillment prefix = new PrefixSha256Fulfillment(new byte[0], 0, preimage);
+
+    matcher.add(preimage.getCondition(), "preimage");
+
+    assertTrue(matcher.match(prefix).isEmpty());
+    assertEquals(Collections.singletonList("preimage"), matcher.match(preimage));
+  }
+
+  @Test
+  public void test_duplicate_conditions_and_remove() {
+    FulfillmentMatcher<String> matcher = new FulfillmentMatcher<>();
+    Condition condition = preimageFulfillment(1).getCondition();
+
+    matcher.add(condition, "a");
+    matcher.add(condition, "b");
+    for (int i = 2; i < 100; i++) {
+      matcher.add(preimageFulfillment(i).getCondition(), "x" + i);
+    }
+
+    assertEquals(Arrays.asList("a", "b"), matcher.match(preimageFulfillment(1)));
+    assertTrue(matcher.remove(condition, "a"));
+    assertFalse(matcher.remove(condition, "a"));
+    assertEquals(Collections.singletonList("b"), matcher.match(preimageFulfillment(1)));
+
+    for (int i = 2; i < 100; i += 2) {
+      assertTrue(matcher.remove(preimageFulfillment(i).getCondition(), "x" + i));
+    }
+    for (int i = 3; i < 100; i += 2) {
+      assertEquals(Collections.singletonList("x" + i), matcher.match(preimageFulfillment(i)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_expected_size_too_large() {
+    // One more than 3/4 of the largest table
+    new FulfillmentMatcher<String>((1 << 28) / 4 * 3 + 1);
+  }
+
+}
@@ -0,0 +1,109 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.HexDump;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.test.TestVector;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Shares freshly decoded fulfillments between threads that all race to compute their derived
+ * values, and checks that every thread sees the values computed by a single thread.
+ */
+public class Test_ConcurrentSharing {
+
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 50;
+
+  @Test
+  public void test_shared_fulfillments() throws Exception {
+    URL vectors = TestVector.class.getResource("vectors/valid");
+    ObjectMapper mapper = new ObjectMapper();
+    List<byte[]> fulfillments = new ArrayList<>();
+    List<byte[]> messages = new ArrayList<>();
+    for (File file : new File(vectors.toURI()).listFiles((dir, name) -> name.endsWith(".json"))) {
+      TestVector vector = mapper.readValue(file, TestVector.class);
+      fulfillments.add(HexDump.hexStringToByteArray(vector.getFulfillment()));
+      messages.add(vector.getMessage() != null
+          ? HexDump.hexStringToByteArray(vector.getMessage()) : new byte[0]);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        for (int v = 0; v < fulfillments.size(); v++) {
+          Fulfillment expected = CryptoConditionReader.readFulfillment(fulfillments.get(v));
+          byte[] expectedCondition = expected.getCondition().getEncoded();
+          URI expectedUri = expected.getCondition().getUri();
+          int expectedHashCode = expected.getCondition().hashCode();
+          byte[] message = messages.get(v);
+          String expectedVerify = verify(expected, expected.getCondition(), message);
+
+          Fulfillment shared = CryptoConditionReader.readFulfillment(fulfillments.get(v));
+          Condition sharedCondition = CryptoConditionReader.readCondition(expectedCondition);
+
+          List<Future<?>> results = new ArrayList<>();
+          for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+              barrier.await();
+              Condition condition = shared.getCondition();
+              assertArrayEquals(expectedCondition, condition.getEncoded());
+              assertEquals(expectedUri, condition.getUri());
+              assertEquals(expectedHashCode, condition.hashCode());
+              assertEquals(sharedCondition, condition);
+              assertEquals(expectedHashCode, sharedCondition.hashCode());
+              assertEquals(expectedVerify, verify(shared, sharedCondition, message));
+              return null;
+            }));
+          }
+          for (Future<?> result : results) {
+            result.get();
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Verify a fulfillment, describing the outcome so that failures can be compared too.
+   */
+  private static String verify(Fulfillment fulfillment, Condition condition, byte[] message) {
+    try {
+      return String.valueOf(fulfillment.verify(condition, message));
+    } catch (RuntimeException e) {
+      return e.toString();
+    }
+  }
+
+  @Test
+  public void test_fingerprint_is_copied() {
+    // A condition shared between threads must not change if the array it was built from does
+    byte[] fingerprint = new PreimageSha256Fulfillment(new byte[] {1}).getCondition()
+        .getFingerprint();
+    byte[] given = fingerprint.clone();
+
+    PreimageSha256Condition condition = new PreimageSha256Condition(fingerprint, 1);
+    fingerprint[0] ^= 1;
+
+    assertArrayEquals(given, condition.getFingerprint());
+  }
+
+}
@@ -0,0 +1,88 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.interledger.cryptoconditions.CompoundCondition;
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.interledger.cryptoconditions.HexDump;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.test.TestVector;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class Test_ConditionCost {
+
+  private static void assertCost(String message, Condition expected, ConditionCost actual) {
+    assertEquals(message, expected.getType(), actual.getType());
+    assertEquals(message, expected.getCost(), actual.getCost());
+    assertEquals(message, expected instanceof CompoundCondition
+        ? ((CompoundCondition) expected).getSubtypes() : EnumSet.noneOf(ConditionType.class),
+        actual.getSubtypes());
+  }
+
+  @Test
+  public void test_valid_test_vectors() throws Exception {
+    URL vectors = TestVector.class.getResource("vectors/valid");
+    ObjectMapper mapper = new ObjectMapper();
+
+    for (File file : new File(vectors.toURI()).listFiles((dir, name) -> name.endsWith(".json"))) {
+      TestVector vector = mapper.readValue(file, TestVector.class);
+      byte[] encoded = HexDump.hexStringToByteArray(vector.getFulfillment());
+      Fulfillment fulfillment = CryptoConditionReader.readFulfillment(encoded);
+
+      assertCost(file.getName(), fulfillment.getCondition(),
+          CryptoConditionReader.readFulfillmentCost(encoded));
+    }
+  }
+
+  @Test
+  public void test_tree_description() {
+    PreimageSha256Fulfillment preimage = new PreimageSha256Fulfillment(new byte[7]);
+    PrefixSha256Fulfillment prefix = new PrefixSha256Fulfillment(new byte[3], 100, preimage);
+    Condition[] subconditions = {preimage.getCondition(), prefix.getCondition(),
+        new Ed25519Sha256Condition(new byte[32], 131072)};
+    ThresholdSha256Condition threshold = new ThresholdSha256Condition(2, subconditions);
+
+    ConditionCost cost = ConditionCost.threshold(2, ConditionCost.preimage(7),
+        ConditionCost.prefix(3, 100, ConditionCost.preimage(7)), ConditionCost.ed25519());
+    assertCost("threshold", threshold, cost);
+    assertCost("nested", new PrefixSha256Condition(new byte[1], 0, threshold),
+        ConditionCost.prefix(1, 0, ConditionCost.of(threshold)));
+  }
+
+  @Test
+  public void test_sum_of_largest() {
+    Random random = new Random(11);
+    for (int n = 0; n < 200; n++) {
+      long[] costs = new long[n];
+      for (int i = 0; i < n; i++) {
+        // Few distinct values to exercise duplicates, and values whose difference overflows an int
+        costs[i] = random.nextBoolean() ? random.nextInt(4) : random.nextLong() >>> 20;
+      }
+      long[] sorted = costs.clone();
+      Arrays.sort(sorted);
+      for (int t = 0; t <= n; t += Math.max(1, n / 7)) {
+        long expected = 0;
+        for (int i = n - t; i < n; i++) {
+          expected += sorted[i];
+        }
+        assertEquals(expected, ConditionCost.sumOfLargest(costs.clone(), t));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_threshold_too_high() {
+    ConditionCost.threshold(2, ConditionCost.ed25519());
+  }
+
+}
@@ -0,0 +1,87 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.interledger.cryptoconditions.Condition;
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAPublicKey;
+import net.i2p.crypto.eddsa.KeyPairGenerator;
+
+public class Test_ConditionTemplate {
+
+  private static Condition ed25519() {
+    return new Ed25519Sha256Condition(
+        (EdDSAPublicKey) new KeyPairGenerator().generateKeyPair().getPublic());
+  }
+
+  private static Condition preimage(Random random, int length) {
+    byte[] preimage = new byte[length];
+    random.nextBytes(preimage);
+    return new PreimageSha256Condition(preimage);
+  }
+
+  private static void assertSame(Condition expected, Condition actual) {
+    assertEquals(expected, actual);
+    assertArrayEquals(expected.getEncoded(), actual.getEncoded());
+    assertEquals(expected.getUri(), actual.getUri());
+  }
+
+  @Test
+  public void test_prefix() {
+    Random random = new Random(1);
+    byte[] prefix = new byte[200];
+    random.nextBytes(prefix);
+    ConditionTemplate template = ConditionTemplate.prefix(prefix, 1000000);
+
+    for (Condition leaf : new Condition[] {ed25519(), preimage(random, 32),
+        preimage(random, 300)}) {
+      assertSame(new PrefixSha256Condition(prefix, 1000000, leaf), template.instantiate(leaf));
+    }
+  }
+
+  @Test
+  public void test_threshold() {
+    Random random = new Random(2);
+    Condition keyA = ed25519();
+    Condition keyB = ed25519();
+    Condition big = preimage(random, 150000);
+
+    for (int threshold = 0; threshold <= 4; threshold++) {
+      ConditionTemplate template = ConditionTemplate.threshold(threshold, keyA, keyB, big);
+      for (int length : new int[] {0, 1, 32, 200000}) {
+        Condition leaf = preimage(random, length);
+        ThresholdSha256Condition instance =
+            (ThresholdSha256Condition) template.instantiate(leaf);
+        assertSame(new ThresholdSha256Condition(threshold,
+            new Condition[] {keyB, leaf, big, keyA}), instance);
+        assertEquals(threshold, instance.getThreshold());
+        assertEquals(4, instance.getSubconditions().length);
+      }
+    }
+  }
+
+  @Test
+  public void test_nested() {
+    Random random = new Random(3);
+    Condition keyA = ed25519();
+    Condition keyB = ed25519();
+    byte[] prefix = {1, 2, 3};
+    ConditionTemplate template = ConditionTemplate.prefix(prefix, 4096,
+        ConditionTemplate.threshold(2, ConditionTemplate.threshold(1, keyB), keyA));
+
+    Condition leaf = preimage(random, 32);
+    Condition expected = new PrefixSha256Condition(prefix, 4096,
+        new ThresholdSha256Condition(2, new Condition[] {keyA,
+            new ThresholdSha256Condition(1, new Condition[] {leaf, keyB})}));
+    assertSame(expected, template.instantiate(leaf));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_threshold_too_high() {
+    ConditionTemplate.threshold(3, ed25519());
+  }
+
+}
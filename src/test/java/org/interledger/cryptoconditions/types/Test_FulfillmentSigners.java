@@ -0,0 +1,69 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAKeyGenParameterSpec;
+
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+
+public class Test_FulfillmentSigners {
+
+  private static byte[][] messages(int count) {
+    byte[][] messages = new byte[count][];
+    for (int i = 0; i < count; i++) {
+      messages[i] = ("message " + i).getBytes(StandardCharsets.UTF_8);
+    }
+    return messages;
+  }
+
+  @Test
+  public void test_ed25519_sign_all() {
+    KeyPair keyPair = new net.i2p.crypto.eddsa.KeyPairGenerator().generateKeyPair();
+    Ed25519Sha256Signer signer = new Ed25519Sha256Signer((EdDSAPrivateKey) keyPair.getPrivate());
+    Ed25519Sha256Condition condition = signer.getCondition();
+
+    byte[][] messages = messages(Ed25519Sha256Signer.PARALLEL_THRESHOLD * 2);
+    Ed25519Sha256Fulfillment[] fulfillments = signer.signAll(messages);
+
+    assertEquals(messages.length, fulfillments.length);
+    for (int i = 0; i < messages.length; i++) {
+      assertTrue(fulfillments[i].verify(condition, messages[i]));
+      assertFalse(fulfillments[i].verify(condition, messages[(i + 1) % messages.length]));
+    }
+  }
+
+  @Test
+  public void test_rsa_sign() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4));
+    KeyPair keyPair = generator.generateKeyPair();
+    RsaSha256Signer signer = new RsaSha256Signer((RSAPrivateKey) keyPair.getPrivate(),
+        (RSAPublicKey) keyPair.getPublic());
+    RsaSha256Condition condition = signer.getCondition();
+
+    byte[][] messages = messages(8);
+    RsaSha256Fulfillment[] fulfillments = signer.signAll(messages);
+
+    for (int i = 0; i < messages.length; i++) {
+      assertTrue(fulfillments[i].verify(condition, messages[i]));
+      assertFalse(fulfillments[i].verify(condition, messages[(i + 1) % messages.length]));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_rsa_rejects_other_exponent() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(new RSAKeyGenParameterSpec(1024, RSAKeyGenParameterSpec.F0));
+    KeyPair keyPair = generator.generateKeyPair();
+
+    new RsaSha256Signer((RSAPrivateKey) keyPair.getPrivate(), (RSAPublicKey) keyPair.getPublic());
+  }
+
+}
@@ -0,0 +1,40 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+
+import org.interledger.cryptoconditions.Condition;
+import org.junit.Test;
+
+public class Test_PreimageSha256BatchVerifier {
+
+  @Test
+  public void test_batch_verify() {
+    int count = 1000;
+    PreimageSha256Fulfillment[] fulfillments = new PreimageSha256Fulfillment[count];
+    Condition[] conditions = new Condition[count];
+    byte[][] preimages = new byte[count][];
+    byte[][] fingerprints = new byte[count][];
+
+    for (int i = 0; i < count; i++) {
+      preimages[i] = ("preimage " + i).getBytes();
+      fulfillments[i] = new PreimageSha256Fulfillment(preimages[i]);
+      conditions[i] = (i % 3 == 0)
+          ? new PreimageSha256Condition(("other " + i).getBytes())
+          : fulfillments[i].getCondition();
+      fingerprints[i] = conditions[i].getFingerprint();
+    }
+
+    BitSet fromFulfillments = PreimageSha256BatchVerifier.verify(fulfillments, conditions);
+    BitSet fromPreimages = PreimageSha256BatchVerifier.verify(preimages, fingerprints);
+
+    for (int i = 0; i < count; i++) {
+      boolean expected = fulfillments[i].verify(conditions[i], new byte[0]);
+      assertEquals(i % 3 != 0, expected);
+      assertEquals(expected, fromFulfillments.get(i));
+      assertEquals(expected, fromPreimages.get(i));
+    }
+  }
+
+}
@@ -0,0 +1,29 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class Test_PreimageSha256Generator {
+
+  @Test
+  public void test_generated_conditions_match_preimages() {
+    PreimageSha256Generator.Batch batch = new PreimageSha256Generator(40).generate(100);
+    assertEquals(100, batch.size());
+
+    for (int i = 0; i < batch.size(); i++) {
+      byte[] preimage = batch.getPreimage(i);
+      assertEquals(40, preimage.length);
+
+      PreimageSha256Condition expected = new PreimageSha256Condition(preimage);
+      assertEquals(expected, batch.getCondition(i));
+      assertArrayEquals(expected.getFingerprint(), batch.getFingerprint(i));
+
+      PreimageSha256Fulfillment fulfillment = batch.getFulfillment(i);
+      assertArrayEquals(preimage, fulfillment.getPreimage());
+      assertEquals(expected, fulfillment.getCondition());
+      assertTrue(fulfillment.verify(expected, new byte[0]));
+    }
+  }
+
+}
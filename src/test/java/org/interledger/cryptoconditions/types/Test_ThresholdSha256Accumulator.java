@@ -0,0 +1,106 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.interledger.cryptoconditions.Condition;
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+
+public class Test_ThresholdSha256Accumulator {
+
+  private static final byte[] MESSAGE = "escrow release".getBytes(StandardCharsets.UTF_8);
+
+  private static Ed25519Sha256Signer[] signers(int count) {
+    Ed25519Sha256Signer[] signers = new Ed25519Sha256Signer[count];
+    for (int i = 0; i < count; i++) {
+      signers[i] = new Ed25519Sha256Signer((EdDSAPrivateKey) new net.i2p.crypto.eddsa
+          .KeyPairGenerator().generateKeyPair().getPrivate());
+    }
+    return signers;
+  }
+
+  private static Condition[] conditions(Ed25519Sha256Signer[] signers) {
+    Condition[] conditions = new Condition[signers.length];
+    for (int i = 0; i < signers.length; i++) {
+      conditions[i] = signers[i].getCondition();
+    }
+    return conditions;
+  }
+
+  @Test
+  public void test_nested_thresholds() throws Exception {
+    Ed25519Sha256Signer[] signers = signers(5);
+    ThresholdSha256Condition inner = new ThresholdSha256Condition(2,
+        new Condition[] {signers[2].getCondition(), signers[3].getCondition(),
+            signers[4].getCondition()});
+    ThresholdSha256Condition condition = new ThresholdSha256Condition(2,
+        new Condition[] {signers[0].getCondition(), signers[1].getCondition(), inner});
+    ThresholdSha256Accumulator accumulator = new ThresholdSha256Accumulator(condition, MESSAGE);
+
+    // Wrong message, unrelated signer, then a duplicate
+    assertFalse(accumulator.offer(signers[0].sign(new byte[] {1})));
+    assertFalse(accumulator.offer(signers(1)[0].sign(MESSAGE)));
+    assertTrue(accumulator.offer(signers[2].sign(MESSAGE)));
+    assertFalse(accumulator.offer(signers[2].sign(MESSAGE)));
+
+    assertTrue(accumulator.offer(signers[0].sign(MESSAGE)));
+    assertFalse(accumulator.isComplete());
+    assertFalse(accumulator.getFulfillment().isDone());
+
+    // Completes the inner threshold, which completes the outer one
+    assertTrue(accumulator.offer(signers[4].sign(MESSAGE)));
+    assertTrue(accumulator.isComplete());
+
+    ThresholdSha256Fulfillment fulfillment = accumulator.getFulfillment().get();
+    assertEquals(condition, fulfillment.getCondition());
+    assertTrue(fulfillment.verify(condition, MESSAGE));
+    assertFalse(accumulator.offer(signers[1].sign(MESSAGE)));
+  }
+
+  @Test
+  public void test_concurrent_offers() throws Exception {
+    Ed25519Sha256Signer[] signers = signers(16);
+    ThresholdSha256Condition condition = new ThresholdSha256Condition(11, conditions(signers));
+    ThresholdSha256Accumulator accumulator = new ThresholdSha256Accumulator(condition, MESSAGE);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> offers = new ArrayList<>();
+      for (Ed25519Sha256Signer signer : signers) {
+        offers.add(executor.submit(() -> accumulator.offer(signer.sign(MESSAGE))));
+      }
+      int accepted = 0;
+      for (Future<Boolean> offer : offers) {
+        accepted += offer.get() ? 1 : 0;
+      }
+
+      assertTrue(accepted >= 11);
+      ThresholdSha256Fulfillment fulfillment =
+          accumulator.getFulfillment().get(10, TimeUnit.SECONDS);
+      assertEquals(11, fulfillment.getThreshold());
+      assertTrue(fulfillment.verify(condition, MESSAGE));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void test_zero_threshold() throws Exception {
+    ThresholdSha256Condition condition =
+        new ThresholdSha256Condition(0, conditions(signers(1)));
+    ThresholdSha256Accumulator accumulator = new ThresholdSha256Accumulator(condition, MESSAGE);
+
+    assertTrue(accumulator.isComplete());
+    assertTrue(accumulator.getFulfillment().get().verify(condition, MESSAGE));
+  }
+
+}
@@ -0,0 +1,79 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.junit.Test;
+
+public class Test_ThresholdSha256FulfillmentBuilder {
+
+  private static PreimageSha256Fulfillment preimage(int length, int seed) {
+    byte[] preimage = new byte[length];
+    Arrays.fill(preimage, (byte) seed);
+    return new PreimageSha256Fulfillment(preimage);
+  }
+
+  @Test
+  public void test_cheapest_subfulfillments() {
+    PreimageSha256Fulfillment large = preimage(100, 1);
+    PreimageSha256Fulfillment small = preimage(1, 2);
+    PreimageSha256Fulfillment medium = preimage(10, 3);
+    ThresholdSha256Condition condition = new ThresholdSha256Condition(2,
+        new Condition[] {large.getCondition(), small.getCondition(), medium.getCondition()});
+
+    ThresholdSha256Fulfillment fulfillment = new ThresholdSha256FulfillmentBuilder(condition)
+        .addAll(Arrays.asList(large, preimage(5, 4), medium, small))
+        .build();
+
+    assertEquals(2, fulfillment.getThreshold());
+    assertArrayEquals(new Fulfillment[] {small, medium}, fulfillment.getSubfulfillments());
+    assertArrayEquals(new Condition[] {large.getCondition()}, fulfillment.getSubconditions());
+    assertEquals(condition, fulfillment.getCondition());
+    assertTrue(fulfillment.verify(condition, new byte[0]));
+  }
+
+  @Test
+  public void test_nested_threshold() {
+    PreimageSha256Fulfillment a = preimage(1, 1);
+    PreimageSha256Fulfillment b = preimage(2, 2);
+    PreimageSha256Fulfillment c = preimage(3, 3);
+    PreimageSha256Fulfillment expensive = preimage(5000, 4);
+    ThresholdSha256Condition inner = new ThresholdSha256Condition(2,
+        new Condition[] {a.getCondition(), b.getCondition(), c.getCondition()});
+    ThresholdSha256Condition outer = new ThresholdSha256Condition(1,
+        new Condition[] {expensive.getCondition(), inner});
+
+    ThresholdSha256Fulfillment fulfillment = new ThresholdSha256FulfillmentBuilder(outer)
+        .addAll(Arrays.asList(expensive, c, b, a))
+        .build();
+
+    Fulfillment[] subfulfillments = fulfillment.getSubfulfillments();
+    assertEquals(1, subfulfillments.length);
+    assertEquals(inner, subfulfillments[0].getCondition());
+    assertArrayEquals(new Fulfillment[] {a, b},
+        ((ThresholdSha256Fulfillment) subfulfillments[0]).getSubfulfillments());
+    assertEquals(outer, fulfillment.getCondition());
+    assertTrue(fulfillment.verify(outer, new byte[0]));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_not_enough_candidates() {
+    PreimageSha256Fulfillment a = preimage(1, 1);
+    ThresholdSha256Condition condition = new ThresholdSha256Condition(2,
+        new Condition[] {a.getCondition(), preimage(2, 2).getCondition()});
+
+    new ThresholdSha256FulfillmentBuilder(condition).add(a).add(preimage(3, 3)).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_condition_from_fingerprint() {
+    new ThresholdSha256FulfillmentBuilder(new ThresholdSha256Condition(new byte[32], 1024,
+        EnumSet.of(ConditionType.PREIMAGE_SHA256)));
+  }
+
+}
@@ -0,0 +1,109 @@
+package org.interledger.cryptoconditions.types;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.Fulfillment;
+import org.junit.Test;
+
+import net.i2p.crypto.eddsa.EdDSAPrivateKey;
+
+public class Test_VerificationProgram {
+
+  private static final byte[] PREFIX = "prefix".getBytes(StandardCharsets.UTF_8);
+
+  private static Fulfillment fulfillment(byte[] message) {
+    net.i2p.crypto.eddsa.KeyPairGenerator generator = new net.i2p.crypto.eddsa.KeyPairGenerator();
+    KeyPair keyPair1 = generator.generateKeyPair();
+    KeyPair keyPair2 = generator.generateKeyPair();
+    byte[] prefixed = new byte[PREFIX.length + message.length];
+    System.arraycopy(PREFIX, 0, prefixed, 0, PREFIX.length);
+    System.arraycopy(message, 0, prefixed, PREFIX.length, message.length);
+
+    Fulfillment nested = new ThresholdSha256Fulfillment(
+        new Condition[] {new PreimageSha256Fulfillment(new byte[] {4}).getCondition()},
+        new Fulfillment[] {Ed25519Sha256Signer.sign((EdDSAPrivateKey) keyPair2.getPrivate(),
+            prefixed)});
+
+    return new ThresholdSha256Fulfillment(new Condition[0], new Fulfillment[] {
+        Ed25519Sha256Signer.sign((EdDSAPrivateKey) keyPair1.getPrivate(), message),
+        new PrefixSha256Fulfillment(PREFIX, 1024, nested),
+        new PreimageSha256Fulfillment(new byte[] {1, 2, 3})});
+  }
+
+  @Test
+  public void test_agrees_with_fulfillment() throws Exception {
+    byte[] message = "message".getBytes(StandardCharsets.UTF_8);
+    Fulfillment fulfillment = fulfillment(message);
+    Condition condition = fulfillment.getCondition();
+    VerificationProgram.Operands operands = VerificationProgram.compile(fulfillment)
+        .bind(fulfillment);
+
+    assertEquals(condition, operands.getCondition());
+    for (int i = 0; i < 3; i++) {
+      assertTrue(operands.verify(condition, message));
+      assertTrue(operands.verify(condition, new ByteArrayInputStream(message)));
+    }
+
+    byte[] other = "massage".getBytes(StandardCharsets.UTF_8);
+    assertFalse(fulfillment.verify(condition, other));
+    assertFalse(operands.verify(condition, other));
+    assertFalse(operands.verify(condition, new ByteArrayInputStream(other)));
+
+    assertFalse(operands.verify(fulfillment(message).getCondition(), message));
+  }
+
+  @Test
+  public void test_reuse_for_same_shape() {
+    byte[] message = "message".getBytes(StandardCharsets.UTF_8);
+    VerificationProgram program = VerificationProgram.compile(fulfillment(message));
+
+    for (int i = 0; i < 3; i++) {
+      Fulfillment fulfillment = fulfillment(message);
+      assertTrue(program.bind(fulfillment).verify(fulfillment.getCondition(), message));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_bind_other_shape() {
+    byte[] message = "message".getBytes(StandardCharsets.UTF_8);
+    VerificationProgram program = VerificationProgram.compile(fulfillment(message));
+
+    program.bind(new PrefixSha256Fulfillment(PREFIX, 1024, fulfillment(message)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_condition_of_other_type() {
+    byte[] message = "message".getBytes(StandardCharsets.UTF_8);
+    Fulfillment fulfillment = fulfillment(message);
+    Condition other = new PreimageSha256Fulfillment(new byte[] {1}).getCondition();
+
+    VerificationProgram.compile(fulfillment).bind(fulfillment).verify(other, message);
+  }
+
+  @Test
+  public void test_leaf() {
+    byte[] message = "message".getBytes(StandardCharsets.UTF_8);
+    KeyPair keyPair = new net.i2p.crypto.eddsa.KeyPairGenerator().generateKeyPair();
+    Fulfillment fulfillment =
+        Ed25519Sha256Signer.sign((EdDSAPrivateKey) keyPair.getPrivate(), message);
+    VerificationProgram.Operands operands = VerificationProgram.compile(fulfillment)
+        .bind(fulfillment);
+
+    assertTrue(operands.verify(fulfillment.getCondition(), message));
+    assertFalse(operands.verify(fulfillment.getCondition(), new byte[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_max_message_length() {
+    Fulfillment fulfillment =
+        new PrefixSha256Fulfillment(PREFIX, 4, new PreimageSha256Fulfillment(new byte[] {1}));
+    VerificationProgram.compile(fulfillment).bind(fulfillment)
+        .verify(fulfillment.getCondition(), new byte[5]);
+  }
+
+}
@@ -0,0 +1,150 @@
+package org.interledger.cryptoconditions.uri;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.interledger.cryptoconditions.Condition;
+import org.interledger.cryptoconditions.ConditionType;
+import org.interledger.cryptoconditions.HexDump;
+import org.interledger.cryptoconditions.der.CryptoConditionReader;
+import org.interledger.cryptoconditions.der.DEREncodingException;
+import org.interledger.cryptoconditions.test.TestVector;
+import org.interledger.cryptoconditions.types.PrefixSha256Condition;
+import org.interledger.cryptoconditions.types.PreimageSha256Condition;
+import org.interledger.cryptoconditions.types.ThresholdSha256Condition;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class Test_CryptoConditionTranscoder {
+
+  private static List<Condition> conditions() throws Exception {
+    List<Condition> conditions = new ArrayList<>();
+    File vectors = new File(TestVector.class.getResource("vectors/valid").toURI());
+    ObjectMapper mapper = new ObjectMapper();
+    for (File file : vectors.listFiles((dir, name) -> name.endsWith(".json"))) {
+      TestVector vector = mapper.readValue(file, TestVector.class);
+      conditions.add(CryptoConditionReader.readCondition(
+          HexDump.hexStringToByteArray(vector.getConditionBinary())));
+    }
+
+    byte[] fingerprint = new byte[32];
+    Arrays.fill(fingerprint, (byte) 0xfb);
+    conditions.add(new PreimageSha256Condition(fingerprint, Long.MAX_VALUE));
+    conditions.add(new PreimageSha256Condition(fingerprint, 0));
+    conditions.add(new PrefixSha256Condition(fingerprint, 128,
+        EnumSet.noneOf(ConditionType.class)));
+    conditions.add(new ThresholdSha256Condition(fingerprint, 32768,
+        EnumSet.allOf(ConditionType.class)));
+    return conditions;
+  }
+
+  @Test
+  public void test_matches_conditions() throws Exception {
+    byte[] der = new byte[CryptoConditionTranscoder.MAX_ENCODED_LENGTH + 3];
+    char[] uri = new char[CryptoConditionTranscoder.MAX_URI_LENGTH + 3];
+    for (Condition condition : conditions()) {
+      byte[] encoded = condition.getEncoded();
+      String expectedUri = condition.getUri().toString();
+
+      int length = CryptoConditionTranscoder.toDer(expectedUri, der, 3);
+      assertArrayEquals(expectedUri, encoded, Arrays.copyOfRange(der, 3, 3 + length));
+
+      length = CryptoConditionTranscoder.toUri(encoded, 0, encoded.length, uri, 3);
+      assertEquals(expectedUri, new String(uri, 3, length));
+    }
+  }
+
+  @Test
+  public void test_lists() throws Exception {
+    List<Condition> conditions = conditions();
+    List<String> uris = new ArrayList<>();
+    for (Condition condition : conditions) {
+      uris.add(condition.getUri().toString());
+    }
+
+    byte[] der = new byte[conditions.size() * CryptoConditionTranscoder.MAX_ENCODED_LENGTH];
+    int length = CryptoConditionTranscoder.toDer(uris, der, 0);
+
+    List<String> decoded = new ArrayList<>();
+    assertEquals(conditions.size(),
+        CryptoConditionTranscoder.toUris(der, 0, length, decoded));
+    assertEquals(uris, decoded);
+  }
+
+  @Test
+  public void test_accepts_what_parse_accepts() throws Exception {
+    String uri = "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU"
+        + "?cost=0&fpt=PREIMAGE-SHA-256&cost=7";
+    byte[] der = new byte[CryptoConditionTranscoder.MAX_ENCODED_LENGTH];
+    int length = CryptoConditionTranscoder.toDer(uri, der, 0);
+    assertArrayEquals(CryptoConditionUri.parse(URI.create(uri)).getEncoded(),
+        Arrays.copyOf(der, length));
+  }
+
+  @Test
+  public void test_rejects_invalid() {
+    byte[] der = new byte[CryptoConditionTranscoder.MAX_ENCODED_LENGTH];
+    for (String uri : new String[] {
+        "http:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU?fpt=preimage-sha-256&cost=0",
+        "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFV?fpt=preimage-sha-256&cost=0",
+        "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU?fpt=preimage-sha-256",
+        "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU?fpt=sha-256&cost=0",
+        "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU?fpt=preimage-sha-256&cost=-1",
+        "ni:///sha-256;47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU"
+            + "?fpt=prefix-sha-256&cost=1&subtypes=preimage-sha-256,,"}) {
+      try {
+        CryptoConditionTranscoder.toDer(uri, der, 0);
+        fail(uri);
+      } catch (URIEncodingException e) {
+        // Expected
+      }
+    }
+
+    byte[] encoded = new PreimageSha256Condition(new byte[32], 1).getEncoded();
+    try {
+      CryptoConditionTranscoder.toUri(encoded, 0, encoded.length - 1,
+          new char[CryptoConditionTranscoder.MAX_URI_LENGTH], 0);
+      fail();
+    } catch (DEREncodingException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void test_rejects_what_the_decoder_rejects() throws Exception {
+    byte[] fingerprint = new byte[32];
+    byte[] valid = new PrefixSha256Condition(fingerprint, 1,
+        EnumSet.of(ConditionType.PREIMAGE_SHA256)).getEncoded();
+    assertEquals("81010182020780", HexDump.toHexString(valid, 36, valid.length - 36));
+
+    for (String tail : new String[] {
+        "8102000182020780", // Cost not minimally encoded
+        "8101ff82020780", // Negative cost
+        "8102ff8082020780", // Negative cost
+        "81010182020781", // Unknown subtype
+        "81010182020284", // Unknown subtype
+        "81010182020680", // Pad bits do not match the subtypes
+        "81010182020700", // No subtypes in a two byte bit string
+        "810101820101"}) { // Corrupt bit string
+      byte[] tailBytes = HexDump.hexStringToByteArray(tail);
+      byte[] encoded = Arrays.copyOf(valid, 36 + tailBytes.length);
+      System.arraycopy(tailBytes, 0, encoded, 36, tailBytes.length);
+      encoded[1] = (byte) (encoded.length - 2);
+      try {
+        CryptoConditionTranscoder.toUri(encoded, 0, encoded.length,
+            new char[CryptoConditionTranscoder.MAX_URI_LENGTH], 0);
+        fail(tail);
+      } catch (DEREncodingException e) {
+        // Expected
+      }
+    }
+  }
+
+}